@@ -0,0 +1,30 @@
+package common;
+
+/**
+ * A {@code CancellationToken} is handed to a long running operation, such as
+ * solving a game, which checks it regularly. Any thread can request the
+ * cancellation by calling {@link #cancel()}.
+ * 
+ * @author grimm
+ *
+ */
+public class CancellationToken {
+	private volatile boolean cancelled;
+
+	/**
+	 * Requests the cancellation of the operation(s) this token was handed to.
+	 */
+	public void cancel() {
+		this.cancelled = true;
+	}
+
+	/**
+	 * Returns {@code true} if the cancellation was requested
+	 * 
+	 * @return {@code true} if the cancellation was requested
+	 */
+	public boolean isCancelled() {
+		return this.cancelled;
+	}
+
+}
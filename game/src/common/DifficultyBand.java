@@ -0,0 +1,86 @@
+package common;
+
+/**
+ * A range of difficulties a generated game has to fall into: the hardest
+ * {@link RuleTier} needed to solve the game and the score of its
+ * {@link DifficultyRating} both lie between a minimum and a maximum.
+ *
+ * @author grimm
+ *
+ */
+public class DifficultyBand {
+	/** games solved by capacity and isolation rules alone */
+	public static final DifficultyBand EASY = of(RuleTier.CAPACITY, RuleTier.ISOLATION);
+	/** games which need the connectivity rules or probing */
+	public static final DifficultyBand MEDIUM = of(RuleTier.CONNECTIVITY, RuleTier.PROBING);
+	/** games which need trial and error */
+	public static final DifficultyBand HARD = of(RuleTier.SEARCH, RuleTier.SEARCH);
+
+	private final RuleTier easiestTier;
+	private final RuleTier hardestTier;
+	private final long minScore;
+	private final long maxScore;
+
+	/**
+	 * @param easiestTier the easiest allowed hardest tier of a game
+	 * @param hardestTier the hardest allowed hardest tier of a game
+	 * @param minScore    the minimum score
+	 * @param maxScore    the maximum score
+	 */
+	public DifficultyBand(RuleTier easiestTier, RuleTier hardestTier, long minScore, long maxScore) {
+		if (easiestTier.compareTo(hardestTier) > 0 || minScore > maxScore) {
+			throw new IllegalArgumentException("Empty difficulty band");
+		}
+		this.easiestTier = easiestTier;
+		this.hardestTier = hardestTier;
+		this.minScore = minScore;
+		this.maxScore = maxScore;
+	}
+
+	/**
+	 * Returns the band of games whose hardest tier lies between
+	 * {@code easiestTier} and {@code hardestTier}, with any score
+	 *
+	 * @param easiestTier the easiest allowed hardest tier of a game
+	 * @param hardestTier the hardest allowed hardest tier of a game
+	 * @return the band
+	 */
+	public static DifficultyBand of(RuleTier easiestTier, RuleTier hardestTier) {
+		return new DifficultyBand(easiestTier, hardestTier, 0, Long.MAX_VALUE);
+	}
+
+	public RuleTier getEasiestTier() {
+		return easiestTier;
+	}
+
+	public RuleTier getHardestTier() {
+		return hardestTier;
+	}
+
+	public long getMinScore() {
+		return minScore;
+	}
+
+	public long getMaxScore() {
+		return maxScore;
+	}
+
+	/**
+	 * Returns {@code true} if the rated game falls into this band
+	 *
+	 * @param rating the rating of a game
+	 * @return {@code true} if tier and score are in range
+	 */
+	public boolean contains(DifficultyRating rating) {
+		RuleTier tier = rating.getHardestTier();
+		return tier.compareTo(easiestTier) >= 0 && tier.compareTo(hardestTier) <= 0 && rating.getScore() >= minScore
+				&& rating.getScore() <= maxScore;
+	}
+
+	@Override
+	public String toString() {
+		return "DifficultyBand [easiestTier=" + easiestTier + ", hardestTier=" + hardestTier + ", minScore="
+				+ minScore + ", maxScore=" + maxScore + "]";
+	}
+
+}
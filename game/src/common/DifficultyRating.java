@@ -0,0 +1,101 @@
+package common;
+
+import java.util.Arrays;
+
+/**
+ * The difficulty of a bridges game, measured by solving it with the easiest
+ * rule tier possible at every step. The {@link #getScore() score} sums the
+ * {@link RuleTier#getWeight() weight} of every tier use, so games rated with
+ * the same rules always get the same score.
+ * 
+ * @author grimm
+ *
+ */
+public class DifficultyRating {
+	private final long[] tierUses;
+	private final long propagationRounds;
+	private final long searchNodes;
+
+	/**
+	 * @param tierUses          the number of uses of each {@link RuleTier}, indexed
+	 *                          by ordinal
+	 * @param propagationRounds the number of passes over the rules
+	 * @param searchNodes       the number of search nodes
+	 */
+	public DifficultyRating(long[] tierUses, long propagationRounds, long searchNodes) {
+		if (tierUses.length != RuleTier.values().length) {
+			throw new IllegalArgumentException("One use count per rule tier expected");
+		}
+		this.tierUses = tierUses.clone();
+		this.propagationRounds = propagationRounds;
+		this.searchNodes = searchNodes;
+	}
+
+	/**
+	 * Returns how often rules of {@code tier} made progress. For
+	 * {@link RuleTier#SEARCH} this is the number of search nodes.
+	 * 
+	 * @param tier the rule tier
+	 * @return the number of uses of the tier
+	 */
+	public long getUses(RuleTier tier) {
+		return tierUses[tier.ordinal()];
+	}
+
+	/**
+	 * Returns the hardest tier which was needed to solve the game
+	 * 
+	 * @return the hardest tier used, {@link RuleTier#CAPACITY} if no rule was
+	 *         needed
+	 */
+	public RuleTier getHardestTier() {
+		RuleTier[] tiers = RuleTier.values();
+		for (int t = tiers.length - 1; t > 0; t--) {
+			if (tierUses[t] > 0) {
+				return tiers[t];
+			}
+		}
+		return RuleTier.CAPACITY;
+	}
+
+	/**
+	 * Returns the number of passes over the rules, including the passes made
+	 * while probing and searching
+	 * 
+	 * @return number of propagation rounds
+	 */
+	public long getPropagationRounds() {
+		return propagationRounds;
+	}
+
+	/**
+	 * Returns the number of search nodes needed after all rules and probing got
+	 * stuck
+	 * 
+	 * @return number of search nodes
+	 */
+	public long getSearchNodes() {
+		return searchNodes;
+	}
+
+	/**
+	 * Returns the difficulty score, higher is harder
+	 * 
+	 * @return sum of the weights of all tier uses
+	 */
+	public long getScore() {
+		long score = 0;
+		for (RuleTier tier : RuleTier.values()) {
+			score += tier.getWeight() * tierUses[tier.ordinal()];
+		}
+		return score;
+	}
+
+	@Override
+	public String toString() {
+		return "DifficultyRating [score=" + getScore() + ", hardestTier=" + getHardestTier() + ", tierUses="
+				+ Arrays.toString(tierUses) + ", propagationRounds=" + propagationRounds + ", searchNodes="
+				+ searchNodes + "]";
+	}
+
+}
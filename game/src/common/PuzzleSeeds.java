@@ -0,0 +1,36 @@
+package common;
+
+/**
+ * Derives the seeds of the puzzles of a corpus from the seed of the corpus.
+ * The seed of a puzzle only depends on the corpus seed and the index of the
+ * puzzle, so puzzles can be generated in any order and on any number of
+ * threads and still come out bit-identical.
+ *
+ * @author grimm
+ *
+ */
+public final class PuzzleSeeds {
+	// increment of SplittableRandom, spreads consecutive indices over all seeds
+	private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+	private PuzzleSeeds() {
+	}
+
+	/**
+	 * Returns the seed of the puzzle with the given {@code index} in the corpus
+	 * generated from {@code corpusSeed}
+	 *
+	 * @param corpusSeed seed of the whole corpus
+	 * @param index      position of the puzzle in the corpus
+	 * @return the seed to pass to the seeded
+	 *         {@code GameModelnterface#createNewGame}
+	 */
+	public static long of(long corpusSeed, long index) {
+		// finalizer of SplittableRandom (variant 13 of Stafford's mix)
+		long z = corpusSeed + (index + 1) * GOLDEN_GAMMA;
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+
+}
@@ -0,0 +1,37 @@
+package common;
+
+/**
+ * The tiers of rules used to rate the difficulty of a bridges game, from the
+ * easiest to the hardest. Each tier has a weight which a single use of the tier
+ * adds to the score of a {@link DifficultyRating}.
+ * 
+ * @author grimm
+ *
+ */
+public enum RuleTier {
+	/** the bridges of an island sum up to its capacity, bridges do not cross */
+	CAPACITY(1),
+	/** two islands of capacity one or two must not isolate each other */
+	ISOLATION(2),
+	/** bridges which are needed to connect all islands */
+	CONNECTIVITY(4),
+	/** an option of an edge is removed because trying it leads to a contradiction */
+	PROBING(8),
+	/** a search node of trial and error */
+	SEARCH(16);
+
+	private final int weight;
+
+	private RuleTier(int weight) {
+		this.weight = weight;
+	}
+
+	/**
+	 * Returns the score a single use of this tier adds to a rating
+	 * 
+	 * @return the weight of this tier
+	 */
+	public int getWeight() {
+		return weight;
+	}
+}
@@ -0,0 +1,20 @@
+package common;
+
+/**
+ * The outcome of solving a bridges game with limits.
+ * 
+ * @author grimm
+ *
+ */
+public enum SolveStatus {
+	/** a solution was found */
+	SOLVED,
+	/** the game has no solution given the bridges already build */
+	NO_SOLUTION,
+	/** the time limit was reached before the search finished */
+	TIME_LIMIT_REACHED,
+	/** the search visited the maximum number of nodes without finishing */
+	NODE_BUDGET_EXHAUSTED,
+	/** the search was cancelled by a {@link CancellationToken} or an interrupt */
+	CANCELLED
+}
@@ -0,0 +1,75 @@
+package common;
+
+import java.time.Duration;
+
+/**
+ * Limits for solving a bridges game: a time limit, a maximum number of search
+ * nodes and the interval in which progress is reported.
+ * 
+ * @author grimm
+ *
+ */
+public class SolverLimits {
+	/**
+	 * No time limit and no node budget, progress is reported every second
+	 */
+	public static final SolverLimits UNLIMITED = new SolverLimits(null, Long.MAX_VALUE, Duration.ofSeconds(1));
+
+	private final Duration timeLimit;
+	private final long nodeBudget;
+	private final Duration progressInterval;
+
+	/**
+	 * @param timeLimit        maximum duration of solving, {@code null} for no
+	 *                         limit
+	 * @param nodeBudget       maximum number of search nodes
+	 * @param progressInterval minimum time between two progress reports
+	 */
+	public SolverLimits(Duration timeLimit, long nodeBudget, Duration progressInterval) {
+		if (nodeBudget < 0) {
+			throw new IllegalArgumentException("Node budget must not be negative");
+		}
+		this.timeLimit = timeLimit;
+		this.nodeBudget = nodeBudget;
+		this.progressInterval = progressInterval;
+	}
+
+	/**
+	 * Limits solving to {@code timeLimit}, no node budget
+	 * 
+	 * @param timeLimit maximum duration of solving
+	 * @return the limits
+	 */
+	public static SolverLimits timeLimit(Duration timeLimit) {
+		return new SolverLimits(timeLimit, Long.MAX_VALUE, UNLIMITED.progressInterval);
+	}
+
+	/**
+	 * Limits solving to {@code nodeBudget} search nodes, no time limit
+	 * 
+	 * @param nodeBudget maximum number of search nodes
+	 * @return the limits
+	 */
+	public static SolverLimits nodeBudget(long nodeBudget) {
+		return new SolverLimits(null, nodeBudget, UNLIMITED.progressInterval);
+	}
+
+	/**
+	 * Returns the maximum duration of solving or {@code null} if there is no
+	 * limit
+	 * 
+	 * @return the time limit
+	 */
+	public Duration getTimeLimit() {
+		return timeLimit;
+	}
+
+	public long getNodeBudget() {
+		return nodeBudget;
+	}
+
+	public Duration getProgressInterval() {
+		return progressInterval;
+	}
+
+}
@@ -0,0 +1,62 @@
+package common;
+
+import java.time.Duration;
+
+/**
+ * Snapshot of the progress of solving a bridges game.
+ * 
+ * @author grimm
+ *
+ */
+public class SolverProgress {
+	private final long nodesExplored;
+	private final int edgesFixed;
+	private final int nrOfEdges;
+	private final Duration elapsed;
+
+	public SolverProgress(long nodesExplored, int edgesFixed, int nrOfEdges, Duration elapsed) {
+		this.nodesExplored = nodesExplored;
+		this.edgesFixed = edgesFixed;
+		this.nrOfEdges = nrOfEdges;
+		this.elapsed = elapsed;
+	}
+
+	/**
+	 * Returns the number of search nodes visited so far
+	 * 
+	 * @return number of search nodes
+	 */
+	public long getNodesExplored() {
+		return nodesExplored;
+	}
+
+	/**
+	 * Returns the number of edges (pairs of neighbouring islands) whose number of
+	 * bridges is decided in the current search node
+	 * 
+	 * @return number of decided edges
+	 */
+	public int getEdgesFixed() {
+		return edgesFixed;
+	}
+
+	/**
+	 * Returns the number of edges (pairs of neighbouring islands) of the game
+	 * 
+	 * @return number of edges
+	 */
+	public int getNrOfEdges() {
+		return nrOfEdges;
+	}
+
+	public Duration getElapsed() {
+		return elapsed;
+	}
+
+	@Override
+	public String toString() {
+		return "SolverProgress [nodesExplored=" + nodesExplored + ", edgesFixed=" + edgesFixed + ", nrOfEdges="
+				+ nrOfEdges + ", elapsed=" + elapsed + "]";
+	}
+
+}
@@ -0,0 +1,6 @@
+package common;
+
+public interface SolverProgressListener {
+	public void progressChanged(SolverProgress progress);
+
+}
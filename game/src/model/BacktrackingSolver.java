@@ -0,0 +1,368 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.function.Consumer;
+
+/**
+ * Depth first search for a solution of a bridges game. In every node of the
+ * search tree an undecided edge is picked and each possible number of bridges
+ * is tried. After every decision the rules of the game are applied by a
+ * {@link Propagator}, so branches without solution are abandoned early.
+ * <p>
+ * The search is iterative, decisions are undone with the trail of the
+ * {@link SolverState}. A search running in a thread which gets interrupted
+ * or exceeds the limits of its {@link SearchMonitor} stops with a
+ * {@link SearchAbortedException}.
+ * <p>
+ * The decision stack can be taken as a {@link Frontier} at the start of a
+ * search node and a later search can resume from it, see
+ * {@link #setCheckpointHandler(Consumer, long)} and
+ * {@link #resumeFrom(Frontier)}.
+ *
+ * @author grimm
+ *
+ */
+final class BacktrackingSolver {
+
+	/**
+	 * The order in which undecided edges are picked
+	 */
+	enum EdgeOrder {
+		/** first undecided edge of the {@link IslandGraph} */
+		INPUT,
+		/** edge with the fewest options next to islands with few undecided edges */
+		MOST_CONSTRAINED,
+		/** first undecided edge of a random permutation of the edges */
+		RANDOM
+	}
+
+	/**
+	 * The decisions leading to a search node: for each level the decided edge,
+	 * the number of bridges it carries and the bit set of the values which are
+	 * still to be tried. Together with the state the search started from, the
+	 * frontier determines the remaining search.
+	 */
+	static final class Frontier {
+		private final int[] edges;
+		private final int[] values;
+		private final int[] remainingValues;
+
+		Frontier(int[] edges, int[] values, int[] remainingValues) {
+			this.edges = edges;
+			this.values = values;
+			this.remainingValues = remainingValues;
+		}
+
+		int getDepth() {
+			return this.edges.length;
+		}
+
+		int getEdge(int level) {
+			return this.edges[level];
+		}
+
+		int getValue(int level) {
+			return this.values[level];
+		}
+
+		int getRemainingValues(int level) {
+			return this.remainingValues[level];
+		}
+	}
+
+	private final SolverState state;
+	private final IslandGraph graph;
+	private final Propagator propagator;
+	private final EdgeOrder edgeOrder;
+	private final boolean descendingValues;
+	private final boolean probing;
+	// edges the search decides on, in the order of EdgeOrder.INPUT
+	private int[] edgePermutation;
+	// decision stack
+	private final int[] decisionEdge;
+	private final int[] decisionValue;
+	private final int[] remainingValues;
+	private final int[] trailMark;
+	private int depth;
+	private long nodes;
+	private SearchMonitor monitor = new SearchMonitor();
+	private Frontier resumeFrontier;
+	private Consumer<Frontier> checkpointHandler;
+	private long checkpointInterval;
+	private long nextCheckpoint;
+
+	/**
+	 * @param state            the state to search from, is modified by the search
+	 * @param edgeOrder        order in which edges are decided
+	 * @param descendingValues {@code true} if more bridges are tried first
+	 * @param probing          {@code true} if each node additionally tests every
+	 *                         remaining option of every edge (failed literal
+	 *                         probing)
+	 * @param seed             seed of the permutation used by
+	 *                         {@link EdgeOrder#RANDOM}
+	 */
+	BacktrackingSolver(SolverState state, EdgeOrder edgeOrder, boolean descendingValues, boolean probing,
+			long seed) {
+		this.state = state;
+		this.graph = state.getGraph();
+		this.propagator = new Propagator(state);
+		this.edgeOrder = edgeOrder;
+		this.descendingValues = descendingValues;
+		this.probing = probing;
+		int nrOfEdges = this.graph.getNrOfEdges();
+		this.edgePermutation = new int[nrOfEdges];
+		for (int e = 0; e < nrOfEdges; e++) {
+			this.edgePermutation[e] = e;
+		}
+		if (edgeOrder == EdgeOrder.RANDOM) {
+			SplittableRandom random = new SplittableRandom(seed);
+			for (int e = nrOfEdges - 1; e > 0; e--) {
+				int other = random.nextInt(e + 1);
+				int tmp = this.edgePermutation[e];
+				this.edgePermutation[e] = this.edgePermutation[other];
+				this.edgePermutation[other] = tmp;
+			}
+		}
+		this.decisionEdge = new int[nrOfEdges + 1];
+		this.decisionValue = new int[nrOfEdges + 1];
+		this.remainingValues = new int[nrOfEdges + 1];
+		this.trailMark = new int[nrOfEdges + 1];
+	}
+
+	/**
+	 * Limits the decisions of the search to {@code edges}. The search stops as
+	 * soon as these edges are decided, other edges may still be undecided then.
+	 * Must be called before {@link #solve()}.
+	 *
+	 * @param edges the edges to decide
+	 */
+	void setDecisionEdges(int[] edges) {
+		this.edgePermutation = edges.clone();
+	}
+
+	/**
+	 * Sets the monitor enforcing limits and reporting progress. Without a monitor
+	 * the search is only stopped by an interrupt.
+	 *
+	 * @param monitor the monitor of the search
+	 */
+	void setMonitor(SearchMonitor monitor) {
+		this.monitor = monitor;
+	}
+
+	/**
+	 * Passes the {@link Frontier} of the current search node to {@code handler}
+	 * whenever {@code intervalNanos} elapsed since the last call. The interval is
+	 * only checked once per search node.
+	 *
+	 * @param handler       receives the frontier, runs in the searching thread
+	 * @param intervalNanos minimal time between two calls in nanoseconds
+	 */
+	void setCheckpointHandler(Consumer<Frontier> handler, long intervalNanos) {
+		this.checkpointHandler = handler;
+		this.checkpointInterval = intervalNanos;
+	}
+
+	/**
+	 * Continues the search at {@code frontier} instead of starting at the root.
+	 * The state passed to the constructor has to be the state the search of the
+	 * frontier started from. Must be called before {@link #solve()}.
+	 *
+	 * @param frontier the frontier of an earlier search
+	 */
+	void resumeFrom(Frontier frontier) {
+		this.resumeFrontier = frontier;
+	}
+
+	/**
+	 * Returns the decisions leading to the current search node
+	 */
+	Frontier getFrontier() {
+		return new Frontier(Arrays.copyOf(this.decisionEdge, this.depth), Arrays.copyOf(this.decisionValue, this.depth),
+				Arrays.copyOf(this.remainingValues, this.depth));
+	}
+
+	/**
+	 * Returns the number of search nodes visited so far
+	 */
+	long getNodes() {
+		return this.nodes;
+	}
+
+	/**
+	 * Returns the number of passes over the rules made so far
+	 */
+	long getPropagationRounds() {
+		return this.propagator.getRounds();
+	}
+
+	/**
+	 * Searches for a solution.
+	 *
+	 * @return the number of bridges on each edge of the {@link IslandGraph} or
+	 *         {@code null} if the game has no solution. If the decisions are
+	 *         limited by {@link #setDecisionEdges(int[])} only the values of
+	 *         these edges are final.
+	 * @throws SearchAbortedException   if the thread was interrupted or the
+	 *                                  {@link SearchMonitor} stopped the search
+	 * @throws IllegalArgumentException if the frontier to resume from does not
+	 *                                  fit the state
+	 */
+	int[] solve() {
+		List<int[]> solutions = this.solveAll(1);
+		return solutions.isEmpty() ? null : solutions.get(0);
+	}
+
+	/**
+	 * Searches for up to {@code limit} solutions, continuing the search after
+	 * each solution found. Finding two solutions of a game shows that it is not
+	 * unique, finding only one proves that it is.
+	 *
+	 * @return the solutions found, see {@link #solve()}
+	 * @throws SearchAbortedException   if the thread was interrupted or the
+	 *                                  {@link SearchMonitor} stopped the search
+	 * @throws IllegalArgumentException if the frontier to resume from does not
+	 *                                  fit the state
+	 */
+	List<int[]> solveAll(int limit) {
+		List<int[]> solutions = new ArrayList<int[]>();
+		if (!this.propagateNode()) {
+			return solutions;
+		}
+		this.depth = 0;
+		if (this.resumeFrontier != null) {
+			this.replay(this.resumeFrontier);
+		}
+		this.nextCheckpoint = System.nanoTime() + this.checkpointInterval;
+		while (true) {
+			this.nodes++;
+			this.monitor.nodeVisited(this.state);
+			if (this.checkpointHandler != null && System.nanoTime() - this.nextCheckpoint >= 0) {
+				this.checkpointHandler.accept(this.getFrontier());
+				this.nextCheckpoint = System.nanoTime() + this.checkpointInterval;
+			}
+			int edge = this.selectEdge();
+			if (edge == -1) {
+				solutions.add(this.state.getSolution());
+				if (solutions.size() == limit || !this.backtrack()) {
+					return solutions;
+				}
+				continue;
+			}
+			this.decisionEdge[this.depth] = edge;
+			this.remainingValues[this.depth] = this.state.getDomain(edge);
+			this.trailMark[this.depth] = this.state.getTrailSize();
+			this.depth++;
+			if (!this.tryNextValue(this.depth - 1)) {
+				this.depth--;
+				if (!this.backtrack()) {
+					return solutions;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Goes back up to the deepest level with a consistent option left and
+	 * takes it.
+	 *
+	 * @return {@code false} if the search tree is exhausted
+	 */
+	private boolean backtrack() {
+		while (this.depth > 0) {
+			if (this.tryNextValue(this.depth - 1)) {
+				return true;
+			}
+			this.depth--;
+		}
+		return false;
+	}
+
+	/**
+	 * Repeats the decisions of {@code frontier}, propagation yields the same
+	 * state as in the search the frontier was taken from.
+	 */
+	private void replay(Frontier frontier) {
+		for (int level = 0; level < frontier.getDepth(); level++) {
+			int edge = frontier.getEdge(level);
+			int value = frontier.getValue(level);
+			this.decisionEdge[level] = edge;
+			this.decisionValue[level] = value;
+			this.remainingValues[level] = frontier.getRemainingValues(level);
+			this.trailMark[level] = this.state.getTrailSize();
+			this.depth = level + 1;
+			if (!this.state.restrictDomain(edge, 1 << value) || !this.propagateNode()) {
+				throw new IllegalArgumentException("Frontier does not fit the state at level " + level);
+			}
+		}
+	}
+
+	/**
+	 * Undoes the current option of a level and tries the remaining ones.
+	 *
+	 * @return {@code false} if no option of the level is consistent
+	 */
+	private boolean tryNextValue(int level) {
+		int edge = this.decisionEdge[level];
+		while (this.remainingValues[level] != 0) {
+			this.state.undo(this.trailMark[level]);
+			int value = this.descendingValues ? 31 - Integer.numberOfLeadingZeros(this.remainingValues[level])
+					: Integer.numberOfTrailingZeros(this.remainingValues[level]);
+			this.remainingValues[level] &= ~(1 << value);
+			this.decisionValue[level] = value;
+			if (this.state.restrictDomain(edge, 1 << value) && this.propagateNode()) {
+				return true;
+			}
+		}
+		this.state.undo(this.trailMark[level]);
+		return false;
+	}
+
+	private boolean propagateNode() {
+		return this.propagator.propagate() && (!this.probing || this.propagator.probe(this.monitor));
+	}
+
+	/**
+	 * Returns the next edge to decide or {@code -1} if all decision edges are
+	 * decided
+	 */
+	private int selectEdge() {
+		if (this.edgeOrder != EdgeOrder.MOST_CONSTRAINED) {
+			for (int e : this.edgePermutation) {
+				if (!this.state.isDecided(e)) {
+					return e;
+				}
+			}
+			return -1;
+		}
+		int bestEdge = -1;
+		int bestScore = Integer.MAX_VALUE;
+		for (int e : this.edgePermutation) {
+			if (this.state.isDecided(e)) {
+				continue;
+			}
+			int score = 16 * (this.state.getUpper(e) - this.state.getLower(e))
+					+ Math.min(this.undecidedEdges(this.graph.getIsland1(e)),
+							this.undecidedEdges(this.graph.getIsland2(e)));
+			if (score < bestScore) {
+				bestScore = score;
+				bestEdge = e;
+			}
+		}
+		return bestEdge;
+	}
+
+	private int undecidedEdges(int island) {
+		int count = 0;
+		for (int e : this.graph.getIncidentEdges(island)) {
+			if (!this.state.isDecided(e)) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+}
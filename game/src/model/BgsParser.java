@@ -0,0 +1,250 @@
+package model;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import common.GameFileFormatException;
+
+/**
+ * Reads a bgs file in a single pass, see {@link GameModelIO} for the format.
+ * <p>
+ * The parser tokenizes the characters itself and checks the game while
+ * reading: the size of the board, the position and capacity of every island,
+ * that no two islands share a cell, the number of islands and that every
+ * bridge connects two islands in the same row or column. Line breaks only end
+ * comments, so files with several bridges on a line, as written by earlier
+ * versions, are read as well. The input is read once from a {@link Reader}
+ * through a buffer of its own or directly from a {@link ByteBuffer}.
+ *
+ * @author grimm
+ *
+ */
+final class BgsParser {
+	private static final int BUFFER_SIZE = 8192;
+	private static final int EOF = -1;
+	// the maximum number of bridges of an island
+	private static final int MAX_CAPACITY = 8;
+	private final Reader reader;
+	private final char[] buffer;
+	private final ByteBuffer bytes;
+	private int position;
+	private int limit;
+	// next character, not consumed yet
+	private int next;
+	private int line = 1;
+
+	private BgsParser(Reader reader, ByteBuffer bytes) {
+		this.reader = reader;
+		this.buffer = reader != null ? new char[BUFFER_SIZE] : null;
+		this.bytes = bytes;
+	}
+
+	/**
+	 * Reads a game from {@code reader}, which is not closed
+	 *
+	 * @throws IOException             if reading fails
+	 * @throws GameFileFormatException if the input is no valid game
+	 */
+	static GameModel parse(Reader reader) throws IOException, GameFileFormatException {
+		return new BgsParser(reader, null).parse();
+	}
+
+	/**
+	 * Reads a game from the remaining bytes of {@code bytes}, which are taken as
+	 * ASCII
+	 *
+	 * @throws GameFileFormatException if the input is no valid game
+	 */
+	static GameModel parse(ByteBuffer bytes) throws GameFileFormatException {
+		try {
+			return new BgsParser(null, bytes).parse();
+		} catch (IOException e) {
+			// a buffer can not fail to read
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private GameModel parse() throws IOException, GameFileFormatException {
+		this.advance();
+		this.expectWord("FIELD");
+		int nrOfRows = this.readInt();
+		this.expectWord("x");
+		int nrOfColumns = this.readInt();
+		this.expect('|');
+		int nrOfIslands = this.readInt();
+		if (nrOfRows < 1 || nrOfColumns < 1 || nrOfIslands < 0) {
+			throw this.error("invalid board size");
+		}
+		this.expectWord("ISLANDS");
+		List<Island> islands = new ArrayList<Island>(Math.min(nrOfIslands, 1 << 20));
+		long nrOfCells = (long) nrOfRows * nrOfColumns;
+		BitSet occupied = nrOfCells <= Integer.MAX_VALUE ? new BitSet((int) nrOfCells) : null;
+		Set<Long> occupiedCells = occupied == null ? new HashSet<Long>() : null;
+		this.skipBlanks();
+		while (this.next == '(') {
+			this.advance();
+			int row = this.readInt();
+			this.expect(',');
+			int column = this.readInt();
+			this.expect('|');
+			int capacity = this.readInt();
+			this.expect(')');
+			if (row < 0 || row >= nrOfRows || column < 0 || column >= nrOfColumns) {
+				throw this.error("island ( " + row + ", " + column + " ) is outside of the board");
+			}
+			if (capacity < 1 || capacity > MAX_CAPACITY) {
+				throw this.error("island ( " + row + ", " + column + " ) has an invalid number of bridges");
+			}
+			long cell = (long) row * nrOfColumns + column;
+			boolean duplicate = occupied != null ? occupied.get((int) cell) : !occupiedCells.add(cell);
+			if (duplicate) {
+				throw this.error("two islands at ( " + row + ", " + column + " )");
+			}
+			if (occupied != null) {
+				occupied.set((int) cell);
+			}
+			islands.add(new Island(row, column, capacity));
+			this.skipBlanks();
+		}
+		if (islands.size() != nrOfIslands) {
+			throw this.error(nrOfIslands + " islands declared, but " + islands.size() + " defined");
+		}
+		List<Bridge> bridges = new ArrayList<Bridge>();
+		if (this.next != EOF) {
+			this.expectWord("BRIDGES");
+			this.skipBlanks();
+			while (this.next == '(') {
+				this.advance();
+				int first = this.readInt();
+				this.expect(',');
+				int second = this.readInt();
+				this.expect('|');
+				boolean isDoubleBridge = this.readBoolean();
+				this.expect(')');
+				if (first < 0 || first >= islands.size() || second < 0 || second >= islands.size() || first == second) {
+					throw this.error("bridge ( " + first + ", " + second + " ) has no islands");
+				}
+				Island island1 = islands.get(first);
+				Island island2 = islands.get(second);
+				if (island1.getRow() != island2.getRow() && island1.getColumn() != island2.getColumn()) {
+					throw this.error("bridge ( " + first + ", " + second + " ) is not horizontal or vertical");
+				}
+				bridges.add(new Bridge(island1, island2, isDoubleBridge, true));
+				this.skipBlanks();
+			}
+			if (this.next != EOF) {
+				throw this.error("unexpected '" + (char) this.next + "'");
+			}
+		}
+		GameModel model = new GameModel();
+		model.setNrOfRows(nrOfRows);
+		model.setNrOfColumns(nrOfColumns);
+		model.setNrOfIslands(nrOfIslands);
+		model.setIslands(islands);
+		model.setBridges(bridges);
+		return model;
+	}
+
+	/**
+	 * Consumes the next character
+	 */
+	private void advance() throws IOException {
+		if (this.next == '\n') {
+			this.line++;
+		}
+		if (this.bytes != null) {
+			this.next = this.bytes.hasRemaining() ? this.bytes.get() & 0xFF : EOF;
+			return;
+		}
+		if (this.position == this.limit) {
+			this.limit = this.reader.read(this.buffer);
+			this.position = 0;
+			if (this.limit <= 0) {
+				this.limit = 0;
+				this.next = EOF;
+				return;
+			}
+		}
+		this.next = this.buffer[this.position++];
+	}
+
+	/**
+	 * Skips white space and comments, a comment starts with '#' and ends with
+	 * the line
+	 */
+	private void skipBlanks() throws IOException {
+		while (true) {
+			if (this.next == '#') {
+				while (this.next != '\n' && this.next != EOF) {
+					this.advance();
+				}
+			} else if (this.next == ' ' || this.next == '\t' || this.next == '\r' || this.next == '\n') {
+				this.advance();
+			} else {
+				return;
+			}
+		}
+	}
+
+	private void expect(char expected) throws IOException, GameFileFormatException {
+		this.skipBlanks();
+		if (this.next != expected) {
+			throw this.error("'" + expected + "' expected");
+		}
+		this.advance();
+	}
+
+	private void expectWord(String expected) throws IOException, GameFileFormatException {
+		this.skipBlanks();
+		for (int i = 0; i < expected.length(); i++) {
+			if (this.next != expected.charAt(i)) {
+				throw this.error(expected + " expected");
+			}
+			this.advance();
+		}
+		if (Character.isLetter(this.next)) {
+			throw this.error(expected + " expected");
+		}
+	}
+
+	private int readInt() throws IOException, GameFileFormatException {
+		this.skipBlanks();
+		boolean negative = this.next == '-';
+		if (negative) {
+			this.advance();
+		}
+		if (this.next < '0' || this.next > '9') {
+			throw this.error("number expected");
+		}
+		long value = 0;
+		while (this.next >= '0' && this.next <= '9') {
+			value = value * 10 + (this.next - '0');
+			if (value > Integer.MAX_VALUE) {
+				throw this.error("number too large");
+			}
+			this.advance();
+		}
+		return (int) (negative ? -value : value);
+	}
+
+	private boolean readBoolean() throws IOException, GameFileFormatException {
+		this.skipBlanks();
+		if (this.next == 't') {
+			this.expectWord("true");
+			return true;
+		}
+		this.expectWord("false");
+		return false;
+	}
+
+	private GameFileFormatException error(String message) {
+		return new GameFileFormatException("Invalid Syntax in line " + this.line + ": " + message);
+	}
+
+}
@@ -0,0 +1,211 @@
+package model;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import common.GameFileFormatException;
+
+/**
+ * Binary counterpart of the bgs file format, see {@link GameModelIO}. A game
+ * converted to binary and back yields the same bgs file.
+ * <p>
+ * The islands are kept in the order of {@link GameModelIO#FILE_ORDER}, the
+ * bridges are stored per edge of the {@link IslandGraph} of the islands in
+ * this order. The binary form consists of:
+ * <li>magic number and version
+ * <li>rows, columns and the number of islands
+ * <li>for every island the distance to the column of the previous island and,
+ * in the same column, the number of rows skipped since the previous island,
+ * otherwise its row
+ * <li>the capacities of the islands, two per byte
+ * <li>the number of edges with bridges and, if there are any, the number of
+ * bridges on every edge, four edges per byte
+ * <p>
+ * All numbers are written as variable length integers, so a puzzle without
+ * bridges takes a little more than one byte per island.
+ *
+ * @author grimm
+ *
+ */
+final class BinaryGameIO {
+	private static final int MAGIC = 0x4247424E;
+	private static final int VERSION = 1;
+	// the maximum number of bridges of an island, fits into four bits
+	private static final int MAX_CAPACITY = 8;
+
+	private BinaryGameIO() {
+	}
+
+	/**
+	 * Writes {@code model} in binary form to {@code out}, which is neither
+	 * buffered nor closed here.
+	 *
+	 * @param model a {@link GameModel}
+	 * @param out   the target of the binary game
+	 * @throws IOException              if writing fails
+	 * @throws IllegalArgumentException if a bridge does not connect neighbouring
+	 *                                  islands or two bridges share an edge, the
+	 *                                  binary form can not hold such a game
+	 */
+	static void write(GameModel model, OutputStream out) throws IOException {
+		Island[] islands = model.getIslands().toArray(new Island[0]);
+		Arrays.sort(islands, GameModelIO.FILE_ORDER);
+		DataOutputStream data = new DataOutputStream(out);
+		data.writeInt(MAGIC);
+		data.writeByte(VERSION);
+		writeVarLong(data, model.getNrOfRows());
+		writeVarLong(data, model.getNrOfColumns());
+		writeVarLong(data, islands.length);
+		int previousColumn = 0;
+		int previousRow = -1;
+		for (Island island : islands) {
+			writeVarLong(data, island.getColumn() - previousColumn);
+			if (island.getColumn() == previousColumn) {
+				writeVarLong(data, island.getRow() - previousRow - 1);
+			} else {
+				writeVarLong(data, island.getRow());
+			}
+			previousColumn = island.getColumn();
+			previousRow = island.getRow();
+		}
+		for (int i = 0; i < islands.length; i += 2) {
+			int high = i + 1 < islands.length ? islands[i + 1].getBridgeCapacity() : 0;
+			data.writeByte(islands[i].getBridgeCapacity() | high << 4);
+		}
+		List<Bridge> bridges = model.getBridges();
+		writeVarLong(data, bridges.size());
+		if (!bridges.isEmpty()) {
+			IslandGraph graph = IslandGraph.of(Arrays.asList(islands));
+			byte[] packed = new byte[(graph.getNrOfEdges() + 3) / 4];
+			for (Bridge bridge : bridges) {
+				int edge = graph.getEdge(bridge.getIsland1(), bridge.getIsland2());
+				if (edge == -1 || (packed[edge / 4] >>> edge % 4 * 2 & 3) != 0) {
+					throw new IllegalArgumentException(String.format("No binary form for the bridge between %s and %s",
+							bridge.getIsland1().toFileFormat(), bridge.getIsland2().toFileFormat()));
+				}
+				packed[edge / 4] |= (bridge.isDoubleBridge() ? 2 : 1) << edge % 4 * 2;
+			}
+			data.write(packed);
+		}
+		data.flush();
+	}
+
+	/**
+	 * Reads a game written by {@link #write(GameModel, OutputStream)} from the
+	 * remaining bytes of {@code bytes}. The position of {@code bytes} is left
+	 * behind the game.
+	 *
+	 * @param bytes the binary game, for example a mapped file
+	 * @return {@link GameModel} of a bridge game
+	 * @throws GameFileFormatException if the bytes are no valid game
+	 */
+	static GameModel read(ByteBuffer bytes) throws GameFileFormatException {
+		try {
+			if (bytes.getInt() != MAGIC || (bytes.get() & 0xFF) != VERSION) {
+				throw new GameFileFormatException("Not a binary bridges game");
+			}
+			int nrOfRows = readVarInt(bytes);
+			int nrOfColumns = readVarInt(bytes);
+			int nrOfIslands = readVarInt(bytes);
+			// every island takes at least two bytes
+			if (nrOfRows < 1 || nrOfColumns < 1 || nrOfIslands > bytes.remaining() / 2) {
+				throw new GameFileFormatException("Invalid board size in binary game");
+			}
+			int[] rows = new int[nrOfIslands];
+			int[] columns = new int[nrOfIslands];
+			int previousColumn = 0;
+			int previousRow = -1;
+			for (int i = 0; i < nrOfIslands; i++) {
+				long columnDistance = readVarInt(bytes);
+				long row = readVarInt(bytes);
+				if (columnDistance == 0) {
+					row += previousRow + 1;
+				}
+				long column = previousColumn + columnDistance;
+				if (row >= nrOfRows || column >= nrOfColumns) {
+					throw new GameFileFormatException("Island outside of the board in binary game");
+				}
+				rows[i] = (int) row;
+				columns[i] = (int) column;
+				previousColumn = columns[i];
+				previousRow = rows[i];
+			}
+			List<Island> islands = new ArrayList<Island>(nrOfIslands);
+			int packedCapacities = 0;
+			for (int i = 0; i < nrOfIslands; i++) {
+				if (i % 2 == 0) {
+					packedCapacities = bytes.get() & 0xFF;
+				}
+				int capacity = packedCapacities >>> i % 2 * 4 & 0xF;
+				if (capacity < 1 || capacity > MAX_CAPACITY) {
+					throw new GameFileFormatException("Invalid number of bridges in binary game " + capacity);
+				}
+				islands.add(new Island(rows[i], columns[i], capacity));
+			}
+			int nrOfBridges = readVarInt(bytes);
+			List<Bridge> bridges = new ArrayList<Bridge>(Math.min(nrOfBridges, 2 * nrOfIslands));
+			if (nrOfBridges > 0) {
+				IslandGraph graph = IslandGraph.of(islands);
+				byte[] packed = new byte[(graph.getNrOfEdges() + 3) / 4];
+				bytes.get(packed);
+				for (int e = 0; e < graph.getNrOfEdges(); e++) {
+					int count = packed[e / 4] >>> e % 4 * 2 & 3;
+					if (count == 3) {
+						throw new GameFileFormatException("Invalid number of bridges in binary game " + count);
+					}
+					if (count > 0) {
+						bridges.add(new Bridge(graph.getIsland(graph.getIsland1(e)), graph.getIsland(graph.getIsland2(e)),
+								count == 2, true));
+					}
+				}
+			}
+			if (bridges.size() != nrOfBridges) {
+				throw new GameFileFormatException("Invalid number of bridges in binary game " + nrOfBridges);
+			}
+			GameModel model = new GameModel();
+			model.setNrOfRows(nrOfRows);
+			model.setNrOfColumns(nrOfColumns);
+			model.setNrOfIslands(nrOfIslands);
+			model.setIslands(islands);
+			model.setBridges(bridges);
+			return model;
+		} catch (BufferUnderflowException e) {
+			throw new GameFileFormatException("Binary game is truncated");
+		}
+	}
+
+	static void writeVarLong(DataOutputStream out, long value) throws IOException {
+		while ((value & ~0x7FL) != 0) {
+			out.writeByte((int) (value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		out.writeByte((int) value);
+	}
+
+	static long readVarLong(ByteBuffer in) throws GameFileFormatException {
+		long value = 0;
+		for (int shift = 0; shift < 64; shift += 7) {
+			int b = in.get();
+			value |= (long) (b & 0x7F) << shift;
+			if ((b & 0x80) == 0) {
+				return value;
+			}
+		}
+		throw new GameFileFormatException("Malformed number in binary game");
+	}
+
+	static int readVarInt(ByteBuffer in) throws GameFileFormatException {
+		long value = readVarLong(in);
+		if (value < 0 || value > Integer.MAX_VALUE) {
+			throw new GameFileFormatException("Number out of range in binary game");
+		}
+		return (int) value;
+	}
+
+}
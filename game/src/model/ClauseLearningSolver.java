@@ -0,0 +1,533 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Conflict driven clause learning (CDCL) solver for formulas in conjunctive
+ * normal form.
+ * <p>
+ * Variables are numbered from {@code 0}, a literal is {@code 2 * variable} for
+ * the positive and {@code 2 * variable + 1} for the negative literal, see
+ * {@link #literal(int, boolean)}. The solver implements:
+ * <li>unit propagation with two watched literals per clause
+ * <li>learning of the first unique implication point clause on every conflict
+ * and non chronological backtracking
+ * <li>variable selection by activity (VSIDS) with phase saving
+ * <li>restarts after a number of conflicts following the Luby sequence
+ * <li>removal of the longer half of the learnt clauses after restarts
+ * <p>
+ * The solver is incremental: clauses may be added after {@link #solve()}
+ * returned, learnt clauses are kept.
+ *
+ * @author grimm
+ *
+ */
+final class ClauseLearningSolver {
+	private static final int UNASSIGNED = -1;
+	private static final int RESTART_BASE = 100;
+	private static final double ACTIVITY_DECAY = 0.95;
+
+	private int nrOfVariables;
+	// value of each variable: 0 false, 1 true or UNASSIGNED
+	private int[] values = new int[16];
+	private int[] levels = new int[16];
+	private int[] reasons = new int[16];
+	private boolean[] savedPhases = new boolean[16];
+	private boolean[] seen = new boolean[16];
+	private double[] activities = new double[16];
+	private double activityIncrement = 1;
+	// binary max heap of the variables by activity
+	private int[] heap = new int[16];
+	private int[] heapIndex = new int[16];
+	private int heapSize;
+
+	private final List<int[]> clauses = new ArrayList<int[]>();
+	private final List<Boolean> learnt = new ArrayList<Boolean>();
+	private int nrOfLearntClauses;
+	// clause indices watching each literal
+	private IntList[] watches = new IntList[32];
+
+	private int[] trail = new int[16];
+	private int trailSize;
+	private int propagationHead;
+	private final IntList levelStarts = new IntList();
+	private boolean consistent = true;
+
+	private final IntList learntClause = new IntList();
+	private long conflicts;
+	private long decisions;
+	private SearchMonitor monitor = new SearchMonitor();
+
+	/**
+	 * Growable list of {@code int}s
+	 */
+	private static final class IntList {
+		private int[] elements = new int[4];
+		private int size;
+
+		void add(int element) {
+			if (this.size == this.elements.length) {
+				this.elements = Arrays.copyOf(this.elements, this.size * 2);
+			}
+			this.elements[this.size++] = element;
+		}
+
+		int get(int index) {
+			return this.elements[index];
+		}
+
+		void set(int index, int element) {
+			this.elements[index] = element;
+		}
+
+		int size() {
+			return this.size;
+		}
+
+		void shrink(int size) {
+			this.size = size;
+		}
+	}
+
+	/**
+	 * Returns the literal of {@code variable}
+	 *
+	 * @param variable the variable
+	 * @param positive {@code true} for the positive literal
+	 */
+	static int literal(int variable, boolean positive) {
+		return positive ? 2 * variable : 2 * variable + 1;
+	}
+
+	/**
+	 * Sets the monitor which stops the search on interrupts and limits
+	 */
+	void setMonitor(SearchMonitor monitor) {
+		this.monitor = monitor;
+	}
+
+	/**
+	 * Returns the number of conflicts so far
+	 */
+	long getConflicts() {
+		return this.conflicts;
+	}
+
+	/**
+	 * Returns the number of decisions so far
+	 */
+	long getDecisions() {
+		return this.decisions;
+	}
+
+	/**
+	 * Adds a new variable
+	 *
+	 * @return the number of the variable
+	 */
+	int newVariable() {
+		int variable = this.nrOfVariables++;
+		if (variable == this.values.length) {
+			int capacity = 2 * variable;
+			this.values = Arrays.copyOf(this.values, capacity);
+			this.levels = Arrays.copyOf(this.levels, capacity);
+			this.reasons = Arrays.copyOf(this.reasons, capacity);
+			this.savedPhases = Arrays.copyOf(this.savedPhases, capacity);
+			this.seen = Arrays.copyOf(this.seen, capacity);
+			this.activities = Arrays.copyOf(this.activities, capacity);
+			this.heap = Arrays.copyOf(this.heap, capacity);
+			this.heapIndex = Arrays.copyOf(this.heapIndex, capacity);
+			this.trail = Arrays.copyOf(this.trail, capacity);
+			this.watches = Arrays.copyOf(this.watches, 2 * capacity);
+		}
+		this.values[variable] = UNASSIGNED;
+		this.reasons[variable] = -1;
+		this.watches[2 * variable] = new IntList();
+		this.watches[2 * variable + 1] = new IntList();
+		this.heapInsert(variable);
+		return variable;
+	}
+
+	/**
+	 * Returns the value of {@code variable} in the model found by the last
+	 * successful {@link #solve()}
+	 */
+	boolean getValue(int variable) {
+		return this.values[variable] == 1;
+	}
+
+	/**
+	 * Adds the clause consisting of {@code literals}. The search is reset to
+	 * decision level zero first.
+	 *
+	 * @return {@code false} if the formula became unsatisfiable
+	 */
+	boolean addClause(int... literals) {
+		this.backtrack(0);
+		if (!this.consistent) {
+			return false;
+		}
+		IntList simplified = new IntList();
+		for (int lit : literals) {
+			int value = this.valueOf(lit);
+			if (value == 1) {
+				// clause is satisfied at level zero
+				return true;
+			}
+			boolean duplicate = false;
+			for (int k = 0; k < simplified.size(); k++) {
+				if (simplified.get(k) == lit) {
+					duplicate = true;
+				} else if (simplified.get(k) == (lit ^ 1)) {
+					return true;
+				}
+			}
+			if (value == UNASSIGNED && !duplicate) {
+				simplified.add(lit);
+			}
+		}
+		if (simplified.size() == 0) {
+			this.consistent = false;
+		} else if (simplified.size() == 1) {
+			this.assign(simplified.get(0), -1);
+			this.consistent = this.propagate() == -1;
+		} else {
+			this.attachClause(Arrays.copyOf(simplified.elements, simplified.size()), false);
+		}
+		return this.consistent;
+	}
+
+	private int attachClause(int[] clause, boolean isLearnt) {
+		int index = this.clauses.size();
+		this.clauses.add(clause);
+		this.learnt.add(isLearnt);
+		this.watches[clause[0]].add(index);
+		this.watches[clause[1]].add(index);
+		if (isLearnt) {
+			this.nrOfLearntClauses++;
+		}
+		return index;
+	}
+
+	/**
+	 * Searches a model of the clauses.
+	 *
+	 * @return {@code true} if a model was found, see {@link #getValue(int)},
+	 *         {@code false} if the clauses are unsatisfiable
+	 * @throws SearchAbortedException if the monitor stops the search
+	 */
+	boolean solve() {
+		if (!this.consistent) {
+			return false;
+		}
+		// repeated solves, as after adding cuts, may end without a conflict
+		this.monitor.check();
+		int restart = 1;
+		long conflictLimit = RESTART_BASE * luby(restart);
+		long conflictsOfRestart = 0;
+		while (true) {
+			int conflict = this.propagate();
+			if (conflict != -1) {
+				this.conflicts++;
+				conflictsOfRestart++;
+				if (this.levelStarts.size() == 0) {
+					this.consistent = false;
+					return false;
+				}
+				this.learn(conflict);
+				this.activityIncrement /= ACTIVITY_DECAY;
+				// analysing a conflict costs far more than the check
+				this.monitor.check();
+			} else if (conflictsOfRestart >= conflictLimit) {
+				this.backtrack(0);
+				restart++;
+				conflictLimit = RESTART_BASE * luby(restart);
+				conflictsOfRestart = 0;
+				if (this.nrOfLearntClauses > this.clauses.size() - this.nrOfLearntClauses + 1000) {
+					this.reduceLearntClauses();
+				}
+			} else {
+				int variable = this.pickBranchVariable();
+				if (variable == -1) {
+					return true;
+				}
+				this.decisions++;
+				this.levelStarts.add(this.trailSize);
+				this.assign(literal(variable, this.savedPhases[variable]), -1);
+			}
+		}
+	}
+
+	/**
+	 * Returns the {@code i}-th element (starting at 1) of the Luby sequence 1, 1,
+	 * 2, 1, 1, 2, 4, ...
+	 */
+	static long luby(int i) {
+		int k = 1;
+		while ((1L << k) - 1 < i) {
+			k++;
+		}
+		while (i != (1L << k) - 1) {
+			i -= (1 << (k - 1)) - 1;
+			k = 1;
+			while ((1L << k) - 1 < i) {
+				k++;
+			}
+		}
+		return 1L << (k - 1);
+	}
+
+	private int valueOf(int lit) {
+		int value = this.values[lit >> 1];
+		return value == UNASSIGNED ? UNASSIGNED : value ^ (lit & 1);
+	}
+
+	private void assign(int lit, int reason) {
+		int variable = lit >> 1;
+		this.values[variable] = (lit & 1) ^ 1;
+		this.levels[variable] = this.levelStarts.size();
+		this.reasons[variable] = reason;
+		this.trail[this.trailSize++] = lit;
+	}
+
+	/**
+	 * Propagates the literals assigned since the last call.
+	 *
+	 * @return the index of a conflicting clause or {@code -1}
+	 */
+	private int propagate() {
+		while (this.propagationHead < this.trailSize) {
+			int falseLit = this.trail[this.propagationHead++] ^ 1;
+			IntList watchList = this.watches[falseLit];
+			int i = 0;
+			int j = 0;
+			int size = watchList.size();
+			while (i < size) {
+				int index = watchList.get(i++);
+				int[] clause = this.clauses.get(index);
+				if (clause == null) {
+					// removed clause, drop the watch
+					continue;
+				}
+				if (clause[0] == falseLit) {
+					clause[0] = clause[1];
+					clause[1] = falseLit;
+				}
+				if (this.valueOf(clause[0]) == 1) {
+					watchList.set(j++, index);
+					continue;
+				}
+				boolean moved = false;
+				for (int k = 2; k < clause.length; k++) {
+					if (this.valueOf(clause[k]) != 0) {
+						clause[1] = clause[k];
+						clause[k] = falseLit;
+						this.watches[clause[1]].add(index);
+						moved = true;
+						break;
+					}
+				}
+				if (moved) {
+					continue;
+				}
+				watchList.set(j++, index);
+				if (this.valueOf(clause[0]) == 0) {
+					while (i < size) {
+						watchList.set(j++, watchList.get(i++));
+					}
+					watchList.shrink(j);
+					this.propagationHead = this.trailSize;
+					return index;
+				}
+				this.assign(clause[0], index);
+			}
+			watchList.shrink(j);
+		}
+		return -1;
+	}
+
+	/**
+	 * Learns the first unique implication point clause of {@code conflict},
+	 * backtracks and asserts the clause.
+	 */
+	private void learn(int conflict) {
+		int currentLevel = this.levelStarts.size();
+		this.learntClause.shrink(0);
+		// placeholder for the asserting literal
+		this.learntClause.add(0);
+		int pathCount = 0;
+		int lit = -1;
+		int index = this.trailSize - 1;
+		int clauseIndex = conflict;
+		do {
+			int[] clause = this.clauses.get(clauseIndex);
+			for (int k = lit == -1 ? 0 : 1; k < clause.length; k++) {
+				int variable = clause[k] >> 1;
+				if (!this.seen[variable] && this.levels[variable] > 0) {
+					this.seen[variable] = true;
+					this.bumpActivity(variable);
+					if (this.levels[variable] >= currentLevel) {
+						pathCount++;
+					} else {
+						this.learntClause.add(clause[k]);
+					}
+				}
+			}
+			while (!this.seen[this.trail[index] >> 1]) {
+				index--;
+			}
+			lit = this.trail[index--];
+			clauseIndex = this.reasons[lit >> 1];
+			this.seen[lit >> 1] = false;
+			pathCount--;
+		} while (pathCount > 0);
+		this.learntClause.set(0, lit ^ 1);
+
+		// backtrack to the second highest level of the clause
+		int backtrackLevel = 0;
+		int second = 1;
+		for (int k = 1; k < this.learntClause.size(); k++) {
+			int variable = this.learntClause.get(k) >> 1;
+			this.seen[variable] = false;
+			if (this.levels[variable] > backtrackLevel) {
+				backtrackLevel = this.levels[variable];
+				second = k;
+			}
+		}
+		this.backtrack(backtrackLevel);
+		if (this.learntClause.size() == 1) {
+			this.assign(this.learntClause.get(0), -1);
+		} else {
+			int[] clause = Arrays.copyOf(this.learntClause.elements, this.learntClause.size());
+			int tmp = clause[1];
+			clause[1] = clause[second];
+			clause[second] = tmp;
+			this.assign(clause[0], this.attachClause(clause, true));
+		}
+	}
+
+	private void backtrack(int level) {
+		if (this.levelStarts.size() <= level) {
+			return;
+		}
+		int start = this.levelStarts.get(level);
+		for (int t = this.trailSize - 1; t >= start; t--) {
+			int variable = this.trail[t] >> 1;
+			this.savedPhases[variable] = this.values[variable] == 1;
+			this.values[variable] = UNASSIGNED;
+			this.reasons[variable] = -1;
+			if (this.heapIndex[variable] == -1) {
+				this.heapInsert(variable);
+			}
+		}
+		this.trailSize = start;
+		this.propagationHead = start;
+		this.levelStarts.shrink(level);
+	}
+
+	/**
+	 * Removes the longer half of the learnt clauses. Must be called on decision
+	 * level zero, where no learnt clause is needed as a reason.
+	 */
+	private void reduceLearntClauses() {
+		IntList lengths = new IntList();
+		for (int c = 0; c < this.clauses.size(); c++) {
+			if (this.learnt.get(c) && this.clauses.get(c) != null) {
+				lengths.add(this.clauses.get(c).length);
+			}
+		}
+		int[] sorted = Arrays.copyOf(lengths.elements, lengths.size());
+		Arrays.sort(sorted);
+		int medianLength = sorted[sorted.length / 2];
+		for (int c = 0; c < this.clauses.size(); c++) {
+			int[] clause = this.clauses.get(c);
+			if (this.learnt.get(c) && clause != null && clause.length > medianLength) {
+				this.clauses.set(c, null);
+				this.nrOfLearntClauses--;
+			}
+		}
+		// reasons on level zero are never analysed
+		for (int t = 0; t < this.trailSize; t++) {
+			this.reasons[this.trail[t] >> 1] = -1;
+		}
+	}
+
+	private int pickBranchVariable() {
+		while (this.heapSize > 0) {
+			int variable = this.heapRemoveMax();
+			if (this.values[variable] == UNASSIGNED) {
+				return variable;
+			}
+		}
+		return -1;
+	}
+
+	private void bumpActivity(int variable) {
+		this.activities[variable] += this.activityIncrement;
+		if (this.activities[variable] > 1e100) {
+			for (int v = 0; v < this.nrOfVariables; v++) {
+				this.activities[v] *= 1e-100;
+			}
+			this.activityIncrement *= 1e-100;
+		}
+		if (this.heapIndex[variable] != -1) {
+			this.heapUp(this.heapIndex[variable]);
+		}
+	}
+
+	private void heapInsert(int variable) {
+		this.heap[this.heapSize] = variable;
+		this.heapIndex[variable] = this.heapSize;
+		this.heapSize++;
+		this.heapUp(this.heapSize - 1);
+	}
+
+	private int heapRemoveMax() {
+		int max = this.heap[0];
+		this.heapSize--;
+		this.heapIndex[max] = -1;
+		if (this.heapSize > 0) {
+			int last = this.heap[this.heapSize];
+			this.heap[0] = last;
+			this.heapIndex[last] = 0;
+			this.heapDown(0);
+		}
+		return max;
+	}
+
+	private void heapUp(int position) {
+		int variable = this.heap[position];
+		while (position > 0) {
+			int parent = (position - 1) / 2;
+			if (this.activities[this.heap[parent]] >= this.activities[variable]) {
+				break;
+			}
+			this.heap[position] = this.heap[parent];
+			this.heapIndex[this.heap[position]] = position;
+			position = parent;
+		}
+		this.heap[position] = variable;
+		this.heapIndex[variable] = position;
+	}
+
+	private void heapDown(int position) {
+		int variable = this.heap[position];
+		while (2 * position + 1 < this.heapSize) {
+			int child = 2 * position + 1;
+			if (child + 1 < this.heapSize && this.activities[this.heap[child + 1]] > this.activities[this.heap[child]]) {
+				child++;
+			}
+			if (this.activities[this.heap[child]] <= this.activities[variable]) {
+				break;
+			}
+			this.heap[position] = this.heap[child];
+			this.heapIndex[this.heap[position]] = position;
+			position = child;
+		}
+		this.heap[position] = variable;
+		this.heapIndex[variable] = position;
+	}
+
+}
@@ -0,0 +1,112 @@
+package model;
+
+import java.util.Arrays;
+
+/**
+ * Deduces bridges which are required to connect all islands. The game is seen
+ * as a graph of still possible edges (edges which can carry at least one more
+ * or already carry a bridge). If the removal of such an edge would disconnect
+ * the islands, every solution has to build at least one bridge on it.
+ * <p>
+ * These edges are the bridges (in the graph theoretical sense) of the graph of
+ * possible edges and are found with Tarjan's algorithm in {@code O(n + m)}.
+ * The depth first search is iterative and works on preallocated arrays, hence
+ * one instance can be reused for any number of invocations on the same
+ * {@link IslandGraph}.
+ *
+ * @author grimm
+ *
+ */
+final class ConnectivityDeduction {
+	private final IslandGraph graph;
+	// discovery time of each island, 0 if not visited yet
+	private final int[] discovery;
+	// lowest discovery time reachable from the subtree of an island
+	private final int[] low;
+	// edge used to discover an island, -1 for the root
+	private final int[] parentEdge;
+	// position in the incident edges of an island the search continues from
+	private final int[] nextIncident;
+	private final int[] stack;
+
+	ConnectivityDeduction(IslandGraph graph) {
+		this.graph = graph;
+		int n = graph.getNrOfIslands();
+		this.discovery = new int[n];
+		this.low = new int[n];
+		this.parentEdge = new int[n];
+		this.nextIncident = new int[n];
+		this.stack = new int[n];
+	}
+
+	/**
+	 * Finds all edges which do not carry a bridge yet ({@code lower[e] == 0}) but
+	 * must carry at least one bridge so that all islands can be connected. An edge
+	 * is possible if {@code upper[e] > 0}.
+	 *
+	 * @param lower        minimum number of bridges on each edge (e.g. the bridges
+	 *                     already build)
+	 * @param upper        maximum number of bridges on each edge
+	 * @param forcedEdges  array with at least one element per edge the forced
+	 *                     edges are written to
+	 * @return the number of forced edges written to {@code forcedEdges} or
+	 *         {@code -1} if the islands can not be connected anymore by the
+	 *         possible edges
+	 */
+	int findForcedEdges(int[] lower, int[] upper, int[] forcedEdges) {
+		int n = this.graph.getNrOfIslands();
+		if (n < 2) {
+			return 0;
+		}
+		Arrays.fill(this.discovery, 0);
+		int time = 0;
+		int nrOfForcedEdges = 0;
+		int stackSize = 0;
+
+		this.discovery[0] = ++time;
+		this.low[0] = time;
+		this.parentEdge[0] = -1;
+		this.nextIncident[0] = 0;
+		this.stack[stackSize++] = 0;
+		while (stackSize > 0) {
+			int island = this.stack[stackSize - 1];
+			int[] incident = this.graph.getIncidentEdges(island);
+			if (this.nextIncident[island] < incident.length) {
+				int edge = incident[this.nextIncident[island]++];
+				if (upper[edge] == 0 || edge == this.parentEdge[island]) {
+					continue;
+				}
+				int neighbour = this.graph.getOtherIsland(edge, island);
+				if (this.discovery[neighbour] == 0) {
+					// tree edge, descend
+					this.discovery[neighbour] = ++time;
+					this.low[neighbour] = time;
+					this.parentEdge[neighbour] = edge;
+					this.nextIncident[neighbour] = 0;
+					this.stack[stackSize++] = neighbour;
+				} else {
+					// back edge
+					this.low[island] = Math.min(this.low[island], this.discovery[neighbour]);
+				}
+			} else {
+				// all edges of the island are explored, return to the parent
+				stackSize--;
+				int edge = this.parentEdge[island];
+				if (edge != -1) {
+					int parent = this.graph.getOtherIsland(edge, island);
+					this.low[parent] = Math.min(this.low[parent], this.low[island]);
+					if (this.low[island] > this.discovery[parent] && lower[edge] == 0) {
+						// no back edge from the subtree passes this edge
+						forcedEdges[nrOfForcedEdges++] = edge;
+					}
+				}
+			}
+		}
+		if (time != n) {
+			// not all islands are reachable with the possible edges
+			return -1;
+		}
+		return nrOfForcedEdges;
+	}
+
+}
@@ -0,0 +1,282 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import model.BacktrackingSolver.EdgeOrder;
+
+/**
+ * Solves a bridges game by splitting the undecided edges into independent
+ * regions and searching each region in parallel.
+ * <p>
+ * After propagation two undecided edges interact if they belong to the same
+ * island or cross each other. The connected groups of interacting edges are
+ * the regions. A region is searched with probing on its own copy of the state, the
+ * undecided edges of the other regions keep all their options. Hence the
+ * connectivity rule only prunes assignments which can not be connected
+ * whatever the other regions choose and a region without solution proves that
+ * the game has no solution.
+ * <p>
+ * The combined solution of the regions satisfies the capacity and crossing
+ * rules, but the regions may have picked bridges which leave the islands
+ * disconnected. In this case the regions owning an undecided edge between two
+ * disconnected parts are merged into one region, which is searched again while
+ * the other regions keep their solutions. Every round merges at least two
+ * regions, so the search ends after at most as many rounds as there are
+ * regions.
+ *
+ * @author grimm
+ *
+ */
+final class DecomposingSolver {
+	private final SolverState state;
+	private final IslandGraph graph;
+	private SearchMonitor monitor = new SearchMonitor();
+	private int nrOfRounds;
+
+	/**
+	 * @param state the state to search from, is modified by the solver
+	 */
+	DecomposingSolver(SolverState state) {
+		this.state = state;
+		this.graph = state.getGraph();
+	}
+
+	/**
+	 * Sets the monitor shared by the searches of all regions
+	 *
+	 * @param monitor the monitor of the search
+	 */
+	void setMonitor(SearchMonitor monitor) {
+		this.monitor = monitor;
+	}
+
+	/**
+	 * Searches for a solution, the regions are searched on {@code executor}. The
+	 * calling thread waits for the regions, so the executor must not depend on it
+	 * to run the region searches.
+	 *
+	 * @param executor executes the search of each region
+	 * @return the number of bridges on each edge of the {@link IslandGraph} or
+	 *         {@code null} if the game has no solution
+	 * @throws InterruptedException if the calling thread is interrupted while
+	 *                              waiting for the regions
+	 */
+	int[] solve(ExecutorService executor) throws InterruptedException {
+		if (!new Propagator(this.state).propagate()) {
+			return null;
+		}
+		List<int[]> regions = this.findRegions();
+		if (regions.size() <= 1) {
+			return this.solveAsWhole();
+		}
+		int[] combined = this.state.getSolution();
+		List<int[]> unsolved = regions;
+		while (true) {
+			this.nrOfRounds++;
+			if (!this.solveRegions(unsolved, combined, executor)) {
+				// no region assignment can be completed to a solution
+				return null;
+			}
+			int[] forcedEdges = new int[this.graph.getNrOfEdges()];
+			if (new ConnectivityDeduction(this.graph).findForcedEdges(combined, combined, forcedEdges) != -1) {
+				return combined;
+			}
+			// the regions do not fit together, merge the regions which can connect
+			// the parts and search the merged region again
+			int[] merged = this.mergeDisconnectedRegions(regions, combined);
+			if (merged == null) {
+				return null;
+			}
+			unsolved = List.of(merged);
+		}
+	}
+
+	/**
+	 * @return how often regions were searched by the last
+	 *         {@link #solve(ExecutorService)}, more than once if regions had to be
+	 *         merged
+	 */
+	int getNrOfRounds() {
+		return this.nrOfRounds;
+	}
+
+	/**
+	 * Searches {@code regions} in parallel and writes their values into
+	 * {@code combined}
+	 *
+	 * @return {@code false} if a region has no solution
+	 */
+	private boolean solveRegions(List<int[]> regions, int[] combined, ExecutorService executor)
+			throws InterruptedException {
+		List<Callable<int[]>> regionSearches = new ArrayList<Callable<int[]>>();
+		for (int[] region : regions) {
+			SolverState regionState = new SolverState(this.state);
+			regionSearches.add(() -> {
+				BacktrackingSolver solver = new BacktrackingSolver(regionState, EdgeOrder.MOST_CONSTRAINED, true,
+						true, 0);
+				solver.setDecisionEdges(region);
+				solver.setMonitor(this.monitor);
+				return solver.solve();
+			});
+		}
+		List<Future<int[]>> results = executor.invokeAll(regionSearches);
+		for (int r = 0; r < regions.size(); r++) {
+			int[] regionSolution;
+			try {
+				regionSolution = results.get(r).get();
+			} catch (ExecutionException e) {
+				if (e.getCause() instanceof RuntimeException) {
+					throw (RuntimeException) e.getCause();
+				}
+				throw new IllegalStateException(e.getCause());
+			}
+			if (regionSolution == null) {
+				return false;
+			}
+			for (int e : regions.get(r)) {
+				combined[e] = regionSolution[e];
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Merges the regions with an undecided edge between two parts of the islands
+	 * connected by {@code combined}. Only these edges can connect the parts, and
+	 * as every region was searched with the edges of the others open, each part
+	 * has such edges of at least two regions. The merged region replaces them in
+	 * {@code regions}.
+	 *
+	 * @return the merged region or {@code null} if no edge can connect the parts,
+	 *         so the game has no solution
+	 */
+	private int[] mergeDisconnectedRegions(List<int[]> regions, int[] combined) {
+		int[] part = new int[this.graph.getNrOfIslands()];
+		for (int i = 0; i < part.length; i++) {
+			part[i] = i;
+		}
+		for (int e = 0; e < this.graph.getNrOfEdges(); e++) {
+			if (combined[e] > 0) {
+				union(part, this.graph.getIsland1(e), this.graph.getIsland2(e));
+			}
+		}
+		List<int[]> involved = new ArrayList<int[]>();
+		for (int[] region : regions) {
+			for (int e : region) {
+				if (find(part, this.graph.getIsland1(e)) != find(part, this.graph.getIsland2(e))) {
+					involved.add(region);
+					break;
+				}
+			}
+		}
+		if (involved.isEmpty()) {
+			return null;
+		}
+		if (involved.size() == 1) {
+			// can not happen with a complete connectivity rule, search all regions
+			// together to be safe
+			involved = new ArrayList<int[]>(regions);
+		}
+		int[] merged = new int[involved.stream().mapToInt(region -> region.length).sum()];
+		int length = 0;
+		for (int[] region : involved) {
+			System.arraycopy(region, 0, merged, length, region.length);
+			length += region.length;
+		}
+		regions.removeAll(involved);
+		regions.add(merged);
+		return merged;
+	}
+
+	private int[] solveAsWhole() {
+		BacktrackingSolver solver = new BacktrackingSolver(this.state, EdgeOrder.MOST_CONSTRAINED, true, true, 0);
+		solver.setMonitor(this.monitor);
+		return solver.solve();
+	}
+
+	/**
+	 * Groups the undecided edges into regions of interacting edges with a union
+	 * find over the edges.
+	 *
+	 * @return the edges of each region
+	 */
+	List<int[]> findRegions() {
+		int nrOfEdges = this.graph.getNrOfEdges();
+		int[] parent = new int[nrOfEdges];
+		for (int e = 0; e < nrOfEdges; e++) {
+			parent[e] = e;
+		}
+		for (int island = 0; island < this.graph.getNrOfIslands(); island++) {
+			int first = -1;
+			for (int e : this.graph.getIncidentEdges(island)) {
+				if (!this.state.isDecided(e)) {
+					if (first == -1) {
+						first = e;
+					} else {
+						union(parent, first, e);
+					}
+				}
+			}
+		}
+		for (int e = 0; e < nrOfEdges; e++) {
+			if (!this.state.isDecided(e)) {
+				for (int crossing : this.graph.getCrossingEdges(e)) {
+					if (!this.state.isDecided(crossing)) {
+						union(parent, e, crossing);
+					}
+				}
+			}
+		}
+		// collect the edges of each region, regions are numbered by their first edge
+		int[] regionOf = new int[nrOfEdges];
+		int[] regionSize = new int[nrOfEdges];
+		int nrOfRegions = 0;
+		int[] regionIndex = new int[nrOfEdges];
+		Arrays.fill(regionIndex, -1);
+		for (int e = 0; e < nrOfEdges; e++) {
+			if (!this.state.isDecided(e)) {
+				int root = find(parent, e);
+				if (regionIndex[root] == -1) {
+					regionIndex[root] = nrOfRegions++;
+				}
+				regionOf[e] = regionIndex[root];
+				regionSize[regionOf[e]]++;
+			}
+		}
+		List<int[]> regions = new ArrayList<int[]>(nrOfRegions);
+		for (int r = 0; r < nrOfRegions; r++) {
+			regions.add(new int[regionSize[r]]);
+			regionSize[r] = 0;
+		}
+		for (int e = 0; e < nrOfEdges; e++) {
+			if (!this.state.isDecided(e)) {
+				regions.get(regionOf[e])[regionSize[regionOf[e]]++] = e;
+			}
+		}
+		return regions;
+	}
+
+	private static int find(int[] parent, int e) {
+		while (parent[e] != e) {
+			// path halving
+			parent[e] = parent[parent[e]];
+			e = parent[e];
+		}
+		return e;
+	}
+
+	private static void union(int[] parent, int e1, int e2) {
+		int root1 = find(parent, e1);
+		int root2 = find(parent, e2);
+		if (root1 != root2) {
+			parent[root1] = root2;
+		}
+	}
+
+}
@@ -0,0 +1,147 @@
+package model;
+
+import java.util.Collections;
+
+import common.DifficultyBand;
+import common.DifficultyRating;
+import common.RuleTier;
+import model.BacktrackingSolver.EdgeOrder;
+
+/**
+ * Rates the difficulty of a bridges game by solving it with tiers of rules of
+ * increasing difficulty, see {@link RuleTier}. A harder tier is only applied
+ * when all easier tiers are stuck, after it made progress solving restarts
+ * with the easiest tier. When even probing is stuck the remaining edges are
+ * searched.
+ * <p>
+ * All tiers work on the bounds of a {@link SolverState}, so rating a game
+ * costs about as much as solving it.
+ *
+ * @author grimm
+ *
+ */
+final class DifficultyRater {
+	private final IslandGraph graph;
+
+	/**
+	 * @param graph the graph of the islands of the game to rate
+	 */
+	DifficultyRater(IslandGraph graph) {
+		this.graph = graph;
+	}
+
+	/**
+	 * Solves the game without any bridges and records the tiers used.
+	 *
+	 * @return the rating or {@code null} if the game has no solution
+	 */
+	DifficultyRating rate() {
+		return this.rate(null, new SearchMonitor());
+	}
+
+	/**
+	 * Rates the game only as far as needed to decide whether it falls into
+	 * {@code band}: rating stops as soon as a tier harder than the band allows is
+	 * needed or the score exceeds the band, before the expensive tiers run.
+	 *
+	 * @param band    the band the game has to fall into, {@code null} for any
+	 * @param monitor limits probing and search
+	 * @return the rating or {@code null} if the game has no solution or is not in
+	 *         the band
+	 * @throws SearchAbortedException if the monitor stops probing or search
+	 */
+	DifficultyRating rate(DifficultyBand band, SearchMonitor monitor) {
+		SolverState state = SolverState.of(this.graph, Collections.emptyList());
+		Propagator propagator = new Propagator(state);
+		long[] tierUses = new long[RuleTier.values().length];
+		long score = 0;
+		long rounds = 0;
+		while (!isDecided(state)) {
+			if (band != null && score > band.getMaxScore()) {
+				return null;
+			}
+			// the trail only grows by narrowings which are not undone
+			int trailSize = state.getTrailSize();
+			rounds++;
+			if (!propagator.propagateCapacities()) {
+				return null;
+			}
+			if (trailSize != state.getTrailSize()) {
+				tierUses[RuleTier.CAPACITY.ordinal()]++;
+				score += RuleTier.CAPACITY.getWeight();
+				continue;
+			}
+			if (exceeds(band, RuleTier.ISOLATION)) {
+				return null;
+			}
+			rounds++;
+			if (!propagator.propagateIsolation()) {
+				return null;
+			}
+			if (trailSize != state.getTrailSize()) {
+				tierUses[RuleTier.ISOLATION.ordinal()]++;
+				score += RuleTier.ISOLATION.getWeight();
+				continue;
+			}
+			if (exceeds(band, RuleTier.CONNECTIVITY)) {
+				return null;
+			}
+			rounds++;
+			if (!propagator.propagateConnectivity()) {
+				return null;
+			}
+			if (trailSize != state.getTrailSize()) {
+				tierUses[RuleTier.CONNECTIVITY.ordinal()]++;
+				score += RuleTier.CONNECTIVITY.getWeight();
+				continue;
+			}
+			if (exceeds(band, RuleTier.PROBING)) {
+				return null;
+			}
+			if (!propagator.probe(monitor)) {
+				return null;
+			}
+			if (trailSize != state.getTrailSize()) {
+				tierUses[RuleTier.PROBING.ordinal()]++;
+				score += RuleTier.PROBING.getWeight();
+				continue;
+			}
+			if (exceeds(band, RuleTier.SEARCH)) {
+				return null;
+			}
+			BacktrackingSolver solver = new BacktrackingSolver(state, EdgeOrder.MOST_CONSTRAINED, true, true, 0);
+			solver.setMonitor(monitor);
+			int[] solution = solver.solve();
+			tierUses[RuleTier.SEARCH.ordinal()] = solver.getNodes();
+			rounds += solver.getPropagationRounds();
+			if (solution == null) {
+				return null;
+			}
+			break;
+		}
+		// the last tier may have decided all edges without checking connectivity
+		if (!propagator.propagate()) {
+			return null;
+		}
+		rounds += propagator.getRounds();
+		DifficultyRating rating = new DifficultyRating(tierUses, rounds, tierUses[RuleTier.SEARCH.ordinal()]);
+		if (band != null && !band.contains(rating)) {
+			return null;
+		}
+		return rating;
+	}
+
+	private static boolean exceeds(DifficultyBand band, RuleTier tier) {
+		return band != null && tier.compareTo(band.getHardestTier()) > 0;
+	}
+
+	private static boolean isDecided(SolverState state) {
+		for (int e = 0; e < state.getGraph().getNrOfEdges(); e++) {
+			if (!state.isDecided(e)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+}
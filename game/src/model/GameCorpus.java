@@ -0,0 +1,178 @@
+package model;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Optional;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import common.GameFileFormatException;
+
+/**
+ * All bgs files of a directory tree as a {@link Stream} of loaded games, so a
+ * whole corpus can be validated, rated or solved in one parallel pipeline.
+ * <p>
+ * The files are listed once and sorted by path, a parallel stream splits the
+ * list evenly between its threads. Each file is read and parsed by the thread
+ * that consumes it: small files are read into a buffer, large ones are mapped,
+ * and both are parsed by {@link BgsParser} without decoding them to a
+ * {@code String}. A file which is no valid game is passed on with its error
+ * instead of ending the stream.
+ *
+ * @author grimm
+ *
+ */
+public final class GameCorpus {
+	/** ending of the files belonging to a corpus */
+	public static final String FILE_ENDING = "bgs";
+	// files larger than this are mapped instead of read
+	private static final long MAP_THRESHOLD = 1 << 20;
+
+	private GameCorpus() {
+	}
+
+	/**
+	 * A file of the corpus with either its game or the reason why it is no valid
+	 * game
+	 */
+	public static final class Entry {
+		private final Path path;
+		private final GameModel game;
+		private final GameFileFormatException error;
+
+		private Entry(Path path, GameModel game, GameFileFormatException error) {
+			this.path = path;
+			this.game = game;
+			this.error = error;
+		}
+
+		public Path getPath() {
+			return this.path;
+		}
+
+		/**
+		 * @return the game, empty if the file is no valid game
+		 */
+		public Optional<GameModel> getGame() {
+			return Optional.ofNullable(this.game);
+		}
+
+		/**
+		 * @return why the file is no valid game, empty if it is valid
+		 */
+		public Optional<GameFileFormatException> getError() {
+			return Optional.ofNullable(this.error);
+		}
+	}
+
+	/**
+	 * Lists the bgs files below {@code root} and returns a stream loading them
+	 * in order of their paths. Reading a file fails with an
+	 * {@link UncheckedIOException}.
+	 *
+	 * @param root     the directory tree of the corpus
+	 * @param parallel whether the stream is parallel
+	 * @return the stream of the files and their games
+	 * @throws IOException if the directory tree can not be listed
+	 */
+	public static Stream<Entry> load(Path root, boolean parallel) throws IOException {
+		return StreamSupport.stream(spliterator(root), parallel);
+	}
+
+	/**
+	 * Lists the bgs files below {@code root}, see {@link #load(Path, boolean)}
+	 *
+	 * @param root the directory tree of the corpus
+	 * @return a spliterator loading the files in order of their paths
+	 * @throws IOException if the directory tree can not be listed
+	 */
+	public static Spliterator<Entry> spliterator(Path root) throws IOException {
+		Path[] files;
+		try (Stream<Path> paths = Files.walk(root)) {
+			files = paths.filter(path -> path.getFileName().toString().endsWith("." + FILE_ENDING))
+					.filter(Files::isRegularFile).sorted().toArray(Path[]::new);
+		}
+		return new CorpusSpliterator(files, 0, files.length);
+	}
+
+	/**
+	 * Reads and parses a single file
+	 */
+	static Entry read(Path file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			long size = channel.size();
+			ByteBuffer bytes;
+			if (size > MAP_THRESHOLD) {
+				bytes = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+			} else {
+				bytes = ByteBuffer.allocate((int) size);
+				while (bytes.hasRemaining() && channel.read(bytes) >= 0) {
+					// read until the buffer is full or the file ends
+				}
+				bytes.flip();
+			}
+			return new Entry(file, BgsParser.parse(bytes), null);
+		} catch (GameFileFormatException e) {
+			return new Entry(file, null, e);
+		}
+	}
+
+	/**
+	 * Loads the files of a range of the sorted file list, splits in halves
+	 */
+	private static final class CorpusSpliterator implements Spliterator<Entry> {
+		private final Path[] files;
+		private int next;
+		private final int end;
+
+		CorpusSpliterator(Path[] files, int next, int end) {
+			this.files = files;
+			this.next = next;
+			this.end = end;
+		}
+
+		@Override
+		public boolean tryAdvance(Consumer<? super Entry> action) {
+			if (this.next == this.end) {
+				return false;
+			}
+			Entry entry;
+			try {
+				entry = read(this.files[this.next++]);
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+			action.accept(entry);
+			return true;
+		}
+
+		@Override
+		public Spliterator<Entry> trySplit() {
+			int middle = (this.next + this.end) >>> 1;
+			if (middle == this.next) {
+				return null;
+			}
+			Spliterator<Entry> prefix = new CorpusSpliterator(this.files, this.next, middle);
+			this.next = middle;
+			return prefix;
+		}
+
+		@Override
+		public long estimateSize() {
+			return this.end - this.next;
+		}
+
+		@Override
+		public int characteristics() {
+			return ORDERED | SIZED | SUBSIZED | NONNULL | IMMUTABLE;
+		}
+	}
+
+}
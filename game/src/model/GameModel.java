@@ -1,25 +1,48 @@
 package model;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collections;
 import java.util.Comparator;
-import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.Set;
+import java.util.SplittableRandom;
 import java.util.Stack;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Flow;
+import java.util.concurrent.Future;
 import java.util.concurrent.ThreadLocalRandom;
+import java.util.random.RandomGenerator;
 import java.util.stream.Collector;
 import java.util.stream.Collectors;
-import java.util.stream.IntStream;
 
 import common.BuildOrRemoveBridgeRequest;
+import common.CancellationToken;
 import common.CardinalPoints;
+import common.DifficultyBand;
+import common.DifficultyRating;
 import common.GameFileFormatException;
 import common.GameObserver;
+import common.PuzzleSeeds;
+import common.SolveStatus;
+import common.SolverLimits;
+import common.SolverProgressListener;
+import model.BacktrackingSolver.EdgeOrder;
+import model.BacktrackingSolver.Frontier;
 
 /**
  * This class holds the current state of a Bridges game and the logic to change
@@ -39,6 +62,10 @@ public class GameModel implements GameModelnterface {
 	private List<Island> islands = new ArrayList<Island>();
 	private List<Bridge> bridges = new ArrayList<Bridge>();
 	private List<GameObserver> observer = new ArrayList<GameObserver>();
+	// deductions of the current state, null until a hint is requested
+	private HintCache hintCache;
+	// number of changes the observers were notified of
+	private long modificationCount;
 	
 
 	public int getNrOfRows() {
@@ -58,11 +85,35 @@ public class GameModel implements GameModelnterface {
 	}
 
 	private void updateGameOservers() {
+		// islands or all bridges changed, nothing of the cache can be reused
+		this.hintCache = null;
+		this.notifyGameObservers();
+	}
+
+	/**
+	 * Notifies the observers after the bridge between {@code island1} and
+	 * {@code island2} was build or removed. Only the hints affected by this
+	 * bridge are dropped.
+	 */
+	private void updateGameOservers(Island island1, Island island2) {
+		if (this.hintCache != null) {
+			this.hintCache.invalidate(island1, island2);
+		}
+		this.notifyGameObservers();
+	}
+
+	private void notifyGameObservers() {
+		this.modificationCount++;
 		for (GameObserver o : this.observer) {
 			o.updateGame();
 		}
 	}
 
+	@Override
+	public long getModificationCount() {
+		return this.modificationCount;
+	}
+
 	public void registerObserver(GameObserver o) {
 		this.observer.add(o);
 	}
@@ -90,22 +141,65 @@ public class GameModel implements GameModelnterface {
 
 	void setIslands(List<Island> islands) {
 		this.islands = islands;
+		this.hintCache = null;
 	}
 
 	void setBridges(List<Bridge> bridges) {
 		this.bridges = bridges;
+		this.hintCache = null;
+	}
+
+	/**
+	 * Creates a copy of this game with its own islands and bridges. Observers are
+	 * not copied.
+	 * 
+	 * @return a independent copy of the game state
+	 */
+	GameModel copy() {
+		GameModel copy = new GameModel();
+		copy.nrOfRows = this.nrOfRows;
+		copy.nrOfColumns = this.nrOfColumns;
+		copy.nrOfIslands = this.nrOfIslands;
+		Map<Island, Island> copiedIslands = new IdentityHashMap<Island, Island>();
+		for (Island island : this.islands) {
+			Island copiedIsland = new Island(island.getRow(), island.getColumn(), island.getBridgeCapacity());
+			copiedIsland.setCurrentNrOfBridges(island.getCurrentNrOfBridges());
+			copiedIslands.put(island, copiedIsland);
+			copy.islands.add(copiedIsland);
+		}
+		for (Bridge bridge : this.bridges) {
+			Bridge copiedBridge = new Bridge(copiedIslands.get(bridge.getIsland1()),
+					copiedIslands.get(bridge.getIsland2()), bridge.isDoubleBridge(), false);
+			copiedBridge.setModifiedLatest(bridge.isModifiedLatest());
+			copy.bridges.add(copiedBridge);
+		}
+		return copy;
 	}
 
 	@Override
 	public void loadGame(List<String> fileLines) throws GameFileFormatException {
 		GameModel newGameModel = GameModelIO.loadGame(fileLines);
+		this.replaceGame(newGameModel);
+
+	}
+
+	@Override
+	public void loadGame(Reader reader) throws IOException, GameFileFormatException {
+		this.replaceGame(GameModelIO.loadGame(reader));
+	}
+
+	@Override
+	public void loadGame(ByteBuffer bytes) throws GameFileFormatException {
+		this.replaceGame(GameModelIO.loadGame(bytes));
+	}
+
+	private void replaceGame(GameModel newGameModel) {
 		this.islands = newGameModel.islands;
 		this.bridges = newGameModel.bridges;
 		this.nrOfColumns = newGameModel.nrOfColumns;
 		this.nrOfIslands = newGameModel.nrOfIslands;
 		this.nrOfRows = newGameModel.nrOfRows;
 		this.updateGameOservers();
-
 	}
 
 	@Override
@@ -114,6 +208,21 @@ public class GameModel implements GameModelnterface {
 
 	}
 
+	@Override
+	public void writeGame(Writer out) throws IOException {
+		GameModelIO.writeGame(this, out);
+	}
+
+	@Override
+	public void writeBinaryGame(OutputStream out) throws IOException {
+		BinaryGameIO.write(this, out);
+	}
+
+	@Override
+	public void loadBinaryGame(ByteBuffer bytes) throws GameFileFormatException {
+		this.replaceGame(BinaryGameIO.read(bytes));
+	}
+
 	@Override
 	public boolean buildOrRemoveBridge(BuildOrRemoveBridgeRequest r) {
 		return this.buildOrRemoveBridge(r, true);
@@ -166,7 +275,7 @@ public class GameModel implements GameModelnterface {
 				// remove (double bridge -> single bridge; single bridge -> no bridge)
 				GameModelUtils.removeBridge(possibleBridge.get(), this.bridges);
 				// game state changed notify observers
-				this.updateGameOservers();
+				this.updateGameOservers(island, targetIsland);
 			}
 			return true;
 		}
@@ -202,7 +311,7 @@ public class GameModel implements GameModelnterface {
 					// add bridge to game
 					this.bridges.add(newBridge);
 					// notify observers game state changed
-					this.updateGameOservers();
+					this.updateGameOservers(island, targetIsland);
 				}
 				return true;
 			} else {
@@ -225,7 +334,7 @@ public class GameModel implements GameModelnterface {
 					bridge.setModifiedLatest(true);
 					bridge.getIsland1().setCurrentNrOfBridges(bridge.getIsland1().getCurrentNrOfBridges() + 1);
 					bridge.getIsland2().setCurrentNrOfBridges(bridge.getIsland2().getCurrentNrOfBridges() + 1);
-					this.updateGameOservers();
+					this.updateGameOservers(island, targetIsland);
 				}
 				return true;
 			} else {
@@ -264,213 +373,378 @@ public class GameModel implements GameModelnterface {
 
 
 	public boolean createNewGame(int nrOfRows, int nrOfColumns, int nrOfIslands) {
-		// randomly create coordinated for the first island
-		int initalIslandRow = ThreadLocalRandom.current().nextInt(0, nrOfRows);
-		int initalIslandColumn = ThreadLocalRandom.current().nextInt(0, nrOfColumns);
-		// when creating a new island we set the bridge capacity to the maximum (8)
-		// -> whenever we add a bridge successfully where this island is part the
-		// current bridge capacity is
-		// decreased accordingly
-		Island initalIsland = new Island(initalIslandRow, initalIslandColumn, 8);
-
-		// In newGameIslands, we track which island(s) were added
-		ArrayList<Island> newGameIslands = new ArrayList<Island>();
-		newGameIslands.add(initalIsland);
-		// In newGameBridges, we track which bridge(s) were added
-		ArrayList<Bridge> newGameBridges = new ArrayList<Bridge>();
-
-		boolean additionSucessfull = true;
-		// add new islands until number of wanted islands is reached or abort if it was
-		// not possible to add a new island
-		while (newGameIslands.size() != nrOfIslands && additionSucessfull) {
-			System.out.println(newGameIslands.size());
-			// create a index of all islands, which are added to the game
-			// shuffle index, so that we can traverse the islands randomly, while trying to
-			// add a new island to it
-			List<Integer> randomTraversal = IntStream.range(0, newGameIslands.size()).boxed()
-					.collect(Collectors.toList());
-			Collections.shuffle(randomTraversal);
-			additionSucessfull = false;
-			// traverse randomized index (hence islands are traversed randomly)
-			for (int index : randomTraversal) {
-				Island potentialNewIsland = newGameIslands.get(index);
-				//
-				Map<CardinalPoints, List<Island>> possibleDirections = this.getFeasibeDirectionIslandMap(
-						potentialNewIsland, newGameIslands, newGameBridges, nrOfRows, nrOfColumns, true);
-				if (possibleDirections.size() == 0) {
-					// map is empty, not possible to build a bridge and create a new island in any
-					// direction.
-					// no new bridges can be build starting from this island
-					// continue in island traversal
-					continue;
-				} else {
-					// at least in one direction a bridge can be build
-					// pick direction randomly(via position)
-					int randomDirection = ThreadLocalRandom.current().nextInt(0, possibleDirections.size());
-					// possible list of island in one direction, where it is possible to build a
-					// bridge starting from the current position
-					List<Island> islandsInDirection = new ArrayList<List<Island>>(possibleDirections.values())
-							.get(randomDirection);
-					// randomly pick island where the bridge will build to
-					int islandNR = ThreadLocalRandom.current().nextInt(0, islandsInDirection.size());
-					Island islandToAdd = islandsInDirection.get(islandNR);
-					// add island to available islands
-					newGameIslands.add(islandToAdd);
-					// create a new bridge between the islands, and randomly choose if it is a
-					// single or double bridge
-					Bridge newBridge = new Bridge(potentialNewIsland, islandToAdd,
-							ThreadLocalRandom.current().nextBoolean(),true);
-					newBridge.setModifiedLatest(true);
-					for (Bridge b : newGameBridges) {
-						b.setModifiedLatest(false);
-					}
-					newGameBridges.add(newBridge);
-					// addition was success full, break so that a new island can be added
-					additionSucessfull = true;
-					break;
+		return this.createNewGame(nrOfRows, nrOfColumns, nrOfIslands, ThreadLocalRandom.current());
+	}
+
+	@Override
+	public boolean createNewGame(int nrOfRows, int nrOfColumns, int nrOfIslands, long seed) {
+		return this.createNewGame(nrOfRows, nrOfColumns, nrOfIslands, new SplittableRandom(seed));
+	}
+
+	@Override
+	public boolean createNewGame(int nrOfRows, int nrOfColumns, int nrOfIslands, long seed, DifficultyBand band) {
+		return this.replaceIslands(nrOfRows, nrOfColumns, nrOfIslands,
+				new PuzzleGenerator(nrOfRows, nrOfColumns, new SplittableRandom(seed)).generate(nrOfIslands, band));
+	}
+
+	@Override
+	public boolean createUniqueGame(int nrOfRows, int nrOfColumns, int nrOfIslands, long seed) {
+		return this.replaceIslands(nrOfRows, nrOfColumns, nrOfIslands,
+				new PuzzleGenerator(nrOfRows, nrOfColumns, new SplittableRandom(seed)).generateUnique(nrOfIslands));
+	}
 
+	@Override
+	public boolean createNewGame(int nrOfRows, int nrOfColumns, int nrOfIslands, long seed,
+			ExecutorService executor) {
+		int nrOfAttempts = Math.max(2, Runtime.getRuntime().availableProcessors());
+		List<Future<Optional<List<Island>>>> attempts = new ArrayList<Future<Optional<List<Island>>>>();
+		for (int a = 0; a < nrOfAttempts; a++) {
+			// the first attempt creates the same game as without racing
+			long attemptSeed = a == 0 ? seed : PuzzleSeeds.of(seed, a);
+			attempts.add(executor.submit(
+					() -> new PuzzleGenerator(nrOfRows, nrOfColumns, new SplittableRandom(attemptSeed))
+							.generate(nrOfIslands)));
+		}
+		try {
+			// the first successful attempt in order wins, so the game only depends on
+			// the seed
+			for (Future<Optional<List<Island>>> attempt : attempts) {
+				Optional<List<Island>> newGameIslands = attempt.get();
+				if (newGameIslands.isPresent()) {
+					return this.replaceIslands(nrOfRows, nrOfColumns, nrOfIslands, newGameIslands);
 				}
 			}
+			return false;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return false;
+		} catch (ExecutionException e) {
+			throw new IllegalStateException(e.getCause());
+		} finally {
+			for (Future<Optional<List<Island>>> attempt : attempts) {
+				attempt.cancel(true);
+			}
+		}
+	}
 
+	@Override
+	public boolean createLargeGame(int nrOfRows, int nrOfColumns, int nrOfIslands, long seed,
+			ExecutorService executor) {
+		try {
+			Optional<List<Island>> newGameIslands = new TiledPuzzleGenerator(nrOfRows, nrOfColumns, seed)
+					.generate(nrOfIslands, executor);
+			return this.replaceIslands(nrOfRows, nrOfColumns, newGameIslands.map(List::size).orElse(0),
+					newGameIslands);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return false;
 		}
-		if (newGameIslands.size() == nrOfIslands && additionSucessfull) {
-			for (Island isl : newGameIslands) {
-				isl.setBridgeCapacity(isl.getCurrentNrOfBridges());
-				isl.setCurrentNrOfBridges(0);
-			}
-			this.nrOfColumns = nrOfColumns;
-			this.nrOfIslands = nrOfIslands;
-			this.nrOfRows = nrOfRows;
-			this.bridges = new ArrayList<Bridge>();
-			this.islands = newGameIslands;
+	}
 
-			this.updateGameOservers();
-			return true;
-		} else {
+	private boolean createNewGame(int nrOfRows, int nrOfColumns, int nrOfIslands, RandomGenerator random) {
+		return this.replaceIslands(nrOfRows, nrOfColumns, nrOfIslands,
+				new PuzzleGenerator(nrOfRows, nrOfColumns, random).generate(nrOfIslands));
+	}
+
+	/**
+	 * Writes a game too large to be held in memory directly to a bgs file,
+	 * reproducibly from {@code seed}. The board is generated in bands of
+	 * columns, only one band is kept in memory at a time.
+	 * 
+	 * @param file        the bgs file to write
+	 * @param nrOfIslands the number of islands, at least one per band of
+	 *                    columns
+	 * @param seed        seed of all random decisions
+	 * @return the number of islands written, {@code 0} if the board could not be
+	 *         generated
+	 * @throws IOException if the file can not be written
+	 */
+	public static long writeLargeGame(Path file, int nrOfRows, int nrOfColumns, long nrOfIslands, long seed)
+			throws IOException {
+		return new StreamingPuzzleGenerator(nrOfRows, nrOfColumns, new SplittableRandom(seed)).write(file,
+				nrOfIslands);
+	}
+
+	private boolean replaceIslands(int nrOfRows, int nrOfColumns, int nrOfIslands,
+			Optional<List<Island>> newGameIslands) {
+		if (newGameIslands.isEmpty()) {
 			return false;
 		}
+		this.nrOfColumns = nrOfColumns;
+		this.nrOfIslands = nrOfIslands;
+		this.nrOfRows = nrOfRows;
+		this.bridges = new ArrayList<Bridge>();
+		this.islands = newGameIslands.get();
 
+		this.updateGameOservers();
+		return true;
 	}
 
-	private Map<CardinalPoints, List<Island>> getFeasibeDirectionIslandMap(Island islandBridgeStart,
-			List<Island> islands, ArrayList<Bridge> newGameBridges, int nrOfRows, int nrOfColumns,
-			boolean limitBridgeLength) {
-		// get directions of island where a bridge exists already (no new bridge can be
-		// build here)
-		Set<CardinalPoints> directionsWithBridge = GameModelUtils.getBridgeDirectionsOfIsland(islandBridgeStart,
-				newGameBridges);
-		Map<CardinalPoints, List<Island>> result = new HashMap<CardinalPoints, List<Island>>();
-		// iterate over all cardinal directions
-		for (CardinalPoints direction : CardinalPoints.values())
-			// if a in a direction a bridge is already build, no new bridge can be added
-			if (!directionsWithBridge.contains(direction)) {
-				// get all feasible islands (with respect to the current game constraints) where
-				// a bridge could be built to
-				List<Island> feasibeCandidatesInDirections = getPossibleIslandsInDirection(direction, islandBridgeStart,
-						newGameBridges, islands, limitBridgeLength ? 1 : nrOfColumns, nrOfColumns, nrOfRows);
-				if (!feasibeCandidatesInDirections.isEmpty()) {
-					// add to result if there are feasible candidates
-					result.put(direction, feasibeCandidatesInDirections);
-				}
-			}
-		return result;
-
-	}
-
-	private List<Island> getPossibleIslandsInDirection(CardinalPoints direction, Island islandBridgeStart,
-			List<Bridge> currentBridges, List<Island> currentIslands, int limit, int nrOfColumns, int nrOfRows) {
-		// coordinates of starting island
-		int islandRow = islandBridgeStart.getRow();
-		int islandColumn = islandBridgeStart.getColumn();
-		// get neighbours of island in all directions (if present, no matter if there is
-		// a bridge between or not)
-		Map<CardinalPoints, Optional<Island>> closessNeighbour = GameModelUtils.getNeighbours(islandBridgeStart,
-				currentIslands);
-		// get island in a specific direction (empty if no neighbour in that direction)
-		// any island further away can't be a neighbour..
-		Optional<Island> closestN = closessNeighbour.get(direction);
-
-		int[] range = null;
-		if (direction == CardinalPoints.WEST) {
-			int rangeRestrictionW = closestN.isPresent() ? closestN.get().getColumn() : 0;
-			range = IntStream.iterate(islandColumn - 2, n -> n - 2).limit(limit).filter(n -> n >= rangeRestrictionW)
-					.toArray();
-		} else if (direction == CardinalPoints.EAST) {
-			int rangeRestrictionE = closestN.isPresent() ? closestN.get().getColumn() : nrOfColumns;
-			range = IntStream.iterate(islandColumn + 2, n -> n + 2).limit(limit).filter(n -> n < rangeRestrictionE)
-					.toArray();
-		} else if (direction == CardinalPoints.NORTH) {
-			int rangeRestrictionN = closestN.isPresent() ? closestN.get().getRow() : 0;
-			range = IntStream.iterate(islandRow - 2, n -> n - 2).limit(limit).filter(n -> n >= rangeRestrictionN)
-					.toArray();
-		} else if (direction == CardinalPoints.SOUTH) {
-			int rangeRestrictionS = closestN.isPresent() ? closestN.get().getRow() : nrOfRows;
-			range = IntStream.iterate(islandRow + 2, n -> n + 2).limit(limit).filter(n -> n < rangeRestrictionS)
-					.toArray();
-		} else {
-			throw new IllegalArgumentException();
 
+	@Override
+	public boolean solveNextBridge() {
+		HintCache hints = this.getHintCache();
+		int edge = hints.getNextEdge();
+		if (edge == -1) {
+			return false;
 		}
+		IslandGraph graph = hints.getGraph();
+		return this.buildBridgeBetweenIslands(graph.getIsland(graph.getIsland1(edge)),
+				graph.getIsland(graph.getIsland2(edge)), true, true);
+	}
 
-		List<Island> islandsInDirection = new ArrayList<Island>();
+	@Override
+	public Optional<BuildOrRemoveBridgeRequest> getHint(int row, int column) {
+		HintCache hints = this.getHintCache();
+		int island = hints.getIslandAt(row, column);
+		if (island == -1) {
+			return Optional.empty();
+		}
+		int edge = hints.getHintEdge(island);
+		if (edge == -1) {
+			return Optional.empty();
+		}
+		CardinalPoints direction = hints.getGraph().getDirection(edge, island);
+		return Optional.of(new BuildOrRemoveBridgeRequest(column, row, direction, false));
+	}
 
-		for (int i : range) {
-			Island potentialIsland;
-			if (direction == CardinalPoints.WEST || direction == CardinalPoints.EAST) {
-				potentialIsland = new Island(islandRow, i, 8);
-			} else {
-				potentialIsland = new Island(i, islandColumn, 8);
+	private HintCache getHintCache() {
+		if (this.hintCache == null) {
+			this.hintCache = new HintCache(this);
+		}
+		return this.hintCache;
+	}
+
+	/**
+	 * Finds an edge which has to carry at least one more bridge, because
+	 * otherwise the islands could not be connected anymore.
+	 * 
+	 * @param graph the graph of the islands of this game
+	 * @return an edge of {@code graph} on which a bridge can be build or
+	 *         {@code -1} if connectivity does not force any bridge
+	 */
+	int deduceForcedEdge(IslandGraph graph) {
+		if (this.islands.size() < 2) {
+			return -1;
+		}
+		int[] bridgeCounts = graph.getBridgeCounts(this.bridges);
+		int[] maximumBridgeCounts = graph.getMaximumBridgeCounts(bridgeCounts);
+		int[] forcedEdges = new int[graph.getNrOfEdges()];
+		int nrOfForcedEdges = new ConnectivityDeduction(graph).findForcedEdges(bridgeCounts, maximumBridgeCounts,
+				forcedEdges);
+		for (int i = 0; i < nrOfForcedEdges; i++) {
+			Island island1 = graph.getIsland(graph.getIsland1(forcedEdges[i]));
+			Island island2 = graph.getIsland(graph.getIsland2(forcedEdges[i]));
+			if (this.buildBridgeBetweenIslands(island1, island2, false, true)) {
+				return forcedEdges[i];
+			}
+		}
+		return -1;
+	}
+
+	@Override
+	public CompletableFuture<Boolean> solveNextBridge(ExecutorService executor, SolverLimits limits,
+			Executor applier) {
+		// a deduced bridge or a bridge of the cached solution is found at once
+		if (this.solveNextBridge()) {
+			return CompletableFuture.completedFuture(true);
+		}
+		HintCache hints = this.getHintCache();
+		if (hints.getSolution().isPresent()) {
+			return CompletableFuture.completedFuture(this.buildBridgeOfSolution(hints.getGraph(), hints.getSolution().get()));
+		}
+		// the portfolio works on a snapshot, the game is only touched by the applier
+		PortfolioSolver portfolio = new PortfolioSolver(this);
+		List<Island> solvedIslands = this.islands;
+		return CompletableFuture.supplyAsync(() -> {
+			try {
+				return portfolio.solve(executor, limits);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return Optional.<int[]>empty();
+			}
+		}, executor).thenApplyAsync(solution -> {
+			if (solution.isEmpty() || this.islands != solvedIslands) {
+				// no solution in time or another game was started meanwhile
+				return false;
 			}
-			boolean valid = true;
-			for (Bridge bridge : currentBridges) {
-				if (GameModelUtils.isIslandInBridgeInervall(potentialIsland, bridge)) {
-					valid = false;
-					break;
+			HintCache currentHints = this.getHintCache();
+			int[] bridgeCounts = currentHints.getGraph().getBridgeCounts(this.bridges);
+			for (int e = 0; e < bridgeCounts.length; e++) {
+				if (bridgeCounts[e] > solution.get()[e]) {
+					// the player left the solution while it was searched
+					return false;
 				}
 			}
-			if (valid && GameModelUtils.isBridgeBuildable(islandBridgeStart, potentialIsland, currentBridges)) {
-				islandsInDirection.add(potentialIsland);
+			currentHints.setSolution(solution.get());
+			return this.buildBridgeOfSolution(currentHints.getGraph(), solution.get());
+		}, applier);
+	}
+
+	/**
+	 * Builds a bridge of {@code solution} which is not build yet
+	 */
+	private boolean buildBridgeOfSolution(IslandGraph graph, int[] solution) {
+		int[] bridgeCounts = graph.getBridgeCounts(this.bridges);
+		for (int e = 0; e < bridgeCounts.length; e++) {
+			if (solution[e] > bridgeCounts[e]) {
+				return this.buildBridgeBetweenIslands(graph.getIsland(graph.getIsland1(e)),
+						graph.getIsland(graph.getIsland2(e)), true, true);
 			}
 		}
-		return islandsInDirection;
+		return false;
+	}
+
+	@Override
+	public SolveStatus solve(SolverLimits limits, CancellationToken token, SolverProgressListener listener) {
+		return this.search(IslandGraph.of(this.islands), null, 0, limits, token, listener, null, null);
+	}
+
+	@Override
+	public SolveStatus solve(SolverLimits limits, CancellationToken token, SolverProgressListener listener,
+			Path checkpointFile, Duration checkpointInterval) throws IOException {
+		// checkpoints refer to the islands in the order of the bgs file
+		IslandGraph graph = IslandGraph
+				.of(this.islands.stream().sorted(GameModelIO.FILE_ORDER).collect(Collectors.toList()));
+		try {
+			return this.search(graph, null, 0, limits, token, listener, checkpointFile, checkpointInterval);
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+	}
+
+	@Override
+	public SolveStatus resumeSolve(Path checkpointFile, SolverLimits limits, CancellationToken token,
+			SolverProgressListener listener, Duration checkpointInterval)
+			throws IOException, GameFileFormatException {
+		SolverCheckpoint checkpoint = SolverCheckpoint.read(checkpointFile);
+		this.replaceGame(checkpoint.getBoard());
+		try {
+			return this.search(checkpoint.getGraph(), checkpoint.getFrontier(), checkpoint.getNodes(), limits, token,
+					listener, checkpointFile, checkpointInterval);
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		} catch (IllegalArgumentException e) {
+			throw new GameFileFormatException("Checkpoint does not fit its game: " + e.getMessage());
+		}
+	}
 
+	/**
+	 * Searches a solution from the bridges which are currently build and applies
+	 * it to the game.
+	 * 
+	 * @param graph              the graph of the islands of this game
+	 * @param frontier           the frontier to resume from, {@code null} to
+	 *                           start at the root
+	 * @param previousNodes      nodes visited before the frontier was taken
+	 * @param checkpointFile     file the checkpoints are written to, {@code null}
+	 *                           for no checkpoints. The file is deleted when the
+	 *                           search completes.
+	 * @param checkpointInterval time between two checkpoints
+	 * @throws UncheckedIOException if a checkpoint can not be written
+	 */
+	private SolveStatus search(IslandGraph graph, Frontier frontier, long previousNodes, SolverLimits limits,
+			CancellationToken token, SolverProgressListener listener, Path checkpointFile,
+			Duration checkpointInterval) {
+		SolverState state = SolverState.of(graph, this.bridges);
+		BacktrackingSolver solver = new BacktrackingSolver(state, EdgeOrder.MOST_CONSTRAINED, true, true, 0);
+		SearchMonitor monitor = new SearchMonitor(limits, token, listener);
+		solver.setMonitor(monitor);
+		if (frontier != null) {
+			solver.resumeFrom(frontier);
+		}
+		if (checkpointFile != null) {
+			solver.setCheckpointHandler(f -> {
+				try {
+					new SolverCheckpoint(this, graph, f, previousNodes + solver.getNodes()).write(checkpointFile);
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			}, checkpointInterval.toNanos());
+		}
+		int[] solution;
+		try {
+			solution = solver.solve();
+		} catch (SearchAbortedException e) {
+			return e.getStatus();
+		} finally {
+			monitor.reportFinished(state);
+		}
+		if (checkpointFile != null) {
+			try {
+				Files.deleteIfExists(checkpointFile);
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+		if (solution == null) {
+			return SolveStatus.NO_SOLUTION;
+		}
+		this.applySolution(graph, solution);
+		return SolveStatus.SOLVED;
 	}
 
+	@Override
+	public Optional<DifficultyRating> rateDifficulty() {
+		return Optional.ofNullable(new DifficultyRater(IslandGraph.of(this.islands)).rate());
+	}
 
 	@Override
-	public boolean solveNextBridge() {
+	public Flow.Publisher<BuildOrRemoveBridgeRequest> publishSolverSteps(Executor executor) {
+		return new SolverStepPublisher(this, executor);
+	}
+
+	/**
+	 * Replaces all bridges by the bridges of {@code solution} and notifies the
+	 * observers.
+	 * 
+	 * @param graph    the graph of the islands of this game
+	 * @param solution the number of bridges on each edge of {@code graph}
+	 */
+	private void applySolution(IslandGraph graph, int[] solution) {
 		for (Island island : this.islands) {
-			if (this.solveNextBridge1(island)) {
-				return true;
+			island.setCurrentNrOfBridges(0);
+		}
+		List<Bridge> solvedBridges = new ArrayList<Bridge>();
+		for (int e = 0; e < solution.length; e++) {
+			if (solution[e] > 0) {
+				solvedBridges.add(new Bridge(graph.getIsland(graph.getIsland1(e)),
+						graph.getIsland(graph.getIsland2(e)), solution[e] == 2, true));
 			}
 		}
-		return false;
-
+		this.bridges = solvedBridges;
+		this.updateGameOservers();
 	}
 
-	private boolean solveNextBridge1(Island island) {
+	/**
+	 * Applies the local rules to {@code island} without changing the game:
+	 * <li>only one reachable neighbour has capacity left
+	 * <li>the capacity requires a bridge to every reachable neighbour
+	 * <li>the capacity requires a double bridge to every reachable neighbour
+	 * 
+	 * @param island A specific {@link Island} of this game
+	 * @return the neighbour to which the next bridge of {@code island} has to be
+	 *         build, empty if no rule applies
+	 */
+	Optional<Island> deduceNextBridge(Island island) {
 		int bridgeCapacity = island.getBridgeCapacity();
-		List<Island> reachibleNeighbours = GameModelUtils.getReachibleNeighbours(island, this.islands, this.bridges);
-		List<Island> allNeighbours = reachibleNeighbours;
+		List<Island> allNeighbours = GameModelUtils.getReachibleNeighbours(island, this.islands, this.bridges);
 		int numberOfPossibleNeighbours = allNeighbours.size();
-		boolean bridgeAdded = false;
-		if (allNeighbours.stream().filter(i -> i.getCurrentBridgeCapacity() != 0).collect(Collectors.toList())
-				.size() == 1) {
-			Island nIsland = allNeighbours.stream().filter(i -> i.getCurrentBridgeCapacity() != 0)
-					.collect(Collectors.toList()).get(0);
-			if (!(this.nrOfIslands > 2 && island.getBridgeCapacity() == 1 & nIsland.getBridgeCapacity() == 1)) {
-				bridgeAdded = this.buildBridgeBetweenIslands(island, nIsland, true, true);
-
+		List<Island> neighboursWithCapacity = allNeighbours.stream().filter(i -> i.getCurrentBridgeCapacity() != 0)
+				.collect(Collectors.toList());
+		if (neighboursWithCapacity.size() == 1) {
+			Island nIsland = neighboursWithCapacity.get(0);
+			if (!(this.nrOfIslands > 2 && island.getBridgeCapacity() == 1 & nIsland.getBridgeCapacity() == 1)
+					&& this.buildBridgeBetweenIslands(island, nIsland, false, true)) {
+				return Optional.of(nIsland);
 			}
 
 		} else if (2 * numberOfPossibleNeighbours - 1 == bridgeCapacity) {
 			for (Island neighbourIsland : allNeighbours) {
 				if (!(this.nrOfIslands > 2
-						&& island.getBridgeCapacity() == 1 & neighbourIsland.getBridgeCapacity() == 1)) {
-					bridgeAdded = this.buildBridgeBetweenIslands(island, neighbourIsland, true, false);
-					if (bridgeAdded) {
-						break;
-					}
+						&& island.getBridgeCapacity() == 1 & neighbourIsland.getBridgeCapacity() == 1)
+						&& this.buildBridgeBetweenIslands(island, neighbourIsland, false, false)) {
+					return Optional.of(neighbourIsland);
 				}
 
 			}
@@ -478,17 +752,14 @@ public class GameModel implements GameModelnterface {
 		} else if (2 * numberOfPossibleNeighbours == bridgeCapacity) {
 			for (Island neighbourIsland : allNeighbours) {
 				if (!(this.nrOfIslands > 2
-						&& island.getBridgeCapacity() == 2 & neighbourIsland.getBridgeCapacity() == 2)) {
-					bridgeAdded = this.buildBridgeBetweenIslands(island, neighbourIsland, true, true);
-					bridgeAdded = this.buildBridgeBetweenIslands(island, neighbourIsland, true, true);
-					if (bridgeAdded) {
-						break;
-					}
+						&& island.getBridgeCapacity() == 2 & neighbourIsland.getBridgeCapacity() == 2)
+						&& this.buildBridgeBetweenIslands(island, neighbourIsland, false, true)) {
+					return Optional.of(neighbourIsland);
 				}
 
 			}
 		}
-		return bridgeAdded;
+		return Optional.empty();
 
 	}
 
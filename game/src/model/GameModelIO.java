@@ -1,9 +1,21 @@
 package model;
 
-import java.util.ArrayList;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 import java.util.Comparator;
+import java.util.IdentityHashMap;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
 
 import common.GameFileFormatException;
 
@@ -38,6 +50,13 @@ import common.GameFileFormatException;
  *
  */
 class GameModelIO {
+	/**
+	 * Order of the islands in a bgs file, bridges refer to the islands by their
+	 * index in this order
+	 */
+	static final Comparator<Island> FILE_ORDER = Comparator.comparing(Island::getColumn)
+			.thenComparing(Island::getRow);
+
 	/**
 	 * Converts the file lines to a {@link GameModel}, if syntax is incorrect a
 	 * {@link GameFileFormatException} is thrown. Comments and empty lines are
@@ -51,106 +70,37 @@ class GameModelIO {
 	 */
 
 	static GameModel loadGame(List<String> fileLines) throws GameFileFormatException {
-		GameModel newGameModel = new GameModel();
-		ArrayList<String> filteredLines = new ArrayList<String>();
-		for (String line : fileLines) {
-			if (!(line.isEmpty() || line.startsWith("#"))) {
-				filteredLines.add(line);
-			}
-		}
-		// check fields are present
-		int index = filteredLines.indexOf("FIELD");
-		if (index != 0) {
-			throw new GameFileFormatException();
-		}
-		index = filteredLines.indexOf("ISLANDS");
-		if (index != 2) {
-			throw new GameFileFormatException();
-		}
-		int islandDefinitionEnd = filteredLines.size();
-		int indexBridges = filteredLines.indexOf("BRIDGES");
-		if (indexBridges == -1) {
-			// no bridges defined
-
-		} else if (indexBridges > 3) {
-			// everything okay
-			islandDefinitionEnd = indexBridges;
-		} else {
-			throw new GameFileFormatException();
-		}
-		parseFieldDefinition(filteredLines.get(1), newGameModel);
-		for (int i = 3; i < islandDefinitionEnd; i++) {
-			parseIslandDefinition(filteredLines.get(i), newGameModel.getIslands());
-		}
-		if (indexBridges != -1) {
-			for (int i = indexBridges + 1; i < filteredLines.size(); i++) {
-				parseBridgeDefinition(filteredLines.get(i), newGameModel.getIslands(), newGameModel.getBridges());
-			}
-		}
-		return newGameModel;
-
-	}
-
-	private static void parseFieldDefinition(String fieldString, GameModel gameModel) throws GameFileFormatException {
 		try {
-
-			String[] spl1 = fieldString.split("\\|");
-			int nrIslands = Integer.parseInt(spl1[1].trim());
-
-			String[] spl2 = spl1[0].split("x");
-			int nrRows = Integer.parseInt(spl2[0].trim());
-			int nrColumns = Integer.parseInt(spl2[1].trim());
-
-			gameModel.setNrOfIslands(nrIslands);
-			gameModel.setNrOfRows(nrRows);
-			gameModel.setNrOfColumns(nrColumns);
-
-		} catch (IndexOutOfBoundsException | NumberFormatException e) {
-			throw new GameFileFormatException();
+			return loadGame(new StringReader(String.join("\n", fileLines)));
+		} catch (IOException e) {
+			// a string can not fail to read
+			throw new UncheckedIOException(e);
 		}
 	}
 
-	private static void parseIslandDefinition(String fieldString, List<Island> islands) throws GameFileFormatException {
-		try {
-			if (!(fieldString.startsWith("(") && fieldString.endsWith(")"))) {
-				throw new GameFileFormatException();
-			}
-			fieldString = fieldString.substring(1, fieldString.length() - 1);
-
-			String[] spl1 = fieldString.split("\\|");
-			int nrBridges = Integer.parseInt(spl1[1].trim());
-
-			String[] spl2 = spl1[0].split(",");
-			int row = Integer.parseInt(spl2[0].trim());
-			int column = Integer.parseInt(spl2[1].trim());
-
-			islands.add(new Island(row, column, nrBridges));
-
-		} catch (IndexOutOfBoundsException | NumberFormatException e) {
-			throw new GameFileFormatException();
-		}
+	/**
+	 * Reads a {@link GameModel} from a bgs file in a single pass, see
+	 * {@link BgsParser}
+	 * 
+	 * @param reader the bgs file, not closed
+	 * @return {@link GameModel} of a bridge game
+	 * @throws IOException             if reading fails
+	 * @throws GameFileFormatException if the syntax of the file is incorrect
+	 */
+	static GameModel loadGame(Reader reader) throws IOException, GameFileFormatException {
+		return BgsParser.parse(reader);
 	}
 
-	private static void parseBridgeDefinition(String fieldString, List<Island> islands, List<Bridge> bridges)
-			throws GameFileFormatException {
-		try {
-			if (!(fieldString.startsWith("(") && fieldString.endsWith(")"))) {
-
-			}
-			fieldString = fieldString.substring(1, fieldString.length() - 1);
-
-			String[] spl1 = fieldString.split("\\|");
-			boolean isDoubleBridge = Boolean.parseBoolean(spl1[1].trim());
-
-			String[] spl2 = spl1[0].split(",");
-			int row = Integer.parseInt(spl2[0].trim());
-			int column = Integer.parseInt(spl2[1].trim());
-
-			bridges.add(new Bridge(islands.get(row), islands.get(column), isDoubleBridge, true));
-
-		} catch (IndexOutOfBoundsException | NumberFormatException e) {
-			throw new GameFileFormatException();
-		}
+	/**
+	 * Reads a {@link GameModel} from the remaining bytes of a bgs file, see
+	 * {@link BgsParser}
+	 * 
+	 * @param bytes the bgs file, for example a mapped file
+	 * @return {@link GameModel} of a bridge game
+	 * @throws GameFileFormatException if the syntax of the file is incorrect
+	 */
+	static GameModel loadGame(ByteBuffer bytes) throws GameFileFormatException {
+		return BgsParser.parse(bytes);
 	}
 
 	/**
@@ -162,48 +112,92 @@ class GameModelIO {
 	 */
 
 	static String toFileFormat(GameModel model) {
-		StringBuffer sbf = new StringBuffer();
-		sbf.append("FIELD\n");
-		sbf.append("# Height x Width | Number of islands\n");
-		sbf.append(
-				String.format("%d x %d | %d\n\n", model.getNrOfRows(), model.getNrOfColumns(), model.getNrOfIslands()));
-
-		sbf.append("ISLANDS\n");
-
-		List<Island> sortedIslands = model.getIslands().stream()
-				.sorted(Comparator.comparing(Island::getColumn).thenComparing(Island::getRow))
-				.collect(Collectors.toList());
-
-		for (Island island : sortedIslands) {
-			sbf.append(island.toFileFormat() + "\n");
+		StringWriter out = new StringWriter();
+		try {
+			writeGame(model, out);
+		} catch (IOException e) {
+			// a string can not fail to write
+			throw new UncheckedIOException(e);
 		}
-		List<Bridge> sortedBridges = model.getBridges().stream()
-				.sorted(Comparator.comparing(bridge -> getSmallerBridgeIndex(bridge, sortedIslands)))
-				.collect(Collectors.toList());
+		return out.toString();
+	}
 
-		sbf.append("\n");
-		sbf.append("BRIDGES");
-		for (Bridge br : sortedBridges) {
-			int smallerIndex = getSmallerBridgeIndex(br, sortedIslands);
-			int biggerIndex = getBiggerBridgeIndex(br, sortedIslands);
-			sbf.append(
-					String.format("( %d , %d | %s)", smallerIndex, biggerIndex, String.valueOf(br.isDoubleBridge())));
+	/**
+	 * Writes a {@link GameModel} in bgs file format to {@code out}, which is
+	 * neither buffered nor closed here. The islands are written in
+	 * {@link #FILE_ORDER}, the bridges ordered by the indices of their islands,
+	 * every entry on a line of its own.
+	 * 
+	 * @param model a {@link GameModel}
+	 * @param out   the target of the bgs file
+	 * @throws IOException if writing fails
+	 */
+	static void writeGame(GameModel model, Writer out) throws IOException {
+		out.write("FIELD\n");
+		out.write("# Height x Width | Number of islands\n");
+		out.write(Integer.toString(model.getNrOfRows()));
+		out.write(" x ");
+		out.write(Integer.toString(model.getNrOfColumns()));
+		out.write(" | ");
+		out.write(Integer.toString(model.getNrOfIslands()));
+		out.write("\n\nISLANDS\n");
+
+		Island[] sortedIslands = model.getIslands().toArray(new Island[0]);
+		Arrays.sort(sortedIslands, FILE_ORDER);
+		Map<Island, Integer> index = new IdentityHashMap<Island, Integer>(sortedIslands.length * 2);
+		for (int i = 0; i < sortedIslands.length; i++) {
+			writeIsland(sortedIslands[i], out);
+			index.put(sortedIslands[i], i);
 		}
 
-		return sbf.toString();
-
+		// smaller index in the upper half, bigger index and double flag in the lower
+		// half, so sorting the keys orders the bridges
+		List<Bridge> bridges = model.getBridges();
+		long[] keys = new long[bridges.size()];
+		for (int i = 0; i < keys.length; i++) {
+			Bridge bridge = bridges.get(i);
+			int index1 = index.get(bridge.getIsland1());
+			int index2 = index.get(bridge.getIsland2());
+			keys[i] = (long) Math.min(index1, index2) << 32 | (long) Math.max(index1, index2) << 1
+					| (bridge.isDoubleBridge() ? 1 : 0);
+		}
+		Arrays.sort(keys);
+		out.write("\nBRIDGES\n");
+		for (long key : keys) {
+			out.write("( ");
+			out.write(Integer.toString((int) (key >>> 32)));
+			out.write(", ");
+			out.write(Integer.toString((int) ((key & 0xFFFFFFFFL) >>> 1)));
+			out.write((key & 1) != 0 ? " | true )\n" : " | false )\n");
+		}
 	}
 
-	private static int getSmallerBridgeIndex(Bridge bridge, List<Island> sortedIsland) {
-		int index1 = sortedIsland.indexOf(bridge.getIsland1());
-		int index2 = sortedIsland.indexOf(bridge.getIsland2());
-		return index1 < index2 ? index1 : index2;
+	/**
+	 * Writes a {@link GameModel} in bgs file format to {@code out} as ASCII, see
+	 * {@link #writeGame(GameModel, Writer)}. The stream is not closed.
+	 * 
+	 * @param model a {@link GameModel}
+	 * @param out   the target of the bgs file
+	 * @throws IOException if writing fails
+	 */
+	static void writeGame(GameModel model, OutputStream out) throws IOException {
+		Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.US_ASCII));
+		writeGame(model, writer);
+		writer.flush();
 	}
 
-	private static int getBiggerBridgeIndex(Bridge bridge, List<Island> sortedIsland) {
-		int index1 = sortedIsland.indexOf(bridge.getIsland1());
-		int index2 = sortedIsland.indexOf(bridge.getIsland2());
-		return index1 > index2 ? index1 : index2;
+	/**
+	 * Writes the line of an island in the ISLANDS section, like
+	 * {@link Island#toFileFormat()} without formatting
+	 */
+	static void writeIsland(Island island, Writer out) throws IOException {
+		out.write("( ");
+		out.write(Integer.toString(island.getRow()));
+		out.write(", ");
+		out.write(Integer.toString(island.getColumn()));
+		out.write(" | ");
+		out.write(Integer.toString(island.getBridgeCapacity()));
+		out.write(" )\n");
 	}
 
 }
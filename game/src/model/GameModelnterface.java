@@ -1,10 +1,28 @@
 package model;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Flow;
 
 import common.BuildOrRemoveBridgeRequest;
+import common.CancellationToken;
+import common.DifficultyBand;
+import common.DifficultyRating;
 import common.GameFileFormatException;
 import common.GameObserver;
+import common.SolveStatus;
+import common.SolverLimits;
+import common.SolverProgressListener;
 
 /**
  * The {@code GameModelInterface} specifies the methods a bridge game needs to provide.
@@ -20,6 +38,68 @@ public interface GameModelnterface {
 	 */
 	public boolean createNewGame(int nrOfRows, int nrOfColumns, int nrOfIslands);
 
+	/**
+	 * Create a new bridge game reproducibly: the same {@code seed} and
+	 * parameters always create the same game, on any thread.
+	 * 
+	 * @param seed seed of all random decisions, see {@link common.PuzzleSeeds}
+	 *             for the seeds of a corpus of games
+	 * @return {@code true} if a game with {@code nrOfIslands} islands was
+	 *         created
+	 */
+	public boolean createNewGame(int nrOfRows, int nrOfColumns, int nrOfIslands, long seed);
+
+	/**
+	 * Create a new bridge game reproducibly whose difficulty, as rated by
+	 * {@link #rateDifficulty()}, lies in {@code band}. Candidates are rejected as
+	 * soon as they can not reach the band.
+	 * 
+	 * @param seed seed of all random decisions
+	 * @param band the band the difficulty has to fall into
+	 * @return {@code true} if a game in the band was found and created
+	 */
+	public boolean createNewGame(int nrOfRows, int nrOfColumns, int nrOfIslands, long seed, DifficultyBand band);
+
+	/**
+	 * Create a new bridge game reproducibly which has exactly one solution.
+	 * Ambiguous games are made unique by adjusting the numbers of bridges of
+	 * their islands instead of generating them anew.
+	 * 
+	 * @param seed seed of all random decisions
+	 * @return {@code true} if a unique game was created
+	 */
+	public boolean createUniqueGame(int nrOfRows, int nrOfColumns, int nrOfIslands, long seed);
+
+	/**
+	 * Create a new bridge game by racing independent attempts on
+	 * {@code executor}. The attempts are checked in order and the first
+	 * successful one is taken, the others are cancelled, so the game only
+	 * depends on {@code seed}. If the first attempt succeeds, the game is the
+	 * same as created by {@link #createNewGame(int, int, int, long)}.
+	 * 
+	 * @param seed     seed of the first attempt, the seeds of the others are
+	 *                 derived from it
+	 * @param executor runs the attempts
+	 * @return {@code true} if any attempt created a game
+	 */
+	public boolean createNewGame(int nrOfRows, int nrOfColumns, int nrOfIslands, long seed,
+			ExecutorService executor);
+
+	/**
+	 * Create a large bridge game reproducibly on all threads of
+	 * {@code executor}: the board is split into tiles which are generated in
+	 * parallel and connected by bridges across their borders. The game only
+	 * depends on {@code seed}, not on the number of threads.
+	 * 
+	 * @param seed     seed of all random decisions
+	 * @param executor generates the tiles
+	 * @return {@code true} if a game was created, it may have a few more than
+	 *         {@code nrOfIslands} islands if bridges had to be split to connect
+	 *         the tiles
+	 */
+	public boolean createLargeGame(int nrOfRows, int nrOfColumns, int nrOfIslands, long seed,
+			ExecutorService executor);
+
 
 	/**
 	 * Given the current state of the game, try to add a bridge and update the game
@@ -33,6 +113,121 @@ public interface GameModelnterface {
 	 * @return {@code true} if a bridge was successfully added to the game.
 	 */
 	public boolean solveNextBridge();
+
+	/**
+	 * Like {@link #solveNextBridge()}, but if no bridge can be deduced the bridge
+	 * is taken from a complete solution of the game. The calling thread does not
+	 * wait for the solvers. A deduced bridge or a bridge of the cached solution is
+	 * build at once. Otherwise several solving strategies run concurrently on
+	 * {@code executor} within {@code limits}, the first one finding a solution wins
+	 * and the others are cancelled. The bridge is build by a task passed to
+	 * {@code applier}, for example {@code SwingUtilities::invokeLater}. No bridge is
+	 * build if the game was changed in a way that does not fit the solution
+	 * meanwhile. The solution is reused by later calls as long as the game does
+	 * not deviate from it.
+	 *
+	 * @param executor executes the solving strategies
+	 * @param limits   the limits of the solving strategies
+	 * @param applier  executes the building of the bridge, on the thread owning the game
+	 * @return completes with {@code true} once a bridge was successfully added to the game
+	 */
+	public CompletableFuture<Boolean> solveNextBridge(ExecutorService executor, SolverLimits limits,
+			Executor applier);
+
+	/**
+	 * Returns the bridge {@link #solveNextBridge()} would build next at the island
+	 * at the given coordinates. Deductions are cached until a bridge next to them
+	 * changes, so repeated hints are answered without deducing again.
+	 *
+	 * @param row    row of the island
+	 * @param column column of the island
+	 * @return the request building the bridge or an empty {@link Optional} if
+	 *         there is no island or no bridge of it can be deduced
+	 */
+	public Optional<BuildOrRemoveBridgeRequest> getHint(int row, int column);
+
+	/**
+	 * Solves the game starting from the bridges which are currently build. If a
+	 * solution is found all its bridges are added to the game.
+	 * <p>
+	 * Solving stops when the {@code limits} are reached, the {@code token} is
+	 * cancelled or the thread is interrupted. The {@code listener} receives the
+	 * progress in the interval defined by the {@code limits} and once when
+	 * solving stops.
+	 * 
+	 * @param limits   time limit, node budget and progress interval
+	 * @param token    cancels solving, may be {@code null}
+	 * @param listener receives the progress, may be {@code null}
+	 * @return the {@link SolveStatus} telling whether the game was solved or why
+	 *         solving stopped
+	 */
+	public SolveStatus solve(SolverLimits limits, CancellationToken token, SolverProgressListener listener);
+
+	/**
+	 * Like {@link #solve(SolverLimits, CancellationToken, SolverProgressListener)},
+	 * but the state of the search is written to {@code checkpointFile} whenever
+	 * {@code checkpointInterval} elapsed. If the search is stopped or the process
+	 * dies, {@link #resumeSolve(Path, SolverLimits, CancellationToken, SolverProgressListener, Duration)}
+	 * continues from the last checkpoint. The file is deleted when the search
+	 * completes.
+	 * 
+	 * @param limits             time limit, node budget and progress interval
+	 * @param token              cancels solving, may be {@code null}
+	 * @param listener           receives the progress, may be {@code null}
+	 * @param checkpointFile     the file the checkpoints are written to
+	 * @param checkpointInterval the time between two checkpoints
+	 * @return the {@link SolveStatus} telling whether the game was solved or why
+	 *         solving stopped
+	 * @throws IOException if a checkpoint can not be written
+	 */
+	public SolveStatus solve(SolverLimits limits, CancellationToken token, SolverProgressListener listener,
+			Path checkpointFile, Duration checkpointInterval) throws IOException;
+
+	/**
+	 * Replaces the game by the game stored in {@code checkpointFile} and
+	 * continues its search from the checkpoint. Further checkpoints are written
+	 * to the same file.
+	 * 
+	 * @param checkpointFile     a checkpoint written by
+	 *                           {@link #solve(SolverLimits, CancellationToken, SolverProgressListener, Path, Duration)}
+	 * @param limits             time limit, node budget and progress interval of
+	 *                           the continued search
+	 * @param token              cancels solving, may be {@code null}
+	 * @param listener           receives the progress, may be {@code null}
+	 * @param checkpointInterval the time between two checkpoints
+	 * @return the {@link SolveStatus} telling whether the game was solved or why
+	 *         solving stopped
+	 * @throws IOException             if the checkpoint can not be read or
+	 *                                 written
+	 * @throws GameFileFormatException if the file is no valid checkpoint
+	 */
+	public SolveStatus resumeSolve(Path checkpointFile, SolverLimits limits, CancellationToken token,
+			SolverProgressListener listener, Duration checkpointInterval) throws IOException, GameFileFormatException;
+
+	/**
+	 * Rates the difficulty of the game by solving it from scratch with tiers of
+	 * rules of increasing difficulty. Bridges which are currently build are
+	 * ignored and not changed.
+	 * 
+	 * @return the {@link DifficultyRating} or an empty {@link Optional} if the game
+	 *         has no solution
+	 */
+	public Optional<DifficultyRating> rateDifficulty();
+
+	/**
+	 * Returns a publisher of the bridges solving the game, one
+	 * {@link BuildOrRemoveBridgeRequest} per bridge. Every subscriber solves its
+	 * own copy of the current game, the game itself is not changed.
+	 * <p>
+	 * The next bridge is only deduced when the subscriber requests it, so the
+	 * subscriber controls the pace. The stream completes when the game is solved
+	 * or no more bridge can be found.
+	 *
+	 * @param executor delivers the bridges to the subscribers
+	 * @return the publisher of the solving steps
+	 */
+	public Flow.Publisher<BuildOrRemoveBridgeRequest> publishSolverSteps(Executor executor);
+
 	/**
 	 * Converts the string lines resulting from reading a bridge game file (*.bgs) to it's object representation.
 	 * Requires a {@code List<String> }
@@ -41,12 +236,53 @@ public interface GameModelnterface {
 	 */
 	public void loadGame(List<String> filelines) throws GameFileFormatException;
 
+	/**
+	 * Reads a bridge game file (*.bgs) in a single pass, without splitting it into lines first.
+	 * The number of islands, their positions and the bridges are checked while reading.
+	 * @param reader the content of the file, not closed
+	 * @throws IOException if reading fails
+	 * @throws GameFileFormatException if the content is no valid game, the message names the line
+	 */
+	public void loadGame(Reader reader) throws IOException, GameFileFormatException;
+
+	/**
+	 * Reads a bridge game file (*.bgs) from the remaining bytes of {@code bytes}, for example a mapped file.
+	 * @param bytes the content of the file
+	 * @throws GameFileFormatException if the content is no valid game, the message names the line
+	 */
+	public void loadGame(ByteBuffer bytes) throws GameFileFormatException;
+
 	/**
 	 * Converts the current game state to a String with represents the grammar of bridge game file format (*bgs).
 	 * @return {@Code String}  representing the bridge game in the bridge game file grammar
 	 */
 	public String toFileFormat();
 
+	/**
+	 * Writes the current game state in the bridge game file format (*bgs) to {@code out}, without building
+	 * a {@code String} first. Every island and bridge is written on a line of its own.
+	 * @param out the target of the file, neither buffered nor closed
+	 * @throws IOException if writing fails
+	 */
+	public void writeGame(Writer out) throws IOException;
+
+	/**
+	 * Writes the current game state in a compact binary form to {@code out}, see {@link #loadBinaryGame(ByteBuffer)}.
+	 * Converting a game to binary and back yields the same bridge game file (*bgs).
+	 * @param out the target of the binary game, neither buffered nor closed
+	 * @throws IOException if writing fails
+	 * @throws IllegalArgumentException if a bridge does not connect neighbouring islands
+	 */
+	public void writeBinaryGame(OutputStream out) throws IOException;
+
+	/**
+	 * Reads a game written by {@link #writeBinaryGame(OutputStream)} from the remaining bytes of {@code bytes}.
+	 * The position of {@code bytes} is left behind the game, so several games can be read one after the other.
+	 * @param bytes the binary game, for example a mapped file
+	 * @throws GameFileFormatException if the bytes are no valid game
+	 */
+	public void loadBinaryGame(ByteBuffer bytes) throws GameFileFormatException;
+
 	/**
 	 * Restarts a bridge game. 
 	 * <p>
@@ -63,6 +299,15 @@ public interface GameModelnterface {
 	 */
 	public boolean buildOrRemoveBridge(BuildOrRemoveBridgeRequest gameMoveRequest);
 
+	/**
+	 * Counts the changes of the game: every bridge built or removed, a restart
+	 * and every new or loaded game increment the count. Comparing two counts
+	 * tells whether the game was changed in between.
+	 * 
+	 * @return the number of changes so far
+	 */
+	public long getModificationCount();
+
 	/**
 	 * Register a {@link GameObserver}, which can then be notified accordingly.
 	 * @param gameObserver
@@ -0,0 +1,166 @@
+package model;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Optional;
+
+/**
+ * Caches the bridges which can be deduced from the current state of a
+ * {@link GameModel}, so repeated hints do not repeat the deduction.
+ * <p>
+ * For every island the bridge found by the local rules of
+ * {@link GameModel#deduceNextBridge(Island)} is stored. A bridge which is
+ * build or removed only affects the islands next to it and the islands whose
+ * edges it crosses, so only their entries are deduced again. The connectivity
+ * deduction depends on the whole board and is dropped on every change. A
+ * complete solution found by a solver stays valid as long as every edge carries
+ * at most as many bridges as in the solution.
+ * <p>
+ * The cache is bound to the islands of the game, it has to be replaced when
+ * islands are added or removed.
+ *
+ * @author grimm
+ *
+ */
+final class HintCache {
+	private final GameModel model;
+	private final IslandGraph graph;
+	// index of the island at row * nrOfColumns + column, -1 for water
+	private final int[] islandAt;
+	private final int nrOfColumns;
+	// edge of the bridge deduced for each island, -1 if no rule applies
+	private final int[] hintEdges;
+	// islands whose entry has to be deduced again
+	private final BitSet outdated = new BitSet();
+	// islands with a deduced bridge
+	private final BitSet hinted = new BitSet();
+	private boolean connectivityOutdated = true;
+	private int connectivityEdge = -1;
+	private int[] solution;
+
+	/**
+	 * @param model the game whose deductions are cached
+	 */
+	HintCache(GameModel model) {
+		this.model = model;
+		this.graph = IslandGraph.of(model.getIslands());
+		this.nrOfColumns = model.getNrOfColumns();
+		this.islandAt = new int[model.getNrOfRows() * this.nrOfColumns];
+		Arrays.fill(this.islandAt, -1);
+		for (int i = 0; i < this.graph.getNrOfIslands(); i++) {
+			Island island = this.graph.getIsland(i);
+			this.islandAt[island.getRow() * this.nrOfColumns + island.getColumn()] = i;
+		}
+		this.hintEdges = new int[this.graph.getNrOfIslands()];
+		this.outdated.set(0, this.graph.getNrOfIslands());
+	}
+
+	/**
+	 * Returns the graph the cached edges refer to
+	 */
+	IslandGraph getGraph() {
+		return this.graph;
+	}
+
+	/**
+	 * Drops the entries affected by building or removing a bridge between
+	 * {@code island1} and {@code island2}.
+	 */
+	void invalidate(Island island1, Island island2) {
+		this.connectivityOutdated = true;
+		int index1 = this.graph.indexOf(island1);
+		int index2 = this.graph.indexOf(island2);
+		this.invalidateAround(index1);
+		this.invalidateAround(index2);
+		int edge = this.graph.getEdge(index1, index2);
+		if (edge == -1) {
+			return;
+		}
+		for (int crossing : this.graph.getCrossingEdges(edge)) {
+			this.outdated.set(this.graph.getIsland1(crossing));
+			this.outdated.set(this.graph.getIsland2(crossing));
+		}
+		if (this.solution != null) {
+			int bridgeCount = GameModelUtils.getBridgeBetweenIslands(island1, island2, this.model.getBridges())
+					.map(b -> b.isDoubleBridge() ? 2 : 1).orElse(0);
+			if (bridgeCount > this.solution[edge]) {
+				this.solution = null;
+			}
+		}
+	}
+
+	private void invalidateAround(int island) {
+		this.outdated.set(island);
+		for (int e : this.graph.getIncidentEdges(island)) {
+			this.outdated.set(this.graph.getOtherIsland(e, island));
+		}
+	}
+
+	/**
+	 * Returns the index of the island at the given coordinates or {@code -1} if
+	 * there is none
+	 */
+	int getIslandAt(int row, int column) {
+		if (row < 0 || column < 0 || column >= this.nrOfColumns || row * this.nrOfColumns >= this.islandAt.length) {
+			return -1;
+		}
+		return this.islandAt[row * this.nrOfColumns + column];
+	}
+
+	/**
+	 * Returns the edge of the bridge deduced for {@code island} by the local
+	 * rules or {@code -1} if none can be deduced
+	 */
+	int getHintEdge(int island) {
+		this.refresh(island);
+		return this.hintEdges[island];
+	}
+
+	/**
+	 * Returns the edge {@link GameModel#solveNextBridge()} builds next or
+	 * {@code -1} if no bridge can be deduced. The local rules take precedence,
+	 * the first island in game order wins.
+	 */
+	int getNextEdge() {
+		for (int i = this.outdated.nextSetBit(0); i >= 0; i = this.outdated.nextSetBit(i + 1)) {
+			this.refresh(i);
+		}
+		int island = this.hinted.nextSetBit(0);
+		if (island >= 0) {
+			return this.hintEdges[island];
+		}
+		if (this.connectivityOutdated) {
+			this.connectivityEdge = this.model.deduceForcedEdge(this.graph);
+			this.connectivityOutdated = false;
+		}
+		return this.connectivityEdge;
+	}
+
+	/**
+	 * Returns the cached complete solution if it still fits the game
+	 */
+	Optional<int[]> getSolution() {
+		return Optional.ofNullable(this.solution);
+	}
+
+	/**
+	 * Stores a complete solution of the game
+	 *
+	 * @param solution the number of bridges on each edge of {@link #getGraph()}
+	 */
+	void setSolution(int[] solution) {
+		this.solution = solution;
+	}
+
+	private void refresh(int island) {
+		if (!this.outdated.get(island)) {
+			return;
+		}
+		Island from = this.graph.getIsland(island);
+		Optional<Island> to = this.model.deduceNextBridge(from);
+		this.hintEdges[island] = to.map(t -> this.graph.getEdge(island, this.graph.indexOf(t))).orElse(-1);
+		this.hinted.set(island, this.hintEdges[island] != -1);
+		this.outdated.clear(island);
+	}
+
+}
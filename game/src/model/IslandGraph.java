@@ -0,0 +1,337 @@
+package model;
+
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import common.CardinalPoints;
+
+/**
+ * Index based view of the islands of a bridges game. Islands are the vertices
+ * of the graph, every pair of direct neighbours (closest islands in a row or
+ * column) is a candidate edge on which up to two bridges can be build.<br>
+ * The graph only depends on the positions of the islands, hence it can be
+ * reused as long as no island is added or removed.
+ * <p>
+ * Vertices are numbered by the position of the island in the {@link List}
+ * passed to {@link #of(List)}. For each edge the two island indices, the
+ * incident edges of every island and the edges crossing an edge are
+ * precomputed, so solvers can work on plain {@code int} arrays instead of
+ * scanning the {@link Bridge} list.
+ *
+ * @author grimm
+ *
+ */
+final class IslandGraph {
+	private final Island[] islands;
+	private final Map<Island, Integer> islandIndex;
+	// endpoints of each edge, island1 is west or north of island2
+	private final int[] edgeIsland1;
+	private final int[] edgeIsland2;
+	private final boolean[] edgeHorizontal;
+	private final int[][] incidentEdges;
+	private final int[][] crossingEdges;
+
+	private IslandGraph(Island[] islands, int[] edgeIsland1, int[] edgeIsland2, boolean[] edgeHorizontal,
+			int[][] incidentEdges, int[][] crossingEdges) {
+		this.islands = islands;
+		this.edgeIsland1 = edgeIsland1;
+		this.edgeIsland2 = edgeIsland2;
+		this.edgeHorizontal = edgeHorizontal;
+		this.incidentEdges = incidentEdges;
+		this.crossingEdges = crossingEdges;
+		this.islandIndex = new IdentityHashMap<Island, Integer>(islands.length * 2);
+		for (int i = 0; i < islands.length; i++) {
+			this.islandIndex.put(islands[i], i);
+		}
+	}
+
+	/**
+	 * Builds the graph for the given {@code islands}. Runs in
+	 * {@code O(n log n + rows * columns)} where rows and columns are given by the
+	 * largest island coordinates.
+	 *
+	 * @param islands A {@link List}<{@link Island}> comprising all island of a
+	 *                bridges game
+	 * @return the {@code IslandGraph} of the islands
+	 */
+	static IslandGraph of(List<Island> islands) {
+		int n = islands.size();
+		Island[] islandArray = islands.toArray(new Island[n]);
+		int nrOfRows = 0;
+		int nrOfColumns = 0;
+		for (Island island : islandArray) {
+			nrOfRows = Math.max(nrOfRows, island.getRow() + 1);
+			nrOfColumns = Math.max(nrOfColumns, island.getColumn() + 1);
+		}
+		// sort island indices row wise and column wise, consecutive islands in the
+		// same row (column) are horizontal (vertical) neighbours
+		Integer[] byRow = new Integer[n];
+		Integer[] byColumn = new Integer[n];
+		for (int i = 0; i < n; i++) {
+			byRow[i] = i;
+			byColumn[i] = i;
+		}
+		Arrays.sort(byRow, (a, b) -> islandArray[a].getRow() != islandArray[b].getRow()
+				? Integer.compare(islandArray[a].getRow(), islandArray[b].getRow())
+				: Integer.compare(islandArray[a].getColumn(), islandArray[b].getColumn()));
+		Arrays.sort(byColumn, (a, b) -> islandArray[a].getColumn() != islandArray[b].getColumn()
+				? Integer.compare(islandArray[a].getColumn(), islandArray[b].getColumn())
+				: Integer.compare(islandArray[a].getRow(), islandArray[b].getRow()));
+
+		// a graph has at most 2n edges (one to the east and one to the south per
+		// island)
+		int[] island1 = new int[2 * n];
+		int[] island2 = new int[2 * n];
+		boolean[] horizontal = new boolean[2 * n];
+		int nrOfEdges = 0;
+		for (int k = 1; k < n; k++) {
+			Island west = islandArray[byRow[k - 1]];
+			Island east = islandArray[byRow[k]];
+			if (west.getRow() == east.getRow() && west.getColumn() != east.getColumn()) {
+				island1[nrOfEdges] = byRow[k - 1];
+				island2[nrOfEdges] = byRow[k];
+				horizontal[nrOfEdges] = true;
+				nrOfEdges++;
+			}
+		}
+		for (int k = 1; k < n; k++) {
+			Island north = islandArray[byColumn[k - 1]];
+			Island south = islandArray[byColumn[k]];
+			if (north.getColumn() == south.getColumn() && north.getRow() != south.getRow()) {
+				island1[nrOfEdges] = byColumn[k - 1];
+				island2[nrOfEdges] = byColumn[k];
+				horizontal[nrOfEdges] = false;
+				nrOfEdges++;
+			}
+		}
+		island1 = Arrays.copyOf(island1, nrOfEdges);
+		island2 = Arrays.copyOf(island2, nrOfEdges);
+		horizontal = Arrays.copyOf(horizontal, nrOfEdges);
+
+		int[][] incident = new int[n][];
+		int[] degree = new int[n];
+		for (int e = 0; e < nrOfEdges; e++) {
+			degree[island1[e]]++;
+			degree[island2[e]]++;
+		}
+		for (int i = 0; i < n; i++) {
+			incident[i] = new int[degree[i]];
+			degree[i] = 0;
+		}
+		for (int e = 0; e < nrOfEdges; e++) {
+			incident[island1[e]][degree[island1[e]]++] = e;
+			incident[island2[e]][degree[island2[e]]++] = e;
+		}
+
+		return new IslandGraph(islandArray, island1, island2, horizontal, incident,
+				computeCrossings(islandArray, island1, island2, horizontal, nrOfRows, nrOfColumns));
+	}
+
+	/**
+	 * Marks the cells covered by horizontal edges on a grid and looks up every
+	 * cell covered by a vertical edge. Horizontal edges of a row do not overlap,
+	 * so a cell is covered by at most one horizontal edge.
+	 */
+	private static int[][] computeCrossings(Island[] islands, int[] island1, int[] island2, boolean[] horizontal,
+			int nrOfRows, int nrOfColumns) {
+		int nrOfEdges = island1.length;
+		int[] horizontalEdgeAt = new int[nrOfRows * nrOfColumns];
+		Arrays.fill(horizontalEdgeAt, -1);
+		for (int e = 0; e < nrOfEdges; e++) {
+			if (horizontal[e]) {
+				int row = islands[island1[e]].getRow();
+				for (int c = islands[island1[e]].getColumn() + 1; c < islands[island2[e]].getColumn(); c++) {
+					horizontalEdgeAt[row * nrOfColumns + c] = e;
+				}
+			}
+		}
+		// collect crossing pairs, first count then fill
+		int[] nrOfCrossings = new int[nrOfEdges];
+		for (int e = 0; e < nrOfEdges; e++) {
+			if (!horizontal[e]) {
+				int column = islands[island1[e]].getColumn();
+				for (int r = islands[island1[e]].getRow() + 1; r < islands[island2[e]].getRow(); r++) {
+					int h = horizontalEdgeAt[r * nrOfColumns + column];
+					if (h != -1) {
+						nrOfCrossings[h]++;
+						nrOfCrossings[e]++;
+					}
+				}
+			}
+		}
+		int[][] crossings = new int[nrOfEdges][];
+		for (int e = 0; e < nrOfEdges; e++) {
+			crossings[e] = new int[nrOfCrossings[e]];
+			nrOfCrossings[e] = 0;
+		}
+		for (int e = 0; e < nrOfEdges; e++) {
+			if (!horizontal[e]) {
+				int column = islands[island1[e]].getColumn();
+				for (int r = islands[island1[e]].getRow() + 1; r < islands[island2[e]].getRow(); r++) {
+					int h = horizontalEdgeAt[r * nrOfColumns + column];
+					if (h != -1) {
+						crossings[h][nrOfCrossings[h]++] = e;
+						crossings[e][nrOfCrossings[e]++] = h;
+					}
+				}
+			}
+		}
+		return crossings;
+	}
+
+	int getNrOfIslands() {
+		return this.islands.length;
+	}
+
+	int getNrOfEdges() {
+		return this.edgeIsland1.length;
+	}
+
+	Island getIsland(int index) {
+		return this.islands[index];
+	}
+
+	/**
+	 * Returns the index of {@code island} or {@code -1} if it is not part of this
+	 * graph. Islands are compared by reference.
+	 */
+	int indexOf(Island island) {
+		Integer index = this.islandIndex.get(island);
+		return index == null ? -1 : index;
+	}
+
+	/**
+	 * Returns the index of the west (horizontal edge) or north (vertical edge)
+	 * island of {@code edge}
+	 */
+	int getIsland1(int edge) {
+		return this.edgeIsland1[edge];
+	}
+
+	/**
+	 * Returns the index of the east (horizontal edge) or south (vertical edge)
+	 * island of {@code edge}
+	 */
+	int getIsland2(int edge) {
+		return this.edgeIsland2[edge];
+	}
+
+	boolean isHorizontal(int edge) {
+		return this.edgeHorizontal[edge];
+	}
+
+	/**
+	 * Returns the index of the island at the other end of {@code edge}
+	 */
+	int getOtherIsland(int edge, int island) {
+		return this.edgeIsland1[edge] == island ? this.edgeIsland2[edge] : this.edgeIsland1[edge];
+	}
+
+	/**
+	 * Returns the edges of an island (at most 4). The returned array must not be
+	 * modified.
+	 */
+	int[] getIncidentEdges(int island) {
+		return this.incidentEdges[island];
+	}
+
+	/**
+	 * Returns the edges crossing {@code edge}. The returned array must not be
+	 * modified.
+	 */
+	int[] getCrossingEdges(int edge) {
+		return this.crossingEdges[edge];
+	}
+
+	/**
+	 * Returns the edge between the islands with index {@code island1} and
+	 * {@code island2} or {@code -1} if they are no neighbours.
+	 */
+	int getEdge(int island1, int island2) {
+		for (int e : this.incidentEdges[island1]) {
+			if (this.getOtherIsland(e, island1) == island2) {
+				return e;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Returns the direction of {@code edge} seen from {@code island}
+	 */
+	CardinalPoints getDirection(int edge, int island) {
+		boolean fromIsland1 = this.edgeIsland1[edge] == island;
+		if (this.edgeHorizontal[edge]) {
+			return fromIsland1 ? CardinalPoints.EAST : CardinalPoints.WEST;
+		} else {
+			return fromIsland1 ? CardinalPoints.SOUTH : CardinalPoints.NORTH;
+		}
+	}
+
+	/**
+	 * Returns the number of bridges (0, 1 or 2) currently build on each edge.
+	 * Bridges between islands which are no neighbours are ignored.
+	 *
+	 * @param bridges A {@link List}<{@link Bridge}> comprising all bridges of a
+	 *                bridges game
+	 * @return number of bridges per edge
+	 */
+	int[] getBridgeCounts(List<Bridge> bridges) {
+		int[] counts = new int[this.getNrOfEdges()];
+		for (Bridge bridge : bridges) {
+			int edge = this.getEdge(bridge.getIsland1(), bridge.getIsland2());
+			if (edge != -1) {
+				counts[edge] = bridge.isDoubleBridge() ? 2 : 1;
+			}
+		}
+		return counts;
+	}
+
+	/**
+	 * Returns the edge between two islands or {@code -1} if they are not part of
+	 * the graph or are no neighbours.
+	 */
+	int getEdge(Island island1, Island island2) {
+		int index1 = this.indexOf(island1);
+		int index2 = this.indexOf(island2);
+		if (index1 == -1 || index2 == -1) {
+			return -1;
+		}
+		return this.getEdge(index1, index2);
+	}
+
+	/**
+	 * Returns for each edge the maximum number of bridges it can carry given the
+	 * current game state: bridges already build on the edge plus what the
+	 * remaining capacity of both islands allows, or only the build bridges if a
+	 * crossing edge already carries a bridge.
+	 *
+	 * @param bridgeCounts number of bridges per edge, see
+	 *                     {@link #getBridgeCounts(List)}
+	 * @return maximum number of bridges per edge
+	 */
+	int[] getMaximumBridgeCounts(int[] bridgeCounts) {
+		int[] maximum = new int[this.getNrOfEdges()];
+		for (int e = 0; e < maximum.length; e++) {
+			boolean crossed = false;
+			for (int c : this.crossingEdges[e]) {
+				if (bridgeCounts[c] > 0) {
+					crossed = true;
+					break;
+				}
+			}
+			if (crossed) {
+				maximum[e] = bridgeCounts[e];
+			} else {
+				int capacity1 = Math.max(0, this.islands[this.edgeIsland1[e]].getCurrentBridgeCapacity());
+				int capacity2 = Math.max(0, this.islands[this.edgeIsland2[e]].getCurrentBridgeCapacity());
+				maximum[e] = bridgeCounts[e]
+						+ Math.min(2 - bridgeCounts[e], Math.min(capacity1, capacity2));
+			}
+		}
+		return maximum;
+	}
+
+}
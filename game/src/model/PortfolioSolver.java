@@ -0,0 +1,132 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+
+import common.SolverLimits;
+import model.BacktrackingSolver.EdgeOrder;
+
+/**
+ * Solves a bridges game by running several differently configured strategies
+ * concurrently. Each strategy works on its own copy of the game. The first
+ * strategy finding a solution wins, all other strategies are cancelled.
+ * <p>
+ * The strategies are:
+ * <li>Heuristic stepping: {@link GameModel#solveNextBridge()} until no more
+ * bridge can be added
+ * <li>Depth first search with failed literal probing
+ * <li>Depth first search with different edge and value orders
+ * <li>Parallel search of independent regions, see {@link DecomposingSolver}
+ * <li>Clause learning on an encoding of the game, see {@link SatBridgesSolver}
+ *
+ * @author grimm
+ *
+ */
+final class PortfolioSolver {
+	private final IslandGraph graph;
+	private final SolverState initialState;
+	private final GameModel stepModel;
+
+	/**
+	 * Takes a snapshot of the current state of {@code model}, later changes of
+	 * the model do not affect the solver.
+	 *
+	 * @param model the game to solve
+	 */
+	PortfolioSolver(GameModel model) {
+		this.graph = IslandGraph.of(model.getIslands());
+		this.initialState = SolverState.of(this.graph, model.getBridges());
+		this.stepModel = model.copy();
+	}
+
+	/**
+	 * Returns the graph the solutions refer to
+	 */
+	IslandGraph getGraph() {
+		return this.graph;
+	}
+
+	/**
+	 * Runs all strategies on {@code executor} and returns the first solution
+	 * found. The other strategies are cancelled. All strategies share one
+	 * {@link SearchMonitor}, so they stop together once {@code limits} are
+	 * reached.
+	 *
+	 * @param executor executes the strategies, should be able to run all of them
+	 *                 at the same time. The decomposing strategy waits for tasks
+	 *                 it submits itself, so the executor must not be limited to
+	 *                 a fixed number of threads.
+	 * @param limits   the limits of all strategies together
+	 * @return the number of bridges on each edge of {@link #getGraph()} or an empty
+	 *         {@link Optional} if the game has no solution or no strategy found
+	 *         one within {@code limits}
+	 * @throws InterruptedException if the calling thread is interrupted while
+	 *                              waiting
+	 */
+	Optional<int[]> solve(ExecutorService executor, SolverLimits limits) throws InterruptedException {
+		SearchMonitor monitor = new SearchMonitor(limits, null, null);
+		List<Callable<int[]>> strategies = new ArrayList<Callable<int[]>>();
+		strategies.add(() -> solveByStepping(this.stepModel, monitor));
+		strategies.add(() -> solveBySearch(this.initialState, EdgeOrder.MOST_CONSTRAINED, true, true, monitor));
+		strategies.add(() -> solveBySearch(this.initialState, EdgeOrder.MOST_CONSTRAINED, true, false, monitor));
+		strategies.add(() -> solveBySearch(this.initialState, EdgeOrder.INPUT, false, false, monitor));
+		strategies.add(() -> solveBySearch(this.initialState, EdgeOrder.RANDOM, true, false, monitor));
+		strategies.add(() -> solveByDecomposition(this.initialState, executor, monitor));
+		strategies.add(() -> solveBySat(this.initialState, monitor));
+		try {
+			return Optional.of(executor.invokeAny(strategies));
+		} catch (ExecutionException e) {
+			// all strategies failed
+			return Optional.empty();
+		}
+	}
+
+	private int[] solveByStepping(GameModel model, SearchMonitor monitor) {
+		while (model.solveNextBridge()) {
+			monitor.check();
+		}
+		if (!model.isGameSolved()) {
+			throw new IllegalStateException("Stepping got stuck");
+		}
+		// the copy has the same island order, hence the same edges
+		return IslandGraph.of(model.getIslands()).getBridgeCounts(model.getBridges());
+	}
+
+	private static int[] solveByDecomposition(SolverState initialState, ExecutorService executor,
+			SearchMonitor monitor) throws InterruptedException {
+		DecomposingSolver solver = new DecomposingSolver(new SolverState(initialState));
+		solver.setMonitor(monitor);
+		int[] solution = solver.solve(executor);
+		if (solution == null) {
+			throw new IllegalStateException("Game has no solution");
+		}
+		return solution;
+	}
+
+	private static int[] solveBySat(SolverState initialState, SearchMonitor monitor) {
+		SatBridgesSolver solver = new SatBridgesSolver(initialState);
+		solver.setMonitor(monitor);
+		int[] solution = solver.solve();
+		if (solution == null) {
+			throw new IllegalStateException("Game has no solution");
+		}
+		return solution;
+	}
+
+	private static int[] solveBySearch(SolverState initialState, EdgeOrder edgeOrder, boolean descendingValues,
+			boolean probing, SearchMonitor monitor) {
+		BacktrackingSolver solver = new BacktrackingSolver(new SolverState(initialState), edgeOrder,
+				descendingValues, probing, System.nanoTime());
+		solver.setMonitor(monitor);
+		int[] solution = solver.solve();
+		if (solution == null) {
+			throw new IllegalStateException("Game has no solution");
+		}
+		return solution;
+	}
+
+}
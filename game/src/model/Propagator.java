@@ -0,0 +1,257 @@
+package model;
+
+import java.util.Arrays;
+
+/**
+ * Applies the rules of the game to a {@link SolverState} until no more domains
+ * can be narrowed. The rules are:
+ * <li>Capacity: the bridges of an island sum up to its capacity
+ * <li>Crossing: an edge carrying a bridge blocks all edges crossing it
+ * <li>Isolation: two islands must not form a closed group if there are more
+ * islands
+ * <li>Connectivity: edges needed to connect all islands carry a bridge, see
+ * {@link ConnectivityDeduction}
+ * <p>
+ * Capacity and crossing are propagated arc consistently: only the edges queued
+ * as changed by the {@link SolverState} are revisited, and a value stays in the
+ * domain of an edge only if the other edges of both islands can complete it to
+ * their capacities. The global connectivity rule runs once the local rules
+ * reached their fixpoint. Propagation works on preallocated arrays and does not
+ * allocate.
+ * <p>
+ * On top of the rules {@link #probe(SearchMonitor)} tests the options of each
+ * edge and removes options which contradict the rules.
+ *
+ * @author grimm
+ *
+ */
+final class Propagator {
+	private final SolverState state;
+	private final IslandGraph graph;
+	private final ConnectivityDeduction connectivity;
+	private final int[] forcedEdges;
+	// edges between two islands with the same capacity of one or two
+	private final int[] isolationEdges;
+	// bit s of prefixSums[k] is set if the first k edges of an island can carry s
+	// bridges, suffixSums likewise for the edges from k on
+	private final int[] prefixSums = new int[5];
+	private final int[] suffixSums = new int[5];
+	private long rounds;
+
+	Propagator(SolverState state) {
+		this.state = state;
+		this.graph = state.getGraph();
+		this.connectivity = new ConnectivityDeduction(this.graph);
+		this.forcedEdges = new int[this.graph.getNrOfEdges()];
+		int nrOfIsolationEdges = 0;
+		int[] edges = new int[this.graph.getNrOfEdges()];
+		if (this.graph.getNrOfIslands() > 2) {
+			for (int e = 0; e < this.graph.getNrOfEdges(); e++) {
+				int capacity1 = state.getCapacity(this.graph.getIsland1(e));
+				int capacity2 = state.getCapacity(this.graph.getIsland2(e));
+				if (capacity1 == capacity2 && capacity1 <= 2) {
+					edges[nrOfIsolationEdges++] = e;
+				}
+			}
+		}
+		this.isolationEdges = Arrays.copyOf(edges, nrOfIsolationEdges);
+	}
+
+	/**
+	 * Returns the number of passes over the rules made so far
+	 */
+	long getRounds() {
+		return this.rounds;
+	}
+
+	/**
+	 * Applies all rules until a fixpoint is reached.
+	 *
+	 * @return {@code false} if the state has no solution
+	 */
+	boolean propagate() {
+		while (true) {
+			long modificationCount = this.state.getModificationCount();
+			this.rounds++;
+			if (!this.propagateCapacities() || !this.propagateIsolation()) {
+				return false;
+			}
+			if (modificationCount != this.state.getModificationCount()) {
+				// cheap rules made progress, repeat them first
+				continue;
+			}
+			if (!this.propagateConnectivity()) {
+				return false;
+			}
+			if (modificationCount == this.state.getModificationCount()) {
+				return true;
+			}
+		}
+	}
+
+	/**
+	 * Revisits the edges queued as changed until the queue is empty: edges
+	 * crossing an edge which carries a bridge are removed, and the domains of
+	 * the edges of both islands are narrowed to the values which can sum up to
+	 * the capacity of the island.
+	 *
+	 * @return {@code false} if the state has no solution
+	 */
+	boolean propagateCapacities() {
+		for (int edge = this.state.pollChangedEdge(); edge != -1; edge = this.state.pollChangedEdge()) {
+			if ((this.state.getDomain(edge) & 1) == 0) {
+				for (int crossing : this.graph.getCrossingEdges(edge)) {
+					if (!this.state.restrictDomain(crossing, 1)) {
+						return false;
+					}
+				}
+			}
+			if (!this.reviseIsland(this.graph.getIsland1(edge))
+					|| !this.reviseIsland(this.graph.getIsland2(edge))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Removes every value of an edge of {@code island} which the other edges can
+	 * not complete to the capacity of the island.
+	 *
+	 * @return {@code false} if the capacity can not be reached
+	 */
+	private boolean reviseIsland(int island) {
+		int capacity = this.state.getCapacity(island);
+		int[] incident = this.graph.getIncidentEdges(island);
+		int n = incident.length;
+		this.prefixSums[0] = 1;
+		for (int k = 0; k < n; k++) {
+			this.prefixSums[k + 1] = addDomain(this.prefixSums[k], this.state.getDomain(incident[k]));
+		}
+		if ((this.prefixSums[n] & 1 << capacity) == 0) {
+			return false;
+		}
+		this.suffixSums[n] = 1;
+		for (int k = n - 1; k >= 0; k--) {
+			this.suffixSums[k] = addDomain(this.suffixSums[k + 1], this.state.getDomain(incident[k]));
+		}
+		for (int k = 0; k < n; k++) {
+			int others = addSums(this.prefixSums[k], this.suffixSums[k + 1]);
+			int supported = 0;
+			for (int v = 0; v <= 2 && v <= capacity; v++) {
+				if ((others & 1 << (capacity - v)) != 0) {
+					supported |= 1 << v;
+				}
+			}
+			if (!this.state.restrictDomain(incident[k], supported)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Returns the sums reachable by adding a value of {@code domain} to a sum of
+	 * {@code sums}
+	 */
+	private static int addDomain(int sums, int domain) {
+		int result = 0;
+		if ((domain & 1) != 0) {
+			result |= sums;
+		}
+		if ((domain & 2) != 0) {
+			result |= sums << 1;
+		}
+		if ((domain & 4) != 0) {
+			result |= sums << 2;
+		}
+		return result;
+	}
+
+	private static int addSums(int sums1, int sums2) {
+		int result = 0;
+		for (int s = 0; sums1 >>> s != 0; s++) {
+			if ((sums1 & 1 << s) != 0) {
+				result |= sums2 << s;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Two islands with the same capacity of one or two would be isolated if they
+	 * are connected with that many bridges.
+	 *
+	 * @return {@code false} if the state has no solution
+	 */
+	boolean propagateIsolation() {
+		for (int e : this.isolationEdges) {
+			int capacity = this.state.getCapacity(this.graph.getIsland1(e));
+			if (!this.state.restrictDomain(e, ~(1 << capacity))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Forces a bridge on every edge which is needed to connect all islands.
+	 *
+	 * @return {@code false} if the islands can not be connected anymore
+	 */
+	boolean propagateConnectivity() {
+		int nrOfForcedEdges = this.connectivity.findForcedEdges(this.state.getLowerBounds(),
+				this.state.getUpperBounds(), this.forcedEdges);
+		if (nrOfForcedEdges == -1) {
+			return false;
+		}
+		for (int i = 0; i < nrOfForcedEdges; i++) {
+			if (!this.state.restrictDomain(this.forcedEdges[i], 0b110)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Tests every option of every undecided edge with {@link #propagate()}.
+	 * Options which lead to a contradiction are removed until no more options
+	 * are removed (failed literal probing).
+	 *
+	 * @param monitor checked before each test, aborts long probing runs and
+	 *                reports their progress
+	 * @return {@code false} if the state has no solution
+	 * @throws SearchAbortedException if the monitor stops the search
+	 */
+	boolean probe(SearchMonitor monitor) {
+		boolean changed = true;
+		while (changed) {
+			changed = false;
+			for (int edge = 0; edge < this.graph.getNrOfEdges(); edge++) {
+				if (this.state.isDecided(edge)) {
+					continue;
+				}
+				monitor.check(this.state);
+				int mark = this.state.getTrailSize();
+				int domain = this.state.getDomain(edge);
+				int possible = 0;
+				for (int v = 0; v <= 2; v++) {
+					if ((domain & 1 << v) != 0) {
+						if (this.state.restrictDomain(edge, 1 << v) && this.propagate()) {
+							possible |= 1 << v;
+						}
+						this.state.undo(mark);
+					}
+				}
+				if (possible != domain) {
+					if (!this.state.restrictDomain(edge, possible) || !this.propagate()) {
+						return false;
+					}
+					changed = true;
+				}
+			}
+		}
+		return true;
+	}
+
+}
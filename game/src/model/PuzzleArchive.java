@@ -0,0 +1,211 @@
+package model;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Objects;
+
+import common.GameFileFormatException;
+
+/**
+ * Many puzzles packed into one file, any of which can be loaded without
+ * reading the others.
+ * <p>
+ * The puzzles are stored one after the other in the binary form of
+ * {@link BinaryGameIO}. The file consists of:
+ * <li>magic number and version
+ * <li>the number of puzzles and the position of the index
+ * <li>the puzzles
+ * <li>the index, the position of every puzzle and the end of the last one
+ * <p>
+ * An opened archive maps the file into memory, so loading a puzzle only reads
+ * the bytes of the puzzle. Files larger than a single mapping map the index
+ * and each puzzle when it is loaded. Puzzles can be loaded from several threads
+ * at once.
+ *
+ * @author grimm
+ *
+ */
+public final class PuzzleArchive implements Closeable {
+	private static final int MAGIC = 0x42474152;
+	private static final int VERSION = 1;
+	// magic, version, number of puzzles and position of the index
+	private static final int HEADER_SIZE = 4 + 1 + 4 + 8;
+	private final FileChannel channel;
+	// the whole file, null if it is too large for a single mapping
+	private final ByteBuffer data;
+	private final LongBuffer index;
+	private final long indexPosition;
+	private final int size;
+
+	private PuzzleArchive(FileChannel channel, ByteBuffer data, LongBuffer index, long indexPosition, int size) {
+		this.channel = channel;
+		this.data = data;
+		this.index = index;
+		this.indexPosition = indexPosition;
+		this.size = size;
+	}
+
+	/**
+	 * Opens an archive written by {@link #create(Path)}
+	 *
+	 * @param file the archive
+	 * @return the opened archive, to be closed by the caller
+	 * @throws IOException             if reading fails
+	 * @throws GameFileFormatException if the file is no archive
+	 */
+	public static PuzzleArchive open(Path file) throws IOException, GameFileFormatException {
+		FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+		try {
+			long fileSize = channel.size();
+			ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+			while (header.hasRemaining() && channel.read(header, header.position()) > 0) {
+				// read until the header is complete or the file ends
+			}
+			header.flip();
+			if (header.remaining() < HEADER_SIZE || header.getInt() != MAGIC
+					|| (header.get() & 0xFF) != VERSION) {
+				throw new GameFileFormatException("Not a puzzle archive: " + file);
+			}
+			int size = header.getInt();
+			long indexPosition = header.getLong();
+			if (size < 0 || indexPosition < HEADER_SIZE || indexPosition + (size + 1L) * Long.BYTES != fileSize) {
+				throw new GameFileFormatException("Invalid index in puzzle archive " + file);
+			}
+			ByteBuffer data = null;
+			LongBuffer index;
+			if (fileSize <= Integer.MAX_VALUE) {
+				data = channel.map(FileChannel.MapMode.READ_ONLY, 0, fileSize);
+				index = data.slice((int) indexPosition, (int) (fileSize - indexPosition)).asLongBuffer();
+			} else {
+				index = channel.map(FileChannel.MapMode.READ_ONLY, indexPosition, fileSize - indexPosition)
+						.asLongBuffer();
+			}
+			return new PuzzleArchive(channel, data, index, indexPosition, size);
+		} catch (IOException | GameFileFormatException | RuntimeException e) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Creates an empty archive, replacing {@code file}. The archive is complete
+	 * once the returned {@link Appender} is closed.
+	 *
+	 * @param file the archive
+	 * @return the appender adding puzzles to the archive
+	 * @throws IOException if the file can not be created
+	 */
+	public static Appender create(Path file) throws IOException {
+		return new Appender(FileChannel.open(file, StandardOpenOption.WRITE, StandardOpenOption.CREATE,
+				StandardOpenOption.TRUNCATE_EXISTING));
+	}
+
+	/**
+	 * @return the number of puzzles in the archive
+	 */
+	public int size() {
+		return this.size;
+	}
+
+	/**
+	 * Loads puzzle {@code index} in {@code O(1)}, independent of the size of the
+	 * archive.
+	 *
+	 * @param index the index of the puzzle, the order in which it was added
+	 * @return {@link GameModel} of the puzzle
+	 * @throws IOException             if mapping the puzzle fails
+	 * @throws GameFileFormatException if the puzzle is damaged
+	 */
+	public GameModel get(int index) throws IOException, GameFileFormatException {
+		Objects.checkIndex(index, this.size);
+		long start = this.index.get(index);
+		long end = this.index.get(index + 1);
+		if (start < HEADER_SIZE || end < start || end > this.indexPosition) {
+			throw new GameFileFormatException("Invalid position of puzzle " + index + " in archive");
+		}
+		ByteBuffer puzzle = this.data != null ? this.data.slice((int) start, (int) (end - start))
+				: this.channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+		return BinaryGameIO.read(puzzle);
+	}
+
+	@Override
+	public void close() throws IOException {
+		this.channel.close();
+	}
+
+	/**
+	 * Adds puzzles to a new archive, see {@link PuzzleArchive#create(Path)}. The
+	 * puzzles are written as they are added, only their positions are kept in
+	 * memory.
+	 */
+	public static final class Appender implements Closeable {
+		private final FileChannel channel;
+		private final DataOutputStream out;
+		private final ByteArrayOutputStream puzzle = new ByteArrayOutputStream();
+		private long[] positions = new long[1024];
+		private int size;
+		private long position = HEADER_SIZE;
+
+		private Appender(FileChannel channel) throws IOException {
+			this.channel = channel;
+			this.out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+			// the number of puzzles and the position of the index are written on close
+			this.out.write(new byte[HEADER_SIZE]);
+		}
+
+		/**
+		 * Appends {@code model} to the archive
+		 *
+		 * @param model a {@link GameModel}
+		 * @return the index of the puzzle in the archive
+		 * @throws IOException              if writing fails
+		 * @throws IllegalArgumentException if the game has no binary form, see
+		 *                                  {@link BinaryGameIO#write(GameModel, java.io.OutputStream)}
+		 */
+		public int add(GameModel model) throws IOException {
+			if (this.size == Integer.MAX_VALUE - 1) {
+				throw new IllegalStateException("Puzzle archive is full");
+			}
+			this.puzzle.reset();
+			BinaryGameIO.write(model, this.puzzle);
+			if (this.size == this.positions.length) {
+				this.positions = Arrays.copyOf(this.positions, (int) Math.min(2L * this.size, Integer.MAX_VALUE));
+			}
+			this.positions[this.size] = this.position;
+			this.puzzle.writeTo(this.out);
+			this.position += this.puzzle.size();
+			return this.size++;
+		}
+
+		/**
+		 * Writes the index and completes the archive
+		 */
+		@Override
+		public void close() throws IOException {
+			try (FileChannel channel = this.channel) {
+				long indexPosition = this.position;
+				for (int i = 0; i < this.size; i++) {
+					this.out.writeLong(this.positions[i]);
+				}
+				this.out.writeLong(this.position);
+				this.out.flush();
+				ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+				header.putInt(MAGIC).put((byte) VERSION).putInt(this.size).putLong(indexPosition).flip();
+				while (header.hasRemaining()) {
+					channel.write(header, header.position());
+				}
+			}
+		}
+	}
+
+}
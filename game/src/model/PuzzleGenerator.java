@@ -0,0 +1,477 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.random.RandomGenerator;
+
+import common.DifficultyBand;
+import common.SolverLimits;
+import model.BacktrackingSolver.EdgeOrder;
+
+/**
+ * Generates the islands of a solvable bridges game by growing a connected
+ * group of islands: starting with a random island, a bridge is repeatedly
+ * build from a random island to a new island two or three cells away, which
+ * does not touch another island. The
+ * capacity of each island is the number of bridges build to it, so the bridges
+ * build while growing are a solution of the game.
+ * <p>
+ * The generator keeps the board as a grid of cells marking islands and cells
+ * covered by bridges, and a frontier of the islands which may still be
+ * expanded. Finding the candidate cells of an island checks at most three
+ * cells per direction. As cells only get occupied, an island which can not be
+ * expanded in any direction never can again and is dropped from the frontier.
+ * Each new island therefore takes constant time on average. When the frontier
+ * runs empty the last islands are removed and growing continues from the rest.
+ * Without touching islands about a quarter of the cells can be islands. Boards
+ * with more than a fifth of the cells being islands fall back to islands one
+ * cell apart if they get stuck, so up to half of the cells can be islands.
+ * <p>
+ * The numbers of bridges are rolled after the layout has been grown, so one
+ * layout can be tried with several capacities when generating for a
+ * {@link DifficultyBand}.
+ *
+ * @author grimm
+ *
+ */
+final class PuzzleGenerator {
+	// directions as in CardinalPoints and their offsets
+	private static final int NORTH = 0;
+	private static final int SOUTH = 1;
+	private static final int EAST = 2;
+	private static final int WEST = 3;
+	private static final int[] DELTA_ROW = { -1, 1, 0, 0 };
+	private static final int[] DELTA_COLUMN = { 0, 0, 1, -1 };
+	// times growing continues from a part of the islands when the board is stuck
+	private static final int MAX_RESTARTS = 100;
+	private static final byte WATER = 0;
+	private static final byte ISLAND = 1;
+	private static final byte BRIDGE = 2;
+	// layouts grown and capacities rolled per layout when generating for a
+	// difficulty band
+	private static final int MAX_LAYOUTS = 1000;
+	private static final int ROLLS_PER_LAYOUT = 8;
+	// nodes of trial and error when rating a candidate
+	private static final long RATING_NODE_BUDGET = 10_000;
+	// changes of the capacities of a layout until its game is unique
+	private static final int MAX_REPAIRS = 100;
+	// nodes of trial and error when searching for a second solution
+	private static final long UNIQUENESS_NODE_BUDGET = 10_000;
+	private final int nrOfRows;
+	private final int nrOfColumns;
+	private final RandomGenerator random;
+	// layout of the last grown game: position of each island and the island it
+	// was connected from
+	private int[] rows;
+	private int[] columns;
+	private int[] parents;
+	// bridges to the parent of each island in the last rolled capacities
+	private int[] bridgesToParent;
+	// state of the board while growing
+	private byte[] cells;
+	// bit d is set if the island has a bridge in direction d
+	private int[] usedDirections;
+	// islands which may still be expanded
+	private int[] frontier;
+	private int frontierSize;
+
+	/**
+	 * @param nrOfRows    rows of the board
+	 * @param nrOfColumns columns of the board
+	 * @param random      source of all random decisions
+	 */
+	PuzzleGenerator(int nrOfRows, int nrOfColumns, RandomGenerator random) {
+		this.nrOfRows = nrOfRows;
+		this.nrOfColumns = nrOfColumns;
+		this.random = random;
+	}
+
+	/**
+	 * Generates a game with {@code nrOfIslands} islands.
+	 *
+	 * @return the islands in the order they were created, empty if the board
+	 *         got stuck before all islands were placed
+	 */
+	Optional<List<Island>> generate(int nrOfIslands) {
+		if (!this.grow(nrOfIslands)) {
+			return Optional.empty();
+		}
+		return Optional.of(this.rollCapacities());
+	}
+
+	/**
+	 * Generates a game with {@code nrOfIslands} islands whose first island lies
+	 * in the first column at {@code rootRow}, used for the bands of
+	 * {@link StreamingPuzzleGenerator}.
+	 *
+	 * @return the islands in the order they were created, empty if the board
+	 *         got stuck before all islands were placed
+	 */
+	Optional<List<Island>> generateBand(int nrOfIslands, int rootRow) {
+		if (!this.grow(nrOfIslands, rootRow, 0)) {
+			return Optional.empty();
+		}
+		return Optional.of(this.rollCapacities());
+	}
+
+	/**
+	 * Generates a game with {@code nrOfIslands} islands whose difficulty lies in
+	 * {@code band}. Every layout grown is tried with several random numbers of
+	 * bridges, as these change the difficulty as much as the positions of the
+	 * islands. Each candidate is rated only until it is clear it misses the
+	 * band, see {@link DifficultyRater#rate(DifficultyBand, SearchMonitor)}, and
+	 * trial and error is limited to {@link #RATING_NODE_BUDGET} nodes.
+	 *
+	 * @return the islands in the order they were created, empty if no game in
+	 *         the band was found within {@link #MAX_LAYOUTS} layouts
+	 */
+	Optional<List<Island>> generate(int nrOfIslands, DifficultyBand band) {
+		for (int layout = 0; layout < MAX_LAYOUTS && !Thread.currentThread().isInterrupted(); layout++) {
+			if (!this.grow(nrOfIslands)) {
+				continue;
+			}
+			for (int roll = 0; roll < ROLLS_PER_LAYOUT; roll++) {
+				List<Island> islands = this.rollCapacities();
+				SearchMonitor monitor = new SearchMonitor(SolverLimits.nodeBudget(RATING_NODE_BUDGET), null, null);
+				try {
+					if (new DifficultyRater(IslandGraph.of(islands)).rate(band, monitor) != null) {
+						return Optional.of(islands);
+					}
+				} catch (SearchAbortedException e) {
+					// harder than a player could be asked for, try the next candidate
+				}
+			}
+		}
+		return Optional.empty();
+	}
+
+	/**
+	 * Generates a game with {@code nrOfIslands} islands which has exactly one
+	 * solution. While a second solution exists, a bridge is added to the
+	 * intended solution on an edge where the two solutions differ, and the
+	 * capacities of both islands of the edge are raised by one. The intended
+	 * solution stays a solution, the second one does not, as it misses the new
+	 * capacities. So the layout is kept and only the capacities are adjusted
+	 * until the game is unique. A layout is only dropped if it is still
+	 * ambiguous after {@link #MAX_REPAIRS} changes or proving uniqueness takes
+	 * more than {@link #UNIQUENESS_NODE_BUDGET} nodes.
+	 * <p>
+	 * The search for a second solution does without failed literal probing, as
+	 * it rarely needs more than a few nodes.
+	 *
+	 * @return the islands in the order they were created, empty if no unique
+	 *         game was found within {@link #MAX_LAYOUTS} layouts
+	 */
+	Optional<List<Island>> generateUnique(int nrOfIslands) {
+		for (int layout = 0; layout < MAX_LAYOUTS && !Thread.currentThread().isInterrupted(); layout++) {
+			if (!this.grow(nrOfIslands)) {
+				continue;
+			}
+			Optional<List<Island>> islands = this.makeUnique(this.rollCapacities());
+			if (islands.isPresent()) {
+				return islands;
+			}
+		}
+		return Optional.empty();
+	}
+
+	/**
+	 * Changes the capacities of the rolled {@code islands} until the game has
+	 * only the solution build while growing
+	 */
+	private Optional<List<Island>> makeUnique(List<Island> islands) {
+		IslandGraph graph = IslandGraph.of(islands);
+		// the graph keeps the order of the islands, and the edges only depend on
+		// the positions of the islands
+		int[] solution = new int[graph.getNrOfEdges()];
+		int[] capacities = new int[islands.size()];
+		for (int i = 1; i < islands.size(); i++) {
+			for (int edge : graph.getIncidentEdges(i)) {
+				if (graph.getOtherIsland(edge, i) == this.parents[i]) {
+					solution[edge] = this.bridgesToParent[i];
+				}
+			}
+		}
+		for (int i = 0; i < islands.size(); i++) {
+			capacities[i] = islands.get(i).getBridgeCapacity();
+		}
+		for (int repair = 0; repair <= MAX_REPAIRS; repair++) {
+			BacktrackingSolver solver = new BacktrackingSolver(SolverState.of(graph, Collections.emptyList()),
+					EdgeOrder.MOST_CONSTRAINED, true, false, 0);
+			solver.setMonitor(new SearchMonitor(SolverLimits.nodeBudget(UNIQUENESS_NODE_BUDGET), null, null));
+			List<int[]> solutions;
+			try {
+				solutions = solver.solveAll(2);
+			} catch (SearchAbortedException e) {
+				return Optional.empty();
+			}
+			if (solutions.size() < 2) {
+				return Optional.of(islands);
+			}
+			int[] other = Arrays.equals(solutions.get(0), solution) ? solutions.get(1) : solutions.get(0);
+			int edge = this.pickRepair(graph, solution, other, capacities);
+			if (edge == -1) {
+				return Optional.empty();
+			}
+			solution[edge]++;
+			capacities[graph.getIsland1(edge)]++;
+			capacities[graph.getIsland2(edge)]++;
+			islands = new ArrayList<Island>(islands.size());
+			for (int i = 0; i < capacities.length; i++) {
+				islands.add(new Island(this.rows[i], this.columns[i], capacities[i]));
+			}
+			graph = IslandGraph.of(islands);
+		}
+		return Optional.empty();
+	}
+
+	/**
+	 * Returns a random edge on which {@code solution} and {@code other} differ
+	 * and which can take another bridge in {@code solution}, or {@code -1} if
+	 * there is none. The capacities have to stay at most 8, and an edge without
+	 * bridges must not cross a bridge of {@code solution}. Edges on which
+	 * {@code other} has more bridges are preferred: a double bridge there rules
+	 * out shifting bridges the way {@code other} does.
+	 */
+	private int pickRepair(IslandGraph graph, int[] solution, int[] other, int[] capacities) {
+		int[] candidates = new int[solution.length];
+		int nrOfPreferred = 0;
+		int nrOfCandidates = 0;
+		for (int edge = 0; edge < solution.length; edge++) {
+			if (solution[edge] == other[edge] || solution[edge] == 2 || capacities[graph.getIsland1(edge)] == 8
+					|| capacities[graph.getIsland2(edge)] == 8) {
+				continue;
+			}
+			boolean possible = true;
+			if (solution[edge] == 0) {
+				for (int crossing : graph.getCrossingEdges(edge)) {
+					possible &= solution[crossing] == 0;
+				}
+			}
+			if (!possible) {
+				continue;
+			}
+			candidates[nrOfCandidates++] = edge;
+			if (other[edge] > solution[edge]) {
+				// keep the preferred edges in front
+				candidates[nrOfCandidates - 1] = candidates[nrOfPreferred];
+				candidates[nrOfPreferred++] = edge;
+			}
+		}
+		if (nrOfCandidates == 0) {
+			return -1;
+		}
+		return candidates[this.random.nextInt(nrOfPreferred > 0 ? nrOfPreferred : nrOfCandidates)];
+	}
+
+	/**
+	 * Places {@code nrOfIslands} islands, each new island connected to an
+	 * earlier one. If no island can be expanded anymore, the last quarter of the
+	 * islands is removed and growing continues from the remaining ones, at most
+	 * {@link #MAX_RESTARTS} times.
+	 *
+	 * @return {@code false} if the board got stuck before all islands were
+	 *         placed
+	 */
+	private boolean grow(int nrOfIslands) {
+		if (nrOfIslands < 1 || nrOfIslands > this.nrOfRows * this.nrOfColumns) {
+			return false;
+		}
+		return this.grow(nrOfIslands, this.random.nextInt(this.nrOfRows), this.random.nextInt(this.nrOfColumns));
+	}
+
+	/**
+	 * Places {@code nrOfIslands} islands starting with an island at the given
+	 * position, see {@link #grow(int)}. Islands never lie in neighbouring cells,
+	 * as in the games of the original generator. Only boards with more than a
+	 * fifth of the cells being islands, the old limit of the new game dialog, are
+	 * grown with touching islands: if islands which do not touch got stuck, or
+	 * right away beyond a quarter of the cells, where they hardly ever fit.
+	 */
+	private boolean grow(int nrOfIslands, int rootRow, int rootColumn) {
+		if (nrOfIslands < 1 || nrOfIslands > this.nrOfRows * this.nrOfColumns) {
+			return false;
+		}
+		int nrOfCells = this.nrOfRows * this.nrOfColumns;
+		if (nrOfIslands * 4 <= nrOfCells && this.grow(nrOfIslands, rootRow, rootColumn, false)) {
+			return true;
+		}
+		return nrOfIslands * 5 > nrOfCells && this.grow(nrOfIslands, rootRow, rootColumn, true);
+	}
+
+	/**
+	 * Places {@code nrOfIslands} islands starting with an island at the given
+	 * position. A new island is at least two cells away from the island it is
+	 * connected from and touches no other island, unless {@code touching} is
+	 * set.
+	 */
+	private boolean grow(int nrOfIslands, int rootRow, int rootColumn, boolean touching) {
+		this.cells = new byte[this.nrOfRows * this.nrOfColumns];
+		this.rows = new int[nrOfIslands];
+		this.columns = new int[nrOfIslands];
+		this.parents = new int[nrOfIslands];
+		this.usedDirections = new int[nrOfIslands];
+		this.frontier = new int[nrOfIslands];
+		// dense boards need short bridges, else the bridges block most cells
+		int minDistance = touching ? 1 : 2;
+		int maxDistance = nrOfIslands * 4 > this.cells.length ? 2 : 3;
+		// candidate directions and distances of an island, d * 4 + distance
+		int[] candidates = new int[DELTA_ROW.length * maxDistance];
+
+		this.rows[0] = rootRow;
+		this.columns[0] = rootColumn;
+		this.parents[0] = -1;
+		int size = this.rebuild(1);
+		int restarts = 0;
+		while (size < nrOfIslands) {
+			if (this.frontierSize == 0) {
+				// a cancelled attempt of a race gives up at the next restart
+				if (restarts++ == MAX_RESTARTS || Thread.currentThread().isInterrupted()) {
+					return false;
+				}
+				size = this.rebuild(Math.max(1, size - Math.max(1, size / 4)));
+				continue;
+			}
+			int position = this.random.nextInt(this.frontierSize);
+			int island = this.frontier[position];
+			int nrOfCandidates = 0;
+			for (int d = 0; d < DELTA_ROW.length; d++) {
+				if ((this.usedDirections[island] & 1 << d) != 0) {
+					continue;
+				}
+				for (int distance = 1; distance <= maxDistance
+						&& this.isWater(this.rows[island] + distance * DELTA_ROW[d],
+								this.columns[island] + distance * DELTA_COLUMN[d]); distance++) {
+					if (distance >= minDistance && (touching || !this.touchesIsland(
+							this.rows[island] + distance * DELTA_ROW[d], this.columns[island] + distance * DELTA_COLUMN[d]))) {
+						candidates[nrOfCandidates++] = d * 4 + distance;
+					}
+				}
+			}
+			if (nrOfCandidates == 0) {
+				// cells only get occupied, the island can not be expanded anymore
+				this.frontier[position] = this.frontier[--this.frontierSize];
+				continue;
+			}
+			int candidate = candidates[this.random.nextInt(nrOfCandidates)];
+			int d = candidate / 4;
+			int distance = candidate % 4;
+			this.rows[size] = this.rows[island] + distance * DELTA_ROW[d];
+			this.columns[size] = this.columns[island] + distance * DELTA_COLUMN[d];
+			this.parents[size] = island;
+			this.place(size);
+			this.frontier[this.frontierSize++] = size;
+			size++;
+		}
+		return true;
+	}
+
+	/**
+	 * Resets the board to the first {@code size} islands placed, all of them
+	 * become expandable again.
+	 *
+	 * @return {@code size}
+	 */
+	private int rebuild(int size) {
+		Arrays.fill(this.cells, WATER);
+		this.frontierSize = 0;
+		for (int i = 0; i < size; i++) {
+			this.usedDirections[i] = 0;
+			this.place(i);
+			this.frontier[this.frontierSize++] = i;
+		}
+		return size;
+	}
+
+	/**
+	 * Marks the cell of {@code island} and the bridge to the island it was
+	 * connected from
+	 */
+	private void place(int island) {
+		int row = this.rows[island];
+		int column = this.columns[island];
+		this.cells[row * this.nrOfColumns + column] = ISLAND;
+		int parent = this.parents[island];
+		if (parent == -1) {
+			return;
+		}
+		int d;
+		if (row == this.rows[parent]) {
+			d = column > this.columns[parent] ? EAST : WEST;
+		} else {
+			d = row > this.rows[parent] ? SOUTH : NORTH;
+		}
+		this.usedDirections[parent] |= 1 << d;
+		// the opposite direction of d
+		this.usedDirections[island] |= 1 << (d ^ 1);
+		for (int r = this.rows[parent] + DELTA_ROW[d], c = this.columns[parent] + DELTA_COLUMN[d]; r != row
+				|| c != column; r += DELTA_ROW[d], c += DELTA_COLUMN[d]) {
+			this.cells[r * this.nrOfColumns + c] = BRIDGE;
+		}
+	}
+
+	/**
+	 * Returns the index of the island {@code island} was connected from in the
+	 * last generated game, {@code -1} for the first island
+	 */
+	int getParent(int island) {
+		return this.parents[island];
+	}
+
+	/**
+	 * Returns the number of bridges between {@code island} and its parent in the
+	 * solution of the last generated game
+	 */
+	int getBridgesToParent(int island) {
+		return this.bridgesToParent[island];
+	}
+
+	/**
+	 * Returns {@code true} if a cell next to the given one is an island
+	 */
+	private boolean touchesIsland(int row, int column) {
+		for (int d = 0; d < DELTA_ROW.length; d++) {
+			int r = row + DELTA_ROW[d];
+			int c = column + DELTA_COLUMN[d];
+			if (r >= 0 && r < this.nrOfRows && c >= 0 && c < this.nrOfColumns
+					&& this.cells[r * this.nrOfColumns + c] == ISLAND) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Returns {@code true} if the cell is on the board and neither an island nor
+	 * covered by a bridge of the last grown game
+	 */
+	boolean isWater(int row, int column) {
+		return row >= 0 && row < this.nrOfRows && column >= 0 && column < this.nrOfColumns
+				&& this.cells[row * this.nrOfColumns + column] == WATER;
+	}
+
+	/**
+	 * Randomly builds one or two bridges between each island of the grown layout
+	 * and the island it was connected from, the capacities of the islands are
+	 * the numbers of bridges build to them.
+	 */
+	private List<Island> rollCapacities() {
+		int[] capacities = new int[this.rows.length];
+		this.bridgesToParent = new int[this.rows.length];
+		for (int i = 1; i < capacities.length; i++) {
+			int bridges = this.random.nextBoolean() ? 2 : 1;
+			this.bridgesToParent[i] = bridges;
+			capacities[i] += bridges;
+			capacities[this.parents[i]] += bridges;
+		}
+		List<Island> islands = new ArrayList<Island>(capacities.length);
+		for (int i = 0; i < capacities.length; i++) {
+			islands.add(new Island(this.rows[i], this.columns[i], capacities[i]));
+		}
+		return islands;
+	}
+
+}
@@ -0,0 +1,255 @@
+package model;
+
+import java.util.Arrays;
+
+/**
+ * Solves a bridges game by encoding it into clauses for the
+ * {@link ClauseLearningSolver}.
+ * <p>
+ * Every edge gets two variables: {@code one} if the edge carries at least one
+ * bridge and {@code two} if it carries two bridges, with {@code two -> one}.
+ * The clauses are:
+ * <li>Capacity: the {@code one} and {@code two} variables of the edges of an
+ * island sum up to its capacity, encoded as an at most and an at least
+ * constraint with sequential counters
+ * <li>Crossing: two crossing edges do not both carry a bridge
+ * <li>Domains: the domains of the {@link SolverState} the solver starts from
+ * <p>
+ * Connectivity is added lazily: if a model leaves the islands in several
+ * groups, a clause demanding a bridge leaving each group is added and the
+ * clauses are solved again.
+ *
+ * @author grimm
+ *
+ */
+final class SatBridgesSolver {
+	private final SolverState state;
+	private final IslandGraph graph;
+	private final ClauseLearningSolver solver = new ClauseLearningSolver();
+	private final int[] oneVariable;
+	private final int[] twoVariable;
+	private int nrOfCuts;
+
+	/**
+	 * @param state the state to search from, its domains are encoded as clauses
+	 */
+	SatBridgesSolver(SolverState state) {
+		this.state = state;
+		this.graph = state.getGraph();
+		int nrOfEdges = this.graph.getNrOfEdges();
+		this.oneVariable = new int[nrOfEdges];
+		this.twoVariable = new int[nrOfEdges];
+		for (int e = 0; e < nrOfEdges; e++) {
+			this.oneVariable[e] = this.solver.newVariable();
+			this.twoVariable[e] = this.solver.newVariable();
+		}
+	}
+
+	/**
+	 * Sets the monitor which stops the search on interrupts and limits
+	 */
+	void setMonitor(SearchMonitor monitor) {
+		this.solver.setMonitor(monitor);
+	}
+
+	/**
+	 * Returns the number of connectivity clauses added so far
+	 */
+	int getNrOfCuts() {
+		return this.nrOfCuts;
+	}
+
+	/**
+	 * Returns the number of conflicts of the clause learning search
+	 */
+	long getConflicts() {
+		return this.solver.getConflicts();
+	}
+
+	/**
+	 * Searches for a solution.
+	 *
+	 * @return the number of bridges on each edge of the {@link IslandGraph} or
+	 *         {@code null} if the game has no solution
+	 * @throws SearchAbortedException if the thread was interrupted or the
+	 *                                {@link SearchMonitor} stopped the search
+	 */
+	int[] solve() {
+		if (!this.encode()) {
+			return null;
+		}
+		int nrOfEdges = this.graph.getNrOfEdges();
+		int[] solution = new int[nrOfEdges];
+		int[] component = new int[this.graph.getNrOfIslands()];
+		while (this.solver.solve()) {
+			for (int e = 0; e < nrOfEdges; e++) {
+				solution[e] = (this.solver.getValue(this.oneVariable[e]) ? 1 : 0)
+						+ (this.solver.getValue(this.twoVariable[e]) ? 1 : 0);
+			}
+			int nrOfComponents = this.findComponents(solution, component);
+			if (nrOfComponents == 1) {
+				return solution;
+			}
+			if (!this.addCuts(component, nrOfComponents)) {
+				return null;
+			}
+		}
+		return null;
+	}
+
+	private boolean encode() {
+		int nrOfEdges = this.graph.getNrOfEdges();
+		for (int e = 0; e < nrOfEdges; e++) {
+			int one = this.oneVariable[e];
+			int two = this.twoVariable[e];
+			boolean ok = this.solver.addClause(lit(two, false), lit(one, true));
+			if (this.state.getLower(e) >= 1) {
+				ok &= this.solver.addClause(lit(one, true));
+			}
+			if (this.state.getLower(e) == 2) {
+				ok &= this.solver.addClause(lit(two, true));
+			}
+			if (this.state.getUpper(e) == 0) {
+				ok &= this.solver.addClause(lit(one, false));
+			}
+			if (this.state.getUpper(e) <= 1) {
+				ok &= this.solver.addClause(lit(two, false));
+			}
+			if ((this.state.getDomain(e) & 2) == 0) {
+				// one bridge is excluded: one -> two
+				ok &= this.solver.addClause(lit(one, false), lit(two, true));
+			}
+			for (int crossing : this.graph.getCrossingEdges(e)) {
+				if (crossing > e) {
+					ok &= this.solver.addClause(lit(one, false), lit(this.oneVariable[crossing], false));
+				}
+			}
+			if (!ok) {
+				return false;
+			}
+		}
+		for (int island = 0; island < this.graph.getNrOfIslands(); island++) {
+			int[] incident = this.graph.getIncidentEdges(island);
+			int[] positive = new int[2 * incident.length];
+			int[] negative = new int[2 * incident.length];
+			for (int k = 0; k < incident.length; k++) {
+				positive[2 * k] = lit(this.oneVariable[incident[k]], true);
+				positive[2 * k + 1] = lit(this.twoVariable[incident[k]], true);
+				negative[2 * k] = positive[2 * k] ^ 1;
+				negative[2 * k + 1] = positive[2 * k + 1] ^ 1;
+			}
+			int capacity = this.state.getCapacity(island);
+			// exactly capacity positive literals: at most capacity positive and at most
+			// length - capacity negative literals
+			if (!this.addAtMost(positive, capacity) || !this.addAtMost(negative, positive.length - capacity)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static int lit(int variable, boolean positive) {
+		return ClauseLearningSolver.literal(variable, positive);
+	}
+
+	/**
+	 * Adds clauses allowing at most {@code k} of {@code literals} to be true,
+	 * using a sequential counter: register {@code s[i][j]} is true if at least
+	 * {@code j + 1} of the first {@code i + 1} literals are true.
+	 */
+	private boolean addAtMost(int[] literals, int k) {
+		int n = literals.length;
+		if (k < 0) {
+			return this.solver.addClause();
+		}
+		if (k >= n) {
+			return true;
+		}
+		if (k == 0) {
+			for (int literal : literals) {
+				if (!this.solver.addClause(literal ^ 1)) {
+					return false;
+				}
+			}
+			return true;
+		}
+		int[][] s = new int[n - 1][k];
+		for (int i = 0; i < n - 1; i++) {
+			for (int j = 0; j < k; j++) {
+				s[i][j] = this.solver.newVariable();
+			}
+		}
+		boolean ok = this.solver.addClause(literals[0] ^ 1, lit(s[0][0], true));
+		for (int j = 1; j < k; j++) {
+			ok &= this.solver.addClause(lit(s[0][j], false));
+		}
+		for (int i = 1; i < n - 1; i++) {
+			ok &= this.solver.addClause(literals[i] ^ 1, lit(s[i][0], true));
+			ok &= this.solver.addClause(lit(s[i - 1][0], false), lit(s[i][0], true));
+			for (int j = 1; j < k; j++) {
+				ok &= this.solver.addClause(literals[i] ^ 1, lit(s[i - 1][j - 1], false), lit(s[i][j], true));
+				ok &= this.solver.addClause(lit(s[i - 1][j], false), lit(s[i][j], true));
+			}
+			ok &= this.solver.addClause(literals[i] ^ 1, lit(s[i - 1][k - 1], false));
+		}
+		ok &= this.solver.addClause(literals[n - 1] ^ 1, lit(s[n - 2][k - 1], false));
+		return ok;
+	}
+
+	/**
+	 * Labels the islands with the number of their connected group.
+	 *
+	 * @return the number of groups
+	 */
+	private int findComponents(int[] solution, int[] component) {
+		Arrays.fill(component, -1);
+		int[] stack = new int[component.length];
+		int nrOfComponents = 0;
+		for (int start = 0; start < component.length; start++) {
+			if (component[start] != -1) {
+				continue;
+			}
+			int size = 0;
+			stack[size++] = start;
+			component[start] = nrOfComponents;
+			while (size > 0) {
+				int island = stack[--size];
+				for (int e : this.graph.getIncidentEdges(island)) {
+					int other = this.graph.getOtherIsland(e, island);
+					if (solution[e] > 0 && component[other] == -1) {
+						component[other] = nrOfComponents;
+						stack[size++] = other;
+					}
+				}
+			}
+			nrOfComponents++;
+		}
+		return nrOfComponents;
+	}
+
+	/**
+	 * Adds a clause for each group demanding a bridge to another group.
+	 *
+	 * @return {@code false} if a group can not be left, hence the game has no
+	 *         solution
+	 */
+	private boolean addCuts(int[] component, int nrOfComponents) {
+		for (int c = 0; c < nrOfComponents; c++) {
+			int size = 0;
+			int[] cut = new int[this.graph.getNrOfEdges()];
+			for (int e = 0; e < this.graph.getNrOfEdges(); e++) {
+				boolean inside1 = component[this.graph.getIsland1(e)] == c;
+				boolean inside2 = component[this.graph.getIsland2(e)] == c;
+				if (inside1 != inside2) {
+					cut[size++] = lit(this.oneVariable[e], true);
+				}
+			}
+			this.nrOfCuts++;
+			if (!this.solver.addClause(Arrays.copyOf(cut, size))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+}
@@ -0,0 +1,29 @@
+package model;
+
+import java.util.concurrent.CancellationException;
+
+import common.SolveStatus;
+
+/**
+ * Thrown by a {@link SearchMonitor} to stop a search before it finished.
+ * 
+ * @author grimm
+ *
+ */
+class SearchAbortedException extends CancellationException {
+	private static final long serialVersionUID = 1L;
+	private final SolveStatus status;
+
+	SearchAbortedException(SolveStatus status) {
+		super("Search aborted: " + status);
+		this.status = status;
+	}
+
+	/**
+	 * Returns why the search was stopped
+	 */
+	SolveStatus getStatus() {
+		return status;
+	}
+
+}
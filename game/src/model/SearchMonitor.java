@@ -0,0 +1,155 @@
+package model;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import common.CancellationToken;
+import common.SolveStatus;
+import common.SolverLimits;
+import common.SolverProgress;
+import common.SolverProgressListener;
+
+/**
+ * Enforces {@link SolverLimits} and a {@link CancellationToken} for one solving
+ * run and reports the progress. Solvers call {@link #nodeVisited(SolverState)}
+ * for every search node and {@link #check(SolverState)} during long running
+ * work inside a node, the monitor aborts the search with a
+ * {@link SearchAbortedException} when a limit is reached, the token is
+ * cancelled or the thread is interrupted. The progress is reported whenever
+ * the progress interval elapsed at one of these calls, so phases visiting no
+ * nodes, like probing, report as well.
+ * <p>
+ * One monitor can be shared by searches running in several threads, the nodes
+ * of all searches count against the same budget.
+ * 
+ * @author grimm
+ *
+ */
+final class SearchMonitor {
+	// durations from this length on are treated as unlimited (about 73 years)
+	private static final long MAX_NANOS = Long.MAX_VALUE / 4;
+	private final long start = System.nanoTime();
+	private final boolean timeLimited;
+	private final long deadline;
+	private final long nodeBudget;
+	private final long progressInterval;
+	private final CancellationToken token;
+	private final SolverProgressListener listener;
+	private final AtomicLong nodes = new AtomicLong();
+	private final AtomicLong nextReport;
+
+	/**
+	 * Creates a monitor without limits which only stops on interrupts
+	 */
+	SearchMonitor() {
+		this(SolverLimits.UNLIMITED, null, null);
+	}
+
+	/**
+	 * @param limits   the limits of the search
+	 * @param token    cancels the search, may be {@code null}
+	 * @param listener receives the progress, may be {@code null}
+	 */
+	SearchMonitor(SolverLimits limits, CancellationToken token, SolverProgressListener listener) {
+		Duration timeLimit = limits.getTimeLimit();
+		long limitNanos = timeLimit == null ? MAX_NANOS : saturatedNanos(timeLimit);
+		// nano times may only be compared by their difference
+		this.timeLimited = limitNanos < MAX_NANOS;
+		this.deadline = this.start + limitNanos;
+		this.nodeBudget = limits.getNodeBudget();
+		this.progressInterval = saturatedNanos(limits.getProgressInterval());
+		this.token = token;
+		this.listener = listener;
+		this.nextReport = new AtomicLong(this.start + this.progressInterval);
+	}
+
+	private static long saturatedNanos(Duration duration) {
+		try {
+			return Math.min(MAX_NANOS, Math.max(0, duration.toNanos()));
+		} catch (ArithmeticException e) {
+			return MAX_NANOS;
+		}
+	}
+
+	/**
+	 * Returns the number of nodes visited by all searches using this monitor
+	 */
+	long getNodes() {
+		return this.nodes.get();
+	}
+
+	/**
+	 * Counts a search node, checks the limits and reports the progress if the
+	 * interval elapsed.
+	 * 
+	 * @param state the state of the search node
+	 * @throws SearchAbortedException if the search has to stop
+	 */
+	void nodeVisited(SolverState state) {
+		long visited = this.nodes.incrementAndGet();
+		if (visited > this.nodeBudget) {
+			throw new SearchAbortedException(SolveStatus.NODE_BUDGET_EXHAUSTED);
+		}
+		this.check(state);
+	}
+
+	/**
+	 * Checks the cancellation and time limit without counting a node and reports
+	 * the progress of {@code state} if the interval elapsed. Solvers call this
+	 * during long running work inside a node.
+	 * 
+	 * @param state the state the work is done on
+	 * @return the current {@link System#nanoTime()}
+	 * @throws SearchAbortedException if the search has to stop
+	 */
+	long check(SolverState state) {
+		long now = this.check();
+		if (this.listener != null) {
+			long report = this.nextReport.get();
+			if (now - report >= 0 && this.nextReport.compareAndSet(report, now + this.progressInterval)) {
+				this.listener.progressChanged(this.getProgress(state, now));
+			}
+		}
+		return now;
+	}
+
+	/**
+	 * Checks the cancellation and time limit without counting a node or
+	 * reporting the progress, for solvers working without a
+	 * {@link SolverState}.
+	 * 
+	 * @return the current {@link System#nanoTime()}
+	 * @throws SearchAbortedException if the search has to stop
+	 */
+	long check() {
+		if ((this.token != null && this.token.isCancelled()) || Thread.currentThread().isInterrupted()) {
+			throw new SearchAbortedException(SolveStatus.CANCELLED);
+		}
+		long now = System.nanoTime();
+		if (this.timeLimited && now - this.deadline > 0) {
+			throw new SearchAbortedException(SolveStatus.TIME_LIMIT_REACHED);
+		}
+		return now;
+	}
+
+	private SolverProgress getProgress(SolverState state, long now) {
+		int nrOfEdges = state.getGraph().getNrOfEdges();
+		int fixed = 0;
+		for (int e = 0; e < nrOfEdges; e++) {
+			if (state.isDecided(e)) {
+				fixed++;
+			}
+		}
+		return new SolverProgress(this.nodes.get(), fixed, nrOfEdges, Duration.ofNanos(now - this.start));
+	}
+
+	/**
+	 * Reports the final progress, independent of the interval
+	 */
+	void reportFinished(SolverState state) {
+		if (this.listener != null) {
+			this.listener.progressChanged(this.getProgress(state, System.nanoTime()));
+		}
+	}
+
+}
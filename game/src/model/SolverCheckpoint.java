@@ -0,0 +1,226 @@
+package model;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import common.GameFileFormatException;
+import model.BacktrackingSolver.Frontier;
+
+/**
+ * Snapshot of a running search from which the search can be resumed: the game
+ * as it was when the search started, the {@link Frontier} of the search and
+ * the number of nodes visited so far.
+ * <p>
+ * The islands are kept in the order of {@link GameModelIO#FILE_ORDER}, bridges
+ * and decisions refer to their edges by the indices of the two islands in this
+ * order. The binary file consists of:
+ * <li>magic number and version
+ * <li>rows, columns and the column, row and capacity of every island
+ * <li>the bridges build when the search started as island indices and count
+ * <li>the number of visited nodes
+ * <li>for every level of the frontier the island indices of the edge and one
+ * byte holding the value and the values still to be tried
+ * <p>
+ * All numbers are written as variable length integers, a checkpoint of a
+ * search with a few hundred levels takes about one kilobyte.
+ *
+ * @author grimm
+ *
+ */
+final class SolverCheckpoint {
+	private static final int MAGIC = 0x42474350;
+	private static final int VERSION = 1;
+	private final GameModel board;
+	private final IslandGraph graph;
+	private final Frontier frontier;
+	private final long nodes;
+
+	/**
+	 * @param board    the game when the search started
+	 * @param graph    the graph of the islands of {@code board} ordered by
+	 *                 {@link GameModelIO#FILE_ORDER}
+	 * @param frontier the frontier of the search, refers to edges of
+	 *                 {@code graph}
+	 * @param nodes    the number of nodes visited so far
+	 */
+	SolverCheckpoint(GameModel board, IslandGraph graph, Frontier frontier, long nodes) {
+		this.board = board;
+		this.graph = graph;
+		this.frontier = frontier;
+		this.nodes = nodes;
+	}
+
+	GameModel getBoard() {
+		return this.board;
+	}
+
+	IslandGraph getGraph() {
+		return this.graph;
+	}
+
+	Frontier getFrontier() {
+		return this.frontier;
+	}
+
+	long getNodes() {
+		return this.nodes;
+	}
+
+	/**
+	 * Writes the checkpoint to a temporary file which then replaces
+	 * {@code file}, so a crash while writing leaves the previous checkpoint
+	 * intact.
+	 *
+	 * @param file the checkpoint file
+	 * @throws IOException if writing fails
+	 */
+	void write(Path file) throws IOException {
+		Path temporaryFile = file.resolveSibling(file.getFileName() + ".tmp");
+		try (DataOutputStream out = new DataOutputStream(
+				new BufferedOutputStream(Files.newOutputStream(temporaryFile)))) {
+			out.writeInt(MAGIC);
+			out.writeByte(VERSION);
+			writeVarLong(out, this.board.getNrOfRows());
+			writeVarLong(out, this.board.getNrOfColumns());
+			writeVarLong(out, this.graph.getNrOfIslands());
+			for (int i = 0; i < this.graph.getNrOfIslands(); i++) {
+				Island island = this.graph.getIsland(i);
+				writeVarLong(out, island.getColumn());
+				writeVarLong(out, island.getRow());
+				writeVarLong(out, island.getBridgeCapacity());
+			}
+			int[] bridgeCounts = this.graph.getBridgeCounts(this.board.getBridges());
+			int nrOfBridges = 0;
+			for (int count : bridgeCounts) {
+				if (count > 0) {
+					nrOfBridges++;
+				}
+			}
+			writeVarLong(out, nrOfBridges);
+			for (int e = 0; e < bridgeCounts.length; e++) {
+				if (bridgeCounts[e] > 0) {
+					this.writeEdge(out, e);
+					out.writeByte(bridgeCounts[e]);
+				}
+			}
+			writeVarLong(out, this.nodes);
+			writeVarLong(out, this.frontier.getDepth());
+			for (int level = 0; level < this.frontier.getDepth(); level++) {
+				this.writeEdge(out, this.frontier.getEdge(level));
+				out.writeByte(this.frontier.getValue(level) | this.frontier.getRemainingValues(level) << 2);
+			}
+		}
+		Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	private void writeEdge(DataOutputStream out, int edge) throws IOException {
+		writeVarLong(out, this.graph.getIsland1(edge));
+		writeVarLong(out, this.graph.getIsland2(edge));
+	}
+
+	/**
+	 * Reads a checkpoint written by {@link #write(Path)}.
+	 *
+	 * @param file the checkpoint file
+	 * @return the checkpoint
+	 * @throws IOException             if reading fails
+	 * @throws GameFileFormatException if the file is no valid checkpoint
+	 */
+	static SolverCheckpoint read(Path file) throws IOException, GameFileFormatException {
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+			if (in.readInt() != MAGIC || in.readUnsignedByte() != VERSION) {
+				throw new GameFileFormatException("Not a solver checkpoint: " + file);
+			}
+			GameModel board = new GameModel();
+			board.setNrOfRows(readVarInt(in));
+			board.setNrOfColumns(readVarInt(in));
+			int nrOfIslands = readVarInt(in);
+			List<Island> islands = new ArrayList<Island>(nrOfIslands);
+			for (int i = 0; i < nrOfIslands; i++) {
+				int column = readVarInt(in);
+				int row = readVarInt(in);
+				islands.add(new Island(row, column, readVarInt(in)));
+			}
+			board.setIslands(islands);
+			board.setNrOfIslands(nrOfIslands);
+			IslandGraph graph = IslandGraph.of(islands);
+			int nrOfBridges = readVarInt(in);
+			List<Bridge> bridges = new ArrayList<Bridge>(nrOfBridges);
+			for (int b = 0; b < nrOfBridges; b++) {
+				int edge = readEdge(in, graph);
+				int count = in.readUnsignedByte();
+				if (count != 1 && count != 2) {
+					throw new GameFileFormatException("Invalid number of bridges in checkpoint " + count);
+				}
+				bridges.add(new Bridge(graph.getIsland(graph.getIsland1(edge)), graph.getIsland(graph.getIsland2(edge)),
+						count == 2, true));
+			}
+			board.setBridges(bridges);
+			long nodes = readVarLong(in);
+			int depth = readVarInt(in);
+			if (depth > graph.getNrOfEdges()) {
+				throw new GameFileFormatException("Invalid checkpoint depth " + depth);
+			}
+			int[] edges = new int[depth];
+			int[] values = new int[depth];
+			int[] remainingValues = new int[depth];
+			for (int level = 0; level < depth; level++) {
+				edges[level] = readEdge(in, graph);
+				int packed = in.readUnsignedByte();
+				values[level] = packed & 3;
+				remainingValues[level] = packed >>> 2;
+			}
+			return new SolverCheckpoint(board, graph, new Frontier(edges, values, remainingValues), nodes);
+		} catch (IndexOutOfBoundsException e) {
+			throw new GameFileFormatException("Invalid island index in checkpoint " + file);
+		}
+	}
+
+	private static int readEdge(DataInputStream in, IslandGraph graph) throws IOException, GameFileFormatException {
+		int island1 = readVarInt(in);
+		int island2 = readVarInt(in);
+		if (island1 >= graph.getNrOfIslands() || island2 >= graph.getNrOfIslands()
+				|| graph.getEdge(island1, island2) == -1) {
+			throw new GameFileFormatException(
+					String.format("Islands %d and %d are no neighbours", island1, island2));
+		}
+		return graph.getEdge(island1, island2);
+	}
+
+	private static void writeVarLong(DataOutputStream out, long value) throws IOException {
+		while ((value & ~0x7FL) != 0) {
+			out.writeByte((int) (value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		out.writeByte((int) value);
+	}
+
+	private static long readVarLong(DataInputStream in) throws IOException, GameFileFormatException {
+		long value = 0;
+		for (int shift = 0; shift < 64; shift += 7) {
+			int b = in.readUnsignedByte();
+			value |= (long) (b & 0x7F) << shift;
+			if ((b & 0x80) == 0) {
+				return value;
+			}
+		}
+		throw new GameFileFormatException("Malformed number in checkpoint");
+	}
+
+	private static int readVarInt(DataInputStream in) throws IOException, GameFileFormatException {
+		long value = readVarLong(in);
+		if (value > Integer.MAX_VALUE) {
+			throw new GameFileFormatException("Number out of range in checkpoint");
+		}
+		return (int) value;
+	}
+
+}
@@ -0,0 +1,255 @@
+package model;
+
+import java.util.List;
+
+/**
+ * Search state of a solver working on an {@link IslandGraph}. For each edge the
+ * state holds its domain, the set of numbers of bridges (0, 1 or 2) the edge
+ * can still carry, as a bit set: bit {@code v} is set if {@code v} bridges are
+ * possible. The minimum ({@code lower}) and maximum ({@code upper}) of each
+ * domain are kept up to date as well. An edge is decided if its domain holds a
+ * single value.
+ * <p>
+ * All changes of the domains are recorded on a trail, so a solver can return
+ * to an earlier state with {@link #undo(int)} instead of copying the state.
+ * Every edge whose domain changed is queued until a {@link Propagator} polls
+ * it with {@link #pollChangedEdge()}. As a domain can lose at most two values
+ * the trail and the queue never grow beyond their initial size, changing the
+ * state does not allocate.
+ *
+ * @author grimm
+ *
+ */
+final class SolverState {
+	/** domain of an edge which can carry 0, 1 or 2 bridges */
+	static final int ALL_VALUES = 0b111;
+	private final IslandGraph graph;
+	// number of bridges each island needs
+	private final int[] capacity;
+	private final int[] domain;
+	private final int[] lower;
+	private final int[] upper;
+	// entries of two ints: edge, previous domain
+	private final int[] trail;
+	private int trailSize;
+	private long modificationCount;
+	// ring buffer of the edges changed since the last poll
+	private final int[] changedEdges;
+	private final boolean[] changed;
+	private int changedHead;
+	private int nrOfChangedEdges;
+
+	/**
+	 * Creates the state of a game where the bridges in {@code bridgeCounts} are
+	 * already build. Every other edge can carry up to two bridges. All edges are
+	 * queued as changed.
+	 *
+	 * @param graph        the {@link IslandGraph} of the game
+	 * @param bridgeCounts number of bridges build on each edge
+	 */
+	SolverState(IslandGraph graph, int[] bridgeCounts) {
+		this.graph = graph;
+		int nrOfEdges = graph.getNrOfEdges();
+		this.capacity = new int[graph.getNrOfIslands()];
+		for (int i = 0; i < this.capacity.length; i++) {
+			this.capacity[i] = graph.getIsland(i).getBridgeCapacity();
+		}
+		this.domain = new int[nrOfEdges];
+		this.lower = new int[nrOfEdges];
+		this.upper = new int[nrOfEdges];
+		for (int e = 0; e < nrOfEdges; e++) {
+			this.setDomain(e, valuesBetween(Math.min(2, bridgeCounts[e]), 2));
+		}
+		this.trail = new int[4 * nrOfEdges];
+		this.changedEdges = new int[nrOfEdges];
+		this.changed = new boolean[nrOfEdges];
+		for (int e = 0; e < nrOfEdges; e++) {
+			this.markChanged(e);
+		}
+	}
+
+	/**
+	 * Creates the state of the game as currently played in {@code islands} and
+	 * {@code bridges}.
+	 */
+	static SolverState of(IslandGraph graph, List<Bridge> bridges) {
+		return new SolverState(graph, graph.getBridgeCounts(bridges));
+	}
+
+	/**
+	 * Creates an independent copy of {@code other}, the trail is not copied.
+	 */
+	SolverState(SolverState other) {
+		this.graph = other.graph;
+		this.capacity = other.capacity;
+		this.domain = other.domain.clone();
+		this.lower = other.lower.clone();
+		this.upper = other.upper.clone();
+		this.trail = new int[other.trail.length];
+		this.changedEdges = other.changedEdges.clone();
+		this.changed = other.changed.clone();
+		this.changedHead = other.changedHead;
+		this.nrOfChangedEdges = other.nrOfChangedEdges;
+	}
+
+	/**
+	 * Returns the domain containing the values from {@code lower} to
+	 * {@code upper}
+	 */
+	static int valuesBetween(int lower, int upper) {
+		if (lower > upper) {
+			return 0;
+		}
+		return ALL_VALUES & (ALL_VALUES << lower) & (ALL_VALUES >>> (2 - upper));
+	}
+
+	IslandGraph getGraph() {
+		return this.graph;
+	}
+
+	int getCapacity(int island) {
+		return this.capacity[island];
+	}
+
+	/**
+	 * Returns the bit set of the numbers of bridges {@code edge} can carry
+	 */
+	int getDomain(int edge) {
+		return this.domain[edge];
+	}
+
+	int getLower(int edge) {
+		return this.lower[edge];
+	}
+
+	int getUpper(int edge) {
+		return this.upper[edge];
+	}
+
+	/**
+	 * Returns the lower bounds of all edges. The returned array must not be
+	 * modified.
+	 */
+	int[] getLowerBounds() {
+		return this.lower;
+	}
+
+	/**
+	 * Returns the upper bounds of all edges. The returned array must not be
+	 * modified.
+	 */
+	int[] getUpperBounds() {
+		return this.upper;
+	}
+
+	boolean isDecided(int edge) {
+		return this.lower[edge] == this.upper[edge];
+	}
+
+	/**
+	 * Returns a counter which is incremented with every change of a domain
+	 */
+	long getModificationCount() {
+		return this.modificationCount;
+	}
+
+	/**
+	 * Narrows the domain of {@code edge} to its intersection with
+	 * {@code values}.
+	 *
+	 * @return {@code false} if no number of bridges is left for the edge
+	 */
+	boolean restrictDomain(int edge, int values) {
+		int previous = this.domain[edge];
+		int narrowed = previous & values;
+		if (narrowed == previous) {
+			return true;
+		}
+		if (narrowed == 0) {
+			return false;
+		}
+		this.trail[this.trailSize++] = edge;
+		this.trail[this.trailSize++] = previous;
+		this.setDomain(edge, narrowed);
+		this.modificationCount++;
+		this.markChanged(edge);
+		return true;
+	}
+
+	private void setDomain(int edge, int values) {
+		this.domain[edge] = values;
+		this.lower[edge] = Integer.numberOfTrailingZeros(values);
+		this.upper[edge] = 31 - Integer.numberOfLeadingZeros(values);
+	}
+
+	private void markChanged(int edge) {
+		if (!this.changed[edge]) {
+			this.changed[edge] = true;
+			int tail = this.changedHead + this.nrOfChangedEdges;
+			this.changedEdges[tail < this.changedEdges.length ? tail : tail - this.changedEdges.length] = edge;
+			this.nrOfChangedEdges++;
+		}
+	}
+
+	/**
+	 * Removes the edge which changed first from the queue of changed edges
+	 *
+	 * @return the edge or {@code -1} if no edge changed
+	 */
+	int pollChangedEdge() {
+		if (this.nrOfChangedEdges == 0) {
+			return -1;
+		}
+		int edge = this.changedEdges[this.changedHead];
+		this.changed[edge] = false;
+		this.changedHead = this.changedHead + 1 < this.changedEdges.length ? this.changedHead + 1 : 0;
+		this.nrOfChangedEdges--;
+		return edge;
+	}
+
+	/**
+	 * Returns the current position on the trail, which can be passed to
+	 * {@link #undo(int)}
+	 */
+	int getTrailSize() {
+		return this.trailSize;
+	}
+
+	/**
+	 * Reverts all changes made after the trail had size {@code trailSize}. The
+	 * queue of changed edges is cleared, so the state at {@code trailSize} has to
+	 * be propagated completely.
+	 */
+	void undo(int trailSize) {
+		while (this.trailSize > trailSize) {
+			int previous = this.trail[--this.trailSize];
+			int edge = this.trail[--this.trailSize];
+			this.setDomain(edge, previous);
+			this.modificationCount++;
+		}
+		while (this.pollChangedEdge() != -1) {
+			// discard
+		}
+	}
+
+	/**
+	 * Returns {@code true} if all edges are decided
+	 */
+	boolean isComplete() {
+		for (int e = 0; e < this.lower.length; e++) {
+			if (this.lower[e] != this.upper[e]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Returns the number of bridges on each edge, only meaningful if the state is
+	 * complete
+	 */
+	int[] getSolution() {
+		return this.lower.clone();
+	}
+
+}
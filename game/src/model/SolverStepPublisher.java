@@ -0,0 +1,200 @@
+package model;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Optional;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import common.BuildOrRemoveBridgeRequest;
+import common.CancellationToken;
+import common.CardinalPoints;
+import common.SolveStatus;
+import common.SolverLimits;
+
+/**
+ * Publishes the bridges which solve a game one by one as
+ * {@link BuildOrRemoveBridgeRequest}s. Each subscriber gets its own copy of the
+ * game as it was when subscribing and its own sequence of steps.
+ * <p>
+ * Steps are computed on demand: the solver only deduces the next bridge when
+ * the subscriber requested one. A slow subscriber therefore throttles the
+ * stream without blocking anything, a subscriber requesting
+ * {@link Long#MAX_VALUE} items receives all steps at full speed. Steps are
+ * deduced like {@link GameModel#solveNextBridge()}; when no more bridge can be
+ * deduced the copy is solved completely and the remaining bridges are
+ * published.
+ * <p>
+ * Signals are delivered on the {@link Executor} given to the constructor, never
+ * concurrently for one subscriber.
+ *
+ * @author grimm
+ *
+ */
+final class SolverStepPublisher implements Flow.Publisher<BuildOrRemoveBridgeRequest> {
+	private final GameModel model;
+	private final Executor executor;
+
+	/**
+	 * @param model    the game to solve, copied for each subscriber
+	 * @param executor delivers the signals to the subscribers
+	 */
+	SolverStepPublisher(GameModel model, Executor executor) {
+		this.model = model;
+		this.executor = executor;
+	}
+
+	@Override
+	public void subscribe(Flow.Subscriber<? super BuildOrRemoveBridgeRequest> subscriber) {
+		StepSubscription subscription = new StepSubscription(subscriber, this.model.copy(), this.executor);
+		subscriber.onSubscribe(subscription);
+	}
+
+	private static final class StepSubscription implements Flow.Subscription, Runnable {
+		private final Flow.Subscriber<? super BuildOrRemoveBridgeRequest> subscriber;
+		private final GameModel board;
+		private final Executor executor;
+		private final CancellationToken token = new CancellationToken();
+		private final AtomicLong demand = new AtomicLong();
+		// number of drain requests, the drain loop runs while it is not zero
+		private final AtomicInteger pendingDrains = new AtomicInteger();
+		// steps taken from a complete solution once deducing got stuck
+		private Deque<BuildOrRemoveBridgeRequest> solutionSteps;
+		private volatile boolean cancelled;
+		private volatile Throwable invalidRequest;
+		private boolean terminated;
+
+		StepSubscription(Flow.Subscriber<? super BuildOrRemoveBridgeRequest> subscriber, GameModel board,
+				Executor executor) {
+			this.subscriber = subscriber;
+			this.board = board;
+			this.executor = executor;
+		}
+
+		@Override
+		public void request(long n) {
+			if (n <= 0) {
+				this.invalidRequest = new IllegalArgumentException("Requested " + n + " steps, must be positive");
+			} else {
+				this.demand.getAndUpdate(d -> d + n < 0 ? Long.MAX_VALUE : d + n);
+			}
+			this.scheduleDrain();
+		}
+
+		@Override
+		public void cancel() {
+			this.cancelled = true;
+			this.token.cancel();
+		}
+
+		private void scheduleDrain() {
+			if (this.pendingDrains.getAndIncrement() == 0) {
+				this.executor.execute(this);
+			}
+		}
+
+		@Override
+		public void run() {
+			int drains = 1;
+			do {
+				this.drain();
+				drains = this.pendingDrains.addAndGet(-drains);
+			} while (drains != 0);
+		}
+
+		private void drain() {
+			while (!this.terminated && !this.cancelled) {
+				if (this.invalidRequest != null) {
+					this.terminate();
+					this.subscriber.onError(this.invalidRequest);
+					return;
+				}
+				if (this.demand.get() == 0) {
+					return;
+				}
+				Optional<BuildOrRemoveBridgeRequest> step;
+				try {
+					step = this.nextStep();
+				} catch (RuntimeException e) {
+					if (this.cancelled) {
+						return;
+					}
+					this.terminate();
+					this.subscriber.onError(e);
+					return;
+				}
+				if (this.cancelled) {
+					return;
+				}
+				if (step.isEmpty()) {
+					this.terminate();
+					this.subscriber.onComplete();
+					return;
+				}
+				if (this.demand.get() != Long.MAX_VALUE) {
+					this.demand.decrementAndGet();
+				}
+				this.subscriber.onNext(step.get());
+			}
+		}
+
+		private void terminate() {
+			this.terminated = true;
+			this.token.cancel();
+		}
+
+		/**
+		 * Deduces the next bridge on the copy of the game
+		 */
+		private Optional<BuildOrRemoveBridgeRequest> nextStep() {
+			if (this.solutionSteps == null) {
+				if (this.board.solveNextBridge()) {
+					for (Bridge bridge : this.board.getBridges()) {
+						if (bridge.isModifiedLatest()) {
+							return Optional.of(toRequest(bridge.getIsland1(), bridge.getIsland2()));
+						}
+					}
+				}
+				this.solutionSteps = this.solveRemainingSteps();
+			}
+			return Optional.ofNullable(this.solutionSteps.poll());
+		}
+
+		/**
+		 * Solves the copy completely and returns a step for each bridge which was
+		 * missing
+		 */
+		private Deque<BuildOrRemoveBridgeRequest> solveRemainingSteps() {
+			Deque<BuildOrRemoveBridgeRequest> steps = new ArrayDeque<BuildOrRemoveBridgeRequest>();
+			IslandGraph graph = IslandGraph.of(this.board.getIslands());
+			int[] before = graph.getBridgeCounts(this.board.getBridges());
+			SolveStatus status = this.board.solve(SolverLimits.UNLIMITED, this.token, null);
+			if (status == SolveStatus.CANCELLED) {
+				throw new SearchAbortedException(status);
+			}
+			if (status != SolveStatus.SOLVED) {
+				return steps;
+			}
+			int[] after = graph.getBridgeCounts(this.board.getBridges());
+			for (int e = 0; e < after.length; e++) {
+				for (int b = before[e]; b < after[e]; b++) {
+					steps.add(toRequest(graph.getIsland(graph.getIsland1(e)), graph.getIsland(graph.getIsland2(e))));
+				}
+			}
+			return steps;
+		}
+
+		private static BuildOrRemoveBridgeRequest toRequest(Island from, Island to) {
+			CardinalPoints direction;
+			if (from.getRow() == to.getRow()) {
+				direction = to.getColumn() > from.getColumn() ? CardinalPoints.EAST : CardinalPoints.WEST;
+			} else {
+				direction = to.getRow() > from.getRow() ? CardinalPoints.SOUTH : CardinalPoints.NORTH;
+			}
+			return new BuildOrRemoveBridgeRequest(from.getColumn(), from.getRow(), direction, false);
+		}
+	}
+
+}
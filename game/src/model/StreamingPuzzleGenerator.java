@@ -0,0 +1,145 @@
+package model;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.random.RandomGenerator;
+
+/**
+ * Generates boards too large to be held in memory as a whole and writes them
+ * directly to a bgs file.
+ * <p>
+ * The board is cut into bands of {@link #BAND_WIDTH} columns, each band is
+ * grown by a {@link PuzzleGenerator} of its own, starting with an island in its
+ * first column. One or two bridges connect a random island of a band, which
+ * only has water east of it up to the border of the band, to the first island
+ * of the next band. So the whole board is connected and, as the connecting
+ * bridge only covers water of its band, no bridges cross. Only the band being
+ * grown is kept in memory. Bands are generated from west to east, which is the
+ * order of the islands in a bgs file, see {@link GameModelIO#FILE_ORDER}.
+ * <p>
+ * The islands are written before the generation has finished, so the header
+ * reserves space for the number of islands and is patched at the end.
+ *
+ * @author grimm
+ *
+ */
+final class StreamingPuzzleGenerator {
+	static final int BAND_WIDTH = 64;
+	// attempts per band before giving up, an attempt fails if the band is full
+	private static final int MAX_BAND_ATTEMPTS = 10;
+	// characters reserved for the number of islands in the header
+	private static final int COUNT_WIDTH = 19;
+	private final int nrOfRows;
+	private final int nrOfColumns;
+	private final RandomGenerator random;
+
+	/**
+	 * @param nrOfRows    rows of the board
+	 * @param nrOfColumns columns of the board
+	 * @param random      source of all random decisions
+	 */
+	StreamingPuzzleGenerator(int nrOfRows, int nrOfColumns, RandomGenerator random) {
+		this.nrOfRows = nrOfRows;
+		this.nrOfColumns = nrOfColumns;
+		this.random = random;
+	}
+
+	/**
+	 * Writes a game with {@code nrOfIslands} islands to {@code file}. The
+	 * islands are shared by the bands in proportion to their width, every band
+	 * gets at least one island.
+	 *
+	 * @return the number of islands written, {@code 0} if a band could not be
+	 *         generated and the file is incomplete
+	 * @throws IOException if the file can not be written
+	 */
+	long write(Path file, long nrOfIslands) throws IOException {
+		int nrOfBands = (this.nrOfColumns + BAND_WIDTH - 1) / BAND_WIDTH;
+		String header = String.format("FIELD\n# Height x Width | Number of islands\n%d x %d | ", this.nrOfRows,
+				this.nrOfColumns);
+		long written = 0;
+		try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+			out.write(header);
+			out.write(" ".repeat(COUNT_WIDTH));
+			out.write("\n\nISLANDS\n");
+			int rootRow = this.random.nextInt(this.nrOfRows);
+			int bridgesToRoot = 0;
+			for (int band = 0; band < nrOfBands; band++) {
+				int offset = band * BAND_WIDTH;
+				int width = Math.min(BAND_WIDTH, this.nrOfColumns - offset);
+				// the islands left are shared by the columns left, the last band may be
+				// narrower
+				long target = Math.max(1, (nrOfIslands - written) * width / (this.nrOfColumns - offset));
+				if (target > (long) this.nrOfRows * width) {
+					return 0;
+				}
+				PuzzleGenerator generator = new PuzzleGenerator(this.nrOfRows, width, this.random);
+				Optional<List<Island>> islands = Optional.empty();
+				for (int attempt = 0; attempt < MAX_BAND_ATTEMPTS && islands.isEmpty(); attempt++) {
+					islands = generator.generateBand((int) target, rootRow);
+				}
+				if (islands.isEmpty()) {
+					return 0;
+				}
+				int[] extraBridges = new int[islands.get().size()];
+				// the first island is the root, connected to the band in the west
+				extraBridges[0] = bridgesToRoot;
+				if (band < nrOfBands - 1) {
+					int connection = this.pickIslandOpenToEast(generator, islands.get(), width);
+					bridgesToRoot = this.random.nextBoolean() ? 2 : 1;
+					extraBridges[connection] += bridgesToRoot;
+					rootRow = islands.get().get(connection).getRow();
+				}
+				List<Island> bandIslands = new ArrayList<Island>(extraBridges.length);
+				for (int i = 0; i < extraBridges.length; i++) {
+					Island island = islands.get().get(i);
+					bandIslands.add(new Island(island.getRow(), island.getColumn() + offset,
+							island.getBridgeCapacity() + extraBridges[i]));
+				}
+				bandIslands.sort(GameModelIO.FILE_ORDER);
+				for (Island island : bandIslands) {
+					GameModelIO.writeIsland(island, out);
+				}
+				written += bandIslands.size();
+			}
+			out.write("\nBRIDGES\n");
+		}
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+			String count = String.format("%-" + COUNT_WIDTH + "d", written);
+			channel.write(ByteBuffer.wrap(count.getBytes(StandardCharsets.UTF_8)),
+					header.getBytes(StandardCharsets.UTF_8).length);
+		}
+		return written;
+	}
+
+	/**
+	 * Returns the index of a random island with only water east of it up to the
+	 * border of the band. There always is one, as no bridge lies east of the
+	 * easternmost islands.
+	 */
+	private int pickIslandOpenToEast(PuzzleGenerator generator, List<Island> islands, int width) {
+		int[] candidates = new int[islands.size()];
+		int nrOfCandidates = 0;
+		for (int i = 0; i < islands.size(); i++) {
+			Island island = islands.get(i);
+			int column = island.getColumn() + 1;
+			while (column < width && generator.isWater(island.getRow(), column)) {
+				column++;
+			}
+			if (column == width) {
+				candidates[nrOfCandidates++] = i;
+			}
+		}
+		return candidates[this.random.nextInt(nrOfCandidates)];
+	}
+
+}
@@ -0,0 +1,399 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import common.PuzzleSeeds;
+
+/**
+ * Generates large games on several cores: the board is split into tiles of
+ * about {@link #TILE_SIZE} x {@link #TILE_SIZE} cells, or larger ones holding
+ * about {@link #MIN_ISLANDS_PER_TILE} islands on sparse boards. Each tile is
+ * grown by a {@link PuzzleGenerator} of its own in parallel, and the tiles
+ * are stitched together afterwards.
+ * <p>
+ * Each tile is connected to its eastern neighbour, and the tiles of the first
+ * column to their southern neighbours, so the stitched board is connected. A
+ * stitch is a new bridge across the border of two tiles along a row (or
+ * column) which is water on both sides of the border up to the first island or
+ * bridge of each tile, so it never crosses another bridge. If the line hits a
+ * bridge instead of an island, a new island is put on the bridge and splits it
+ * into two bridges of the same number, which keeps the solution valid. Lines
+ * ending at islands on both sides are preferred, so usually no islands are
+ * added. If the islands of the tiles do not face each other on any line, a new
+ * island in the water before the border is connected to both tiles.
+ * <p>
+ * Every tile is generated from a seed derived from the seed of the game and
+ * the index of the tile, so the game does not depend on the number of cores.
+ *
+ * @author grimm
+ *
+ */
+final class TiledPuzzleGenerator {
+	static final int TILE_SIZE = 128;
+	// sparse boards get larger tiles, so the islands of neighbouring tiles meet
+	// at their border
+	static final int MIN_ISLANDS_PER_TILE = 1000;
+	// attempts per tile before giving up, an attempt fails if the tile is full
+	private static final int MAX_TILE_ATTEMPTS = 10;
+	private final int nrOfRows;
+	private final int nrOfColumns;
+	private final long seed;
+	private int nrOfTileRows;
+	private int nrOfTileColumns;
+	// islands and bridges of the stitched board, bridges lead from start to end
+	private int[] islandRows;
+	private int[] islandColumns;
+	private int nrOfIslands;
+	private int[] bridgeStarts;
+	private int[] bridgeEnds;
+	private int[] bridgeNumbers;
+	private int nrOfBridges;
+	// island + 1 for an island, -(bridge + 1) for a cell covered by a bridge and
+	// 0 for water
+	private int[] cells;
+
+	/**
+	 * @param nrOfRows    rows of the board
+	 * @param nrOfColumns columns of the board
+	 * @param seed        seed of all random decisions
+	 */
+	TiledPuzzleGenerator(int nrOfRows, int nrOfColumns, long seed) {
+		this.nrOfRows = nrOfRows;
+		this.nrOfColumns = nrOfColumns;
+		this.seed = seed;
+	}
+
+	/**
+	 * Generates the game with {@code nrOfIslands} islands, growing the tiles on
+	 * {@code executor}. The islands are shared by the tiles in proportion to
+	 * their size, every tile needs at least one island. A stitch may add up to
+	 * three islands if no line between islands is found.
+	 *
+	 * @return the islands, empty if a tile could not be generated or two tiles
+	 *         could not be stitched
+	 * @throws InterruptedException if interrupted while waiting for the tiles
+	 */
+	Optional<List<Island>> generate(int nrOfIslands, ExecutorService executor) throws InterruptedException {
+		long nrOfCells = (long) this.nrOfRows * this.nrOfColumns;
+		if (nrOfIslands < 1 || nrOfCells > Integer.MAX_VALUE) {
+			return Optional.empty();
+		}
+		double cellsPerIsland = (double) nrOfCells / nrOfIslands;
+		int tileSize = Math.max(TILE_SIZE, (int) Math.ceil(Math.sqrt(cellsPerIsland * MIN_ISLANDS_PER_TILE)));
+		this.nrOfTileRows = (this.nrOfRows + tileSize - 1) / tileSize;
+		this.nrOfTileColumns = (this.nrOfColumns + tileSize - 1) / tileSize;
+		int nrOfTiles = this.nrOfTileRows * this.nrOfTileColumns;
+		PuzzleGenerator[] generators = new PuzzleGenerator[nrOfTiles];
+		List<Future<Optional<List<Island>>>> tiles = new ArrayList<Future<Optional<List<Island>>>>();
+		try {
+			long cellsBefore = 0;
+			int islandsBefore = 0;
+			for (int tile = 0; tile < nrOfTiles; tile++) {
+				int height = this.tileEnd(tile / this.nrOfTileColumns, this.nrOfTileRows, this.nrOfRows)
+						- this.tileStart(tile / this.nrOfTileColumns, this.nrOfTileRows, this.nrOfRows);
+				int width = this.tileEnd(tile % this.nrOfTileColumns, this.nrOfTileColumns, this.nrOfColumns)
+						- this.tileStart(tile % this.nrOfTileColumns, this.nrOfTileColumns, this.nrOfColumns);
+				cellsBefore += (long) height * width;
+				int share = (int) (nrOfIslands * cellsBefore / nrOfCells) - islandsBefore;
+				islandsBefore += share;
+				if (share < 1) {
+					return Optional.empty();
+				}
+				PuzzleGenerator generator = new PuzzleGenerator(height, width,
+						new SplittableRandom(PuzzleSeeds.of(this.seed, tile)));
+				generators[tile] = generator;
+				tiles.add(executor.submit(() -> {
+					Optional<List<Island>> islands = Optional.empty();
+					for (int attempt = 0; attempt < MAX_TILE_ATTEMPTS && islands.isEmpty(); attempt++) {
+						islands = generator.generate(share);
+					}
+					return islands;
+				}));
+			}
+			this.islandRows = new int[nrOfIslands + 3 * nrOfTiles];
+			this.islandColumns = new int[this.islandRows.length];
+			this.bridgeStarts = new int[nrOfIslands + 5 * nrOfTiles];
+			this.bridgeEnds = new int[this.bridgeStarts.length];
+			this.bridgeNumbers = new int[this.bridgeStarts.length];
+			this.cells = new int[(int) nrOfCells];
+			for (int tile = 0; tile < nrOfTiles; tile++) {
+				Optional<List<Island>> islands = tiles.get(tile).get();
+				if (islands.isEmpty()) {
+					return Optional.empty();
+				}
+				this.place(tile, islands.get(), generators[tile]);
+			}
+		} catch (ExecutionException e) {
+			throw new IllegalStateException(e.getCause());
+		} finally {
+			for (Future<Optional<List<Island>>> tile : tiles) {
+				tile.cancel(true);
+			}
+		}
+		if (!this.stitchTiles(new SplittableRandom(this.seed))) {
+			return Optional.empty();
+		}
+		return Optional.of(this.toIslands());
+	}
+
+	/**
+	 * Returns the first row (column) of tile {@code index}, the tiles differ in
+	 * size by at most one
+	 */
+	private int tileStart(int index, int nrOfTiles, int length) {
+		return (int) ((long) length * index / nrOfTiles);
+	}
+
+	private int tileEnd(int index, int nrOfTiles, int length) {
+		return this.tileStart(index + 1, nrOfTiles, length);
+	}
+
+	/**
+	 * Adds the islands of a tile and the bridges of its solution to the board
+	 */
+	private void place(int tile, List<Island> islands, PuzzleGenerator generator) {
+		int firstRow = this.tileStart(tile / this.nrOfTileColumns, this.nrOfTileRows, this.nrOfRows);
+		int firstColumn = this.tileStart(tile % this.nrOfTileColumns, this.nrOfTileColumns, this.nrOfColumns);
+		int first = this.nrOfIslands;
+		for (Island island : islands) {
+			this.addIsland(firstRow + island.getRow(), firstColumn + island.getColumn());
+		}
+		for (int i = 1; i < islands.size(); i++) {
+			this.addBridge(first + generator.getParent(i), first + i, generator.getBridgesToParent(i));
+		}
+	}
+
+	private int addIsland(int row, int column) {
+		this.islandRows[this.nrOfIslands] = row;
+		this.islandColumns[this.nrOfIslands] = column;
+		this.cells[row * this.nrOfColumns + column] = this.nrOfIslands + 1;
+		return this.nrOfIslands++;
+	}
+
+	/**
+	 * Adds {@code number} bridges between two islands in the same row or column
+	 * and marks the cells between them
+	 */
+	private void addBridge(int start, int end, int number) {
+		int bridge = this.nrOfBridges++;
+		this.bridgeStarts[bridge] = start;
+		this.bridgeEnds[bridge] = end;
+		this.bridgeNumbers[bridge] = number;
+		int deltaRow = Integer.signum(this.islandRows[end] - this.islandRows[start]);
+		int deltaColumn = Integer.signum(this.islandColumns[end] - this.islandColumns[start]);
+		int row = this.islandRows[start] + deltaRow;
+		int column = this.islandColumns[start] + deltaColumn;
+		while (row != this.islandRows[end] || column != this.islandColumns[end]) {
+			this.cells[row * this.nrOfColumns + column] = -(bridge + 1);
+			row += deltaRow;
+			column += deltaColumn;
+		}
+	}
+
+	/**
+	 * Connects every tile to its eastern neighbour and the tiles of the first
+	 * column to their southern neighbours
+	 */
+	private boolean stitchTiles(SplittableRandom random) {
+		for (int tileRow = 0; tileRow < this.nrOfTileRows; tileRow++) {
+			int firstRow = this.tileStart(tileRow, this.nrOfTileRows, this.nrOfRows);
+			int endRow = this.tileEnd(tileRow, this.nrOfTileRows, this.nrOfRows);
+			for (int tileColumn = 1; tileColumn < this.nrOfTileColumns; tileColumn++) {
+				int start = this.tileStart(tileColumn - 1, this.nrOfTileColumns, this.nrOfColumns);
+				int border = this.tileStart(tileColumn, this.nrOfTileColumns, this.nrOfColumns);
+				int end = this.tileEnd(tileColumn, this.nrOfTileColumns, this.nrOfColumns);
+				if (!this.stitch(firstRow, endRow, start, border, end, true, random)) {
+					return false;
+				}
+			}
+		}
+		int endColumn = this.tileEnd(0, this.nrOfTileColumns, this.nrOfColumns);
+		for (int tileRow = 1; tileRow < this.nrOfTileRows; tileRow++) {
+			int start = this.tileStart(tileRow - 1, this.nrOfTileRows, this.nrOfRows);
+			int border = this.tileStart(tileRow, this.nrOfTileRows, this.nrOfRows);
+			int end = this.tileEnd(tileRow, this.nrOfTileRows, this.nrOfRows);
+			if (!this.stitch(0, endColumn, start, border, end, false, random)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Connects two neighbouring tiles along one of the lines {@code firstLine}
+	 * to {@code endLine}, rows if {@code alongRows} is set, else columns. The
+	 * tiles span from {@code start} to {@code border} and from {@code border}
+	 * to {@code end} across the lines.
+	 *
+	 * @return {@code false} if the tiles could not be connected
+	 */
+	private boolean stitch(int firstLine, int endLine, int start, int border, int end, boolean alongRows,
+			SplittableRandom random) {
+		int bestBefore = -1;
+		int bestAfter = -1;
+		int fewestSplits = Integer.MAX_VALUE;
+		for (int line : this.shuffle(firstLine, endLine, random)) {
+			int before = this.findContent(line, border - 1, -1, border - start, alongRows);
+			int after = this.findContent(line, border, 1, end - border, alongRows);
+			if (before == -1 || after == -1) {
+				continue;
+			}
+			int splits = (this.cells[before] < 0 ? 1 : 0) + (this.cells[after] < 0 ? 1 : 0);
+			if (splits < fewestSplits) {
+				fewestSplits = splits;
+				bestBefore = before;
+				bestAfter = after;
+				if (splits == 0) {
+					break;
+				}
+			}
+		}
+		if (bestBefore == -1) {
+			return this.stitchAround(firstLine, endLine, start, border, end, alongRows, random);
+		}
+		this.addBridge(this.islandAt(bestBefore), this.islandAt(bestAfter), random.nextBoolean() ? 2 : 1);
+		return true;
+	}
+
+	/**
+	 * Connects two neighbouring tiles whose islands do not face each other on
+	 * any line, as happens on sparse boards: a new island is put on the water
+	 * before the border, connected along its line to the tile after the border
+	 * and across the lines to the tile before the border.
+	 *
+	 * @return {@code false} if no such island was found
+	 */
+	private boolean stitchAround(int firstLine, int endLine, int start, int border, int end, boolean alongRows,
+			SplittableRandom random) {
+		for (int line : this.shuffle(firstLine, endLine, random)) {
+			int after = this.findContent(line, border, 1, end - border, alongRows);
+			if (after == -1) {
+				continue;
+			}
+			for (int position = border - 1; position >= start
+					&& this.cells[this.cellOf(line, position, alongRows)] == 0; position--) {
+				int across = this.findContent(position, line - 1, -1, line - firstLine, !alongRows);
+				if (across == -1) {
+					across = this.findContent(position, line + 1, 1, endLine - line - 1, !alongRows);
+				}
+				if (across != -1) {
+					int cell = this.cellOf(line, position, alongRows);
+					int island = this.addIsland(cell / this.nrOfColumns, cell % this.nrOfColumns);
+					this.addBridge(this.islandAt(across), island, random.nextBoolean() ? 2 : 1);
+					this.addBridge(island, this.islandAt(after), random.nextBoolean() ? 2 : 1);
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Returns the lines {@code firstLine} to {@code endLine} in random order
+	 */
+	private int[] shuffle(int firstLine, int endLine, SplittableRandom random) {
+		int[] lines = new int[endLine - firstLine];
+		for (int i = 0; i < lines.length; i++) {
+			lines[i] = firstLine + i;
+		}
+		for (int i = lines.length - 1; i > 0; i--) {
+			int j = random.nextInt(i + 1);
+			int line = lines[j];
+			lines[j] = lines[i];
+			lines[i] = line;
+		}
+		return lines;
+	}
+
+	private int cellOf(int line, int position, boolean alongRows) {
+		return alongRows ? line * this.nrOfColumns + position : position * this.nrOfColumns + line;
+	}
+
+	/**
+	 * Walks along {@code line} from {@code position} by {@code step} for at most
+	 * {@code length} cells.
+	 *
+	 * @return the first cell which is an island or covered by a bridge crossing
+	 *         the line, {@code -1} if there is none or the bridge runs along the
+	 *         line
+	 */
+	private int findContent(int line, int position, int step, int length, boolean alongRows) {
+		for (int i = 0; i < length; i++, position += step) {
+			int cell = this.cellOf(line, position, alongRows);
+			int content = this.cells[cell];
+			if (content > 0) {
+				return cell;
+			}
+			if (content < 0) {
+				int bridge = -content - 1;
+				boolean horizontal = this.islandRows[this.bridgeStarts[bridge]] == this.islandRows[this.bridgeEnds[bridge]];
+				// only a bridge crossing the line can be split
+				return horizontal != alongRows ? cell : -1;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Returns the island on {@code cell}, a cell covered by a bridge gets a new
+	 * island splitting the bridge
+	 */
+	private int islandAt(int cell) {
+		if (this.cells[cell] > 0) {
+			return this.cells[cell] - 1;
+		}
+		int bridge = -this.cells[cell] - 1;
+		int island = this.addIsland(cell / this.nrOfColumns, cell % this.nrOfColumns);
+		int end = this.bridgeEnds[bridge];
+		this.bridgeEnds[bridge] = island;
+		this.addBridge(island, end, this.bridgeNumbers[bridge]);
+		return island;
+	}
+
+	/**
+	 * Returns the solution of the last generated game, the bridges of the tiles
+	 * and of the stitches
+	 *
+	 * @param graph the {@link IslandGraph} of the islands returned by
+	 *              {@link #generate(int, ExecutorService)}
+	 * @return the number of bridges on each edge of {@code graph}
+	 * @throws IllegalStateException if a bridge does not connect neighbouring
+	 *                               islands
+	 */
+	int[] getSolution(IslandGraph graph) {
+		int[] solution = new int[graph.getNrOfEdges()];
+		for (int bridge = 0; bridge < this.nrOfBridges; bridge++) {
+			int edge = graph.getEdge(this.bridgeStarts[bridge], this.bridgeEnds[bridge]);
+			if (edge == -1) {
+				throw new IllegalStateException("Bridge between islands which are no neighbours");
+			}
+			// bridges sharing an edge are summed, so they break the capacities
+			solution[edge] += this.bridgeNumbers[bridge];
+		}
+		return solution;
+	}
+
+	/**
+	 * Returns the islands with the numbers of bridges of the solution as
+	 * capacities
+	 */
+	private List<Island> toIslands() {
+		int[] capacities = new int[this.nrOfIslands];
+		for (int bridge = 0; bridge < this.nrOfBridges; bridge++) {
+			capacities[this.bridgeStarts[bridge]] += this.bridgeNumbers[bridge];
+			capacities[this.bridgeEnds[bridge]] += this.bridgeNumbers[bridge];
+		}
+		List<Island> islands = new ArrayList<Island>(this.nrOfIslands);
+		for (int i = 0; i < this.nrOfIslands; i++) {
+			islands.add(new Island(this.islandRows[i], this.islandColumns[i], capacities[i]));
+		}
+		return islands;
+	}
+
+}
@@ -0,0 +1,290 @@
+package view;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import common.PuzzleSeeds;
+import model.GameCorpus;
+import model.GameModel;
+
+/**
+ * Generates puzzles without the GUI on all cores and writes them as bgs
+ * files.
+ * <p>
+ * Usage: {@code BatchApp <count> <rows> <columns> <minIslands> <maxIslands>
+ * <seed> <output> [unique]}<br>
+ * The number of islands of each puzzle is drawn uniformly between
+ * {@code minIslands} and {@code maxIslands}. Puzzle {@code i} is generated from
+ * {@link PuzzleSeeds#of(long, long)} of {@code seed} and {@code i}, so the
+ * output does not depend on the number of cores. If {@code output} is
+ * {@code -} all puzzles are written to standard output in order, each preceded
+ * by a comment with its index, otherwise every puzzle is written to its own
+ * file {@code puzzle-<i>.bgs} in the directory {@code output}. With
+ * {@code unique} every puzzle has exactly one solution, see
+ * {@link GameModel#createUniqueGame(int, int, int, long)}.
+ * <p>
+ * At most a few puzzles per core are held in memory at any time, so the
+ * number of puzzles is only limited by the disk.
+ * <p>
+ * Usage: {@code BatchApp huge <rows> <columns> <islands> <seed> <file>}<br>
+ * Writes a single board too large to be held in memory to {@code file}, see
+ * {@link GameModel#writeLargeGame(Path, int, int, long, long)}.
+ * <p>
+ * Usage: {@code BatchApp check <directory>}<br>
+ * Loads all bgs files below {@code directory} in parallel, see
+ * {@link GameCorpus}, reports the invalid ones and exits with {@code 1} if
+ * there are any.
+ *
+ * @author grimm
+ *
+ */
+public class BatchApp {
+	private static final String USAGE = "Usage: BatchApp <count> <rows> <columns> <minIslands> <maxIslands> <seed> <output directory or -> [unique]\n"
+			+ "       BatchApp huge <rows> <columns> <islands> <seed> <file>\n"
+			+ "       BatchApp check <directory>";
+	// attempts per puzzle before giving up, an attempt fails if the board is full
+	private static final int MAX_ATTEMPTS = 100;
+	// puzzles generated ahead of the writer per core
+	private static final int PUZZLES_IN_FLIGHT_PER_CORE = 4;
+
+	private final long count;
+	private final int nrOfRows;
+	private final int nrOfColumns;
+	private final int minIslands;
+	private final int maxIslands;
+	private final long seed;
+	private final boolean unique;
+
+	BatchApp(long count, int nrOfRows, int nrOfColumns, int minIslands, int maxIslands, long seed,
+			boolean unique) {
+		if (count < 0 || nrOfRows < 1 || nrOfColumns < 1 || minIslands < 1 || minIslands > maxIslands) {
+			throw new IllegalArgumentException("Invalid batch parameters");
+		}
+		this.count = count;
+		this.nrOfRows = nrOfRows;
+		this.nrOfColumns = nrOfColumns;
+		this.minIslands = minIslands;
+		this.maxIslands = maxIslands;
+		this.seed = seed;
+		this.unique = unique;
+	}
+
+	public static void main(String[] args) throws IOException, InterruptedException {
+		if (args.length > 0 && args[0].equals("huge")) {
+			writeLargeGame(args);
+			return;
+		}
+		if (args.length > 0 && args[0].equals("check")) {
+			checkCorpus(args);
+			return;
+		}
+		BatchApp batch;
+		try {
+			if (args.length != 7 && (args.length != 8 || !args[7].equals("unique"))) {
+				throw new IllegalArgumentException(USAGE);
+			}
+			batch = new BatchApp(Long.parseLong(args[0]), Integer.parseInt(args[1]), Integer.parseInt(args[2]),
+					Integer.parseInt(args[3]), Integer.parseInt(args[4]), Long.parseLong(args[5]), args.length == 8);
+		} catch (IllegalArgumentException e) {
+			System.err.println(e.getMessage());
+			System.err.println(USAGE);
+			System.exit(2);
+			return;
+		}
+		long start = System.nanoTime();
+		if (args[6].equals("-")) {
+			Writer out = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8));
+			batch.generate(out);
+			out.flush();
+		} else {
+			batch.generate(Paths.get(args[6]));
+		}
+		System.err.printf("Generated %d puzzles in %.1f s%n", batch.count, (System.nanoTime() - start) / 1e9);
+	}
+
+	private static void writeLargeGame(String[] args) throws IOException {
+		int nrOfRows;
+		int nrOfColumns;
+		long nrOfIslands;
+		long seed;
+		try {
+			if (args.length != 6) {
+				throw new IllegalArgumentException(USAGE);
+			}
+			nrOfRows = Integer.parseInt(args[1]);
+			nrOfColumns = Integer.parseInt(args[2]);
+			nrOfIslands = Long.parseLong(args[3]);
+			seed = Long.parseLong(args[4]);
+			if (nrOfRows < 1 || nrOfColumns < 1 || nrOfIslands < 1) {
+				throw new IllegalArgumentException("Invalid board parameters");
+			}
+		} catch (IllegalArgumentException e) {
+			System.err.println(e.getMessage());
+			System.err.println(USAGE);
+			System.exit(2);
+			return;
+		}
+		long start = System.nanoTime();
+		long written = GameModel.writeLargeGame(Paths.get(args[5]), nrOfRows, nrOfColumns, nrOfIslands, seed);
+		if (written == 0) {
+			System.err.printf("No board with %d islands fits on %d x %d%n", nrOfIslands, nrOfRows, nrOfColumns);
+			System.exit(1);
+		}
+		System.err.printf("Generated %d islands in %.1f s%n", written, (System.nanoTime() - start) / 1e9);
+	}
+
+	private static void checkCorpus(String[] args) throws IOException {
+		if (args.length != 2) {
+			System.err.println(USAGE);
+			System.exit(2);
+			return;
+		}
+		long start = System.nanoTime();
+		Map<Boolean, Long> valid;
+		try (Stream<GameCorpus.Entry> corpus = GameCorpus.load(Paths.get(args[1]), true)) {
+			valid = corpus.peek(entry -> entry.getError()
+					.ifPresent(e -> System.out.println(entry.getPath() + ": " + e.getMessage())))
+					.collect(Collectors.partitioningBy(entry -> entry.getGame().isPresent(), Collectors.counting()));
+		}
+		System.err.printf("Loaded %d games, %d invalid, in %.1f s%n", valid.get(true), valid.get(false),
+				(System.nanoTime() - start) / 1e9);
+		if (valid.get(false) > 0) {
+			System.exit(1);
+		}
+	}
+
+	/**
+	 * Writes all puzzles in order to {@code out}, generating them on all cores
+	 */
+	void generate(Writer out) throws IOException, InterruptedException {
+		int nrOfThreads = Runtime.getRuntime().availableProcessors();
+		ExecutorService executor = Executors.newFixedThreadPool(nrOfThreads);
+		try {
+			this.generate(executor, nrOfThreads * PUZZLES_IN_FLIGHT_PER_CORE, out);
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * Writes all puzzles in order of their index to {@code out}, each preceded
+	 * by a comment with its index. The output does not depend on the threads of
+	 * {@code executor}.
+	 *
+	 * @param executor    generates the puzzles, is not shut down
+	 * @param maxInFlight the maximum number of puzzles submitted to
+	 *                    {@code executor} but not written yet
+	 * @param out         the target of the puzzles, is not flushed
+	 */
+	void generate(ExecutorService executor, int maxInFlight, Writer out) throws IOException, InterruptedException {
+		this.run(index -> "# puzzle " + index + "\n" + this.createPuzzle(index) + "\n", executor, maxInFlight, out);
+	}
+
+	/**
+	 * Writes every puzzle to its own file in {@code directory}
+	 */
+	void generate(Path directory) throws IOException, InterruptedException {
+		Files.createDirectories(directory);
+		int nrOfThreads = Runtime.getRuntime().availableProcessors();
+		ExecutorService executor = Executors.newFixedThreadPool(nrOfThreads);
+		try {
+			this.run(index -> {
+				Path file = directory.resolve(String.format("puzzle-%d.%s", index, BGSFileFilter.FILE_ENDING));
+				try {
+					Files.writeString(file, this.createPuzzle(index));
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+				return "";
+			}, executor, nrOfThreads * PUZZLES_IN_FLIGHT_PER_CORE, null);
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private interface PuzzleTask {
+		String run(long index);
+	}
+
+	/**
+	 * Runs the task for every index on {@code executor}, keeping at most
+	 * {@code maxInFlight} tasks in flight. The results are written to
+	 * {@code out} in order of the index, if {@code out} is not {@code null}.
+	 */
+	private void run(PuzzleTask task, ExecutorService executor, int maxInFlight, Writer out)
+			throws IOException, InterruptedException {
+		if (maxInFlight < 1) {
+			throw new IllegalArgumentException("At least one puzzle has to be in flight");
+		}
+		Deque<Future<String>> inFlight = new ArrayDeque<Future<String>>();
+		try {
+			for (long index = 0; index < this.count; index++) {
+				if (inFlight.size() == maxInFlight) {
+					write(inFlight.poll(), out);
+				}
+				long puzzle = index;
+				inFlight.add(executor.submit(() -> task.run(puzzle)));
+			}
+			while (!inFlight.isEmpty()) {
+				write(inFlight.poll(), out);
+			}
+		} finally {
+			// puzzles which are not written any more after a failure
+			for (Future<String> result : inFlight) {
+				result.cancel(true);
+			}
+		}
+	}
+
+	private static void write(Future<String> result, Writer out) throws IOException, InterruptedException {
+		String text;
+		try {
+			text = result.get();
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof UncheckedIOException) {
+				throw ((UncheckedIOException) e.getCause()).getCause();
+			}
+			throw new IllegalStateException(e.getCause());
+		}
+		if (out != null) {
+			out.write(text);
+		}
+	}
+
+	/**
+	 * Generates puzzle {@code index} in bgs format
+	 */
+	private String createPuzzle(long index) {
+		SplittableRandom random = new SplittableRandom(PuzzleSeeds.of(this.seed, index));
+		GameModel model = new GameModel();
+		for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+			int nrOfIslands = random.nextInt(this.minIslands, this.maxIslands + 1);
+			boolean created = this.unique
+					? model.createUniqueGame(this.nrOfRows, this.nrOfColumns, nrOfIslands, random.nextLong())
+					: model.createNewGame(this.nrOfRows, this.nrOfColumns, nrOfIslands, random.nextLong());
+			if (created) {
+				return model.toFileFormat();
+			}
+		}
+		throw new IllegalStateException(String.format("No puzzle with %d to %d islands fits on %d x %d",
+				this.minIslands, this.maxIslands, this.nrOfRows, this.nrOfColumns));
+	}
+
+}
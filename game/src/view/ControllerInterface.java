@@ -12,6 +12,12 @@ public interface ControllerInterface {
 	public void saveGameAt();
 
 	boolean  createNewGameRandomly();
+
+	/**
+	 * Creates the game identified by {@code seed}, the same seed always creates
+	 * the same game
+	 */
+	boolean createNewGameFromSeed(long seed);
 	
 	boolean createNewGameHightWidth(int height,int width );
 	
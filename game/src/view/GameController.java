@@ -4,29 +4,48 @@ import java.io.BufferedReader;
 import java.io.BufferedWriter;
 import java.io.File;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.ArrayList;
-import java.util.List;
+import java.time.Duration;
 import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.SplittableRandom;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Supplier;
+import java.util.random.RandomGenerator;
+
+import javax.swing.SwingUtilities;
 
 import common.BuildOrRemoveBridgeRequest;
 import common.GameFileFormatException;
+import common.SolverLimits;
 import model.GameModelnterface;
 
 public class GameController implements ControllerInterface {
 	GameModelnterface model;
 	GameGUI view;
 	private Optional<Path> savedFilePath = Optional.ofNullable(null);
-	private boolean autoSolve = false;
+	// delay between two bridges build by auto solving
+	private static final long AUTO_SOLVE_STEP_DELAY_MILLIS = 300;
+	// limits of the search for a solution when no bridge can be deduced for a hint
+	private static final SolverLimits HINT_LIMITS = SolverLimits.timeLimit(Duration.ofSeconds(10));
+	// maximum share of the cells which are islands when the number of islands is
+	// chosen
+	private static final double MAX_ISLAND_DENSITY = 0.5;
+	// ready-made games for the new game actions
+	private final PuzzlePool puzzlePool = new PuzzlePool();
+	// subscriber of the running auto solving, null if auto solving is stopped
+	private AutoSolveSubscriber autoSolver;
 	private final Executor executor = Executors.newFixedThreadPool(1, new ThreadFactory() {
 		public Thread newThread(Runnable r) {
 			Thread t = new Thread(r);
@@ -34,9 +53,28 @@ public class GameController implements ControllerInterface {
 			return t;
 		}
 	});
+	// runs the solving strategies for hints and the attempts to create a new game
+	// concurrently, grows so that no task has to wait for a free thread
+	private final ExecutorService solverExecutor = Executors.newCachedThreadPool(new ThreadFactory() {
+		public Thread newThread(Runnable r) {
+			Thread t = new Thread(r);
+			t.setDaemon(true);
+			return t;
+		}
+	});
+	// requests the next bridge of auto solving after the delay
+	private final ScheduledExecutorService autoSolveScheduler = Executors
+			.newSingleThreadScheduledExecutor(new ThreadFactory() {
+				public Thread newThread(Runnable r) {
+					Thread t = new Thread(r);
+					t.setDaemon(true);
+					return t;
+				}
+			});
 
 	public GameController(GameModelnterface model) {
 		this.model = model;
+		this.puzzlePool.start();
 		this.view = new GameGUI(model, this);
 		this.view.disableRestartGameMenuItem();
 		this.view.disableSaveGameMenuItems();
@@ -45,38 +83,24 @@ public class GameController implements ControllerInterface {
 
 	@Override
 	public void loadGame(Path path) {
-		try {
-
-			List<String> inputStrings = new ArrayList<String>();
-			try (BufferedReader br = Files.newBufferedReader(path)) {
-
-				String line = br.readLine();
-				while (line != null) {
-					line = line.trim();
-					// skip empty lines or comments (indicated by leading #)
-					if (!(line.isEmpty() || line.startsWith("#"))) {
-						inputStrings.add(line);
-					}
-					line = br.readLine();
-				}
-
-			} catch (IOException e) {
-				this.view.displayErrorDialog(e.getMessage());
-
-			}
+		// comments may contain umlauts, ISO-8859-1 reads every byte
+		try (BufferedReader br = Files.newBufferedReader(path, StandardCharsets.ISO_8859_1)) {
+			this.model.loadGame(br);
+			this.stopAutoSolving();
+			this.view.setGameSeed(OptionalLong.empty());
 			this.view.setDisplayGameStatus(true);
-			this.model.loadGame(inputStrings);
 			this.view.enableRestartGameMenuItem();
 			this.view.enableSaveGameMenuItems();
 			this.view.enableTools();
 			this.savedFilePath = Optional.ofNullable(null);
 			this.view.packAndRepaint();
-		} catch (GameFileFormatException e) {
+		} catch (IOException | GameFileFormatException e) {
 			this.view.displayErrorDialog(e.getMessage());
 		}
 	}
 
 	public void restartGame() {
+		this.stopAutoSolving();
 		this.model.restartGame();
 	}
 
@@ -96,10 +120,8 @@ public class GameController implements ControllerInterface {
 	}
 
 	private void saveGame(Path pathToFile) {
-		String currentGameState = this.model.toFileFormat();
-
 		try (BufferedWriter fbw = Files.newBufferedWriter(pathToFile)) {
-			fbw.write(currentGameState);
+			this.model.writeGame(fbw);
 		} catch (IOException e) {
 			this.view.displayErrorDialog(e.getMessage());
 		}
@@ -129,37 +151,117 @@ public class GameController implements ControllerInterface {
 
 	@Override
 	public void solveNextBridge() {
-		this.model.solveNextBridge();
-
+		// the solvers run in the background, the bridge is build on the event
+		// dispatch thread like any other change of the game
+		this.model.solveNextBridge(this.solverExecutor, HINT_LIMITS, SwingUtilities::invokeLater);
 	}
 
 	@Override
-	public void startAndStopAutoSolving() {
-		this.autoSolve = !this.autoSolve;
-		if (autoSolve) {
-			CompletableFuture.supplyAsync(() -> startAndStopAutoSolving1(), executor);
+	public synchronized void startAndStopAutoSolving() {
+		if (this.autoSolver != null) {
+			this.stopAutoSolving();
+		} else {
+			this.autoSolver = new AutoSolveSubscriber(this.model.getModificationCount());
+			this.model.publishSolverSteps(this.executor).subscribe(this.autoSolver);
 		}
 
 	}
 
-	private boolean startAndStopAutoSolving1() {
-		boolean nextStepSolved = true;
+	/**
+	 * Stops auto solving if it is running, the steps of the solver only fit the
+	 * game they were deduced from
+	 */
+	private synchronized void stopAutoSolving() {
+		if (this.autoSolver != null) {
+			this.autoSolver.cancel();
+			this.autoSolver = null;
+		}
+	}
+
+	private synchronized void autoSolvingStopped(AutoSolveSubscriber subscriber) {
+		if (this.autoSolver == subscriber) {
+			this.autoSolver = null;
+		}
+	}
 
-		while (nextStepSolved && autoSolve) {
-			nextStepSolved = this.model.solveNextBridge();
-			try {
-				Thread.sleep(300);
-			} catch (InterruptedException e) {
-				// TODO Auto-generated catch block
-				e.printStackTrace();
+	/**
+	 * Builds the bridges published by the solver one at a time on the event
+	 * dispatch thread, like any other change of the game. The next bridge is
+	 * requested {@link #AUTO_SOLVE_STEP_DELAY_MILLIS} after the last one was
+	 * build, so the solver never runs ahead of the game board. The solver works on
+	 * a copy of the game, so auto solving stops as soon as the game is changed by
+	 * anything but its own steps.
+	 */
+	private final class AutoSolveSubscriber implements Flow.Subscriber<BuildOrRemoveBridgeRequest> {
+		private volatile Flow.Subscription subscription;
+		private volatile boolean cancelled;
+		// modification count of the game after the last own step, only used on the
+		// event dispatch thread
+		private long expectedModificationCount;
+
+		/**
+		 * @param modificationCount modification count of the game the solver
+		 *                          starts from
+		 */
+		AutoSolveSubscriber(long modificationCount) {
+			this.expectedModificationCount = modificationCount;
+		}
+
+		@Override
+		public void onSubscribe(Flow.Subscription subscription) {
+			this.subscription = subscription;
+			if (this.cancelled) {
+				subscription.cancel();
+			} else {
+				subscription.request(1);
 			}
 		}
-		this.autoSolve = false;
 
-		return true;
+		@Override
+		public void onNext(BuildOrRemoveBridgeRequest step) {
+			SwingUtilities.invokeLater(() -> this.apply(step));
+		}
+
+		private void apply(BuildOrRemoveBridgeRequest step) {
+			if (this.cancelled) {
+				return;
+			}
+			if (model.getModificationCount() != this.expectedModificationCount
+					|| !model.buildOrRemoveBridge(step)) {
+				// the game was changed meanwhile, the solution does not fit anymore
+				this.cancel();
+				autoSolvingStopped(this);
+				return;
+			}
+			this.expectedModificationCount = model.getModificationCount();
+			autoSolveScheduler.schedule(() -> {
+				if (!this.cancelled) {
+					this.subscription.request(1);
+				}
+			}, AUTO_SOLVE_STEP_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+		}
+
+		@Override
+		public void onError(Throwable throwable) {
+			autoSolvingStopped(this);
+		}
+
+		@Override
+		public void onComplete() {
+			autoSolvingStopped(this);
+		}
+
+		void cancel() {
+			this.cancelled = true;
+			Flow.Subscription current = this.subscription;
+			if (current != null) {
+				current.cancel();
+			}
+		}
 	}
 
 	public void createNewGame() {
+		this.stopAutoSolving();
 		CompletableFuture.supplyAsync(() -> performNewGame(), executor);
 		this.view.enableTools();
 		this.view.enableSaveGameMenuItems();
@@ -174,33 +276,54 @@ public class GameController implements ControllerInterface {
 
 	@Override
 	public boolean createNewGameRandomly() {
-		// next int upper range limit is exclusive, therefore we add +1
-		int randomNrRows = ThreadLocalRandom.current().nextInt(4, 25 + 1);
-		int randomNrColumns = ThreadLocalRandom.current().nextInt(4, 25 + 1);
-		int randomNrIslands = ThreadLocalRandom.current().nextInt(2, (int) (randomNrRows * randomNrColumns * 0.2) + 1);
-		boolean successfull=this.model.createNewGame(randomNrRows, randomNrColumns, randomNrIslands);
-		if(successfull) {
-			this.view.packAndRepaint();
-			this.view.enableRestartGameMenuItem();
-			this.view.enableSaveGameMenuItems();
-			this.view.enableTools();
+		Optional<PuzzlePool.Puzzle> pooled = this.loadPooledGame(PuzzlePool.Size.RANDOM);
+		if (pooled.isPresent()) {
+			return this.newGameCreated(true, pooled.get().getSeed());
 		}
-		return successfull;
+		return this.createNewGameFromSeed(ThreadLocalRandom.current().nextLong());
+	}
+
+	@Override
+	public boolean createNewGameFromSeed(long seed) {
+		boolean successfull = createNewGameFromSeed(this.model, seed, this.solverExecutor);
+		// the seed is shown, so the player can create the game again
+		return this.newGameCreated(successfull, OptionalLong.of(seed));
+	}
+
+	/**
+	 * Creates the game identified by {@code seed} in {@code model}, the seed
+	 * determines the size of the game and the game itself
+	 *
+	 * @param executor runs the attempts to create the game
+	 * @return {@code true} if the game was created
+	 */
+	static boolean createNewGameFromSeed(GameModelnterface model, long seed, ExecutorService executor) {
+		SplittableRandom random = new SplittableRandom(seed);
+		// next int upper range limit is exclusive, therefore we add +1
+		int randomNrRows = random.nextInt(4, 25 + 1);
+		int randomNrColumns = random.nextInt(4, 25 + 1);
+		int randomNrIslands = randomNrOfIslands(random, randomNrRows, randomNrColumns);
+		return model.createNewGame(randomNrRows, randomNrColumns, randomNrIslands, random.nextLong(), executor);
+	}
+
+	/**
+	 * Draws the number of islands of a game of the given size, at least two and up
+	 * to a fifth of its fields
+	 */
+	static int randomNrOfIslands(RandomGenerator random, int height, int width) {
+		// next int upper range limit is exclusive, therefore we add +1
+		return random.nextInt(2, (int) (height * width * 0.2) + 1);
 	}
 
 	@Override
 	public boolean createNewGameHightWidth(int height, int width) {
 
 		validateNewGameHightWidth(height, width);
-		int randomNrIslands = ThreadLocalRandom.current().nextInt(2, (int) (height * width * 0.2) + 1);
-		boolean successfull= this.model.createNewGame(height, width, randomNrIslands);
-		if(successfull) {
-			this.view.packAndRepaint();
-			this.view.enableRestartGameMenuItem();
-			this.view.enableSaveGameMenuItems();
-			this.view.enableTools();
-		}
-		return successfull;
+		int randomNrIslands = randomNrOfIslands(ThreadLocalRandom.current(), height, width);
+		boolean successfull = this.loadPooledGame(new PuzzlePool.Size(height, width, 0)).isPresent()
+				|| this.model.createNewGame(height, width, randomNrIslands, ThreadLocalRandom.current().nextLong(),
+						this.solverExecutor);
+		return this.newGameCreated(successfull, OptionalLong.empty());
 
 	}
 
@@ -208,8 +331,39 @@ public class GameController implements ControllerInterface {
 	public boolean createNewGameHightWidthIslands(int height, int width, int islands) {
 
 		validateNewGameHightWidthIslands(height, width, islands);
-		boolean successfull=this.model.createNewGame(height, width, islands);
+		boolean successfull = this.loadPooledGame(new PuzzlePool.Size(height, width, islands)).isPresent()
+				|| this.model.createNewGame(height, width, islands, ThreadLocalRandom.current().nextLong(),
+						this.solverExecutor);
+		return this.newGameCreated(successfull, OptionalLong.empty());
+	}
+
+	/**
+	 * Loads a ready-made game of {@code size} from the pool
+	 *
+	 * @return the loaded game, empty if the pool has no game of the size
+	 */
+	private Optional<PuzzlePool.Puzzle> loadPooledGame(PuzzlePool.Size size) {
+		Optional<PuzzlePool.Puzzle> puzzle = this.puzzlePool.take(size);
+		if (puzzle.isEmpty()) {
+			return puzzle;
+		}
+		this.stopAutoSolving();
+		try {
+			this.model.loadGame(puzzle.get().getLines());
+		} catch (GameFileFormatException e) {
+			throw new IllegalStateException("Pooled game is not in bgs format", e);
+		}
+		this.savedFilePath = Optional.empty();
+		return puzzle;
+	}
+
+	/**
+	 * @param seed the seed the game was created from, empty if it has none
+	 */
+	private boolean newGameCreated(boolean successfull, OptionalLong seed) {
 		if(successfull) {
+			this.stopAutoSolving();
+			this.view.setGameSeed(seed);
 			this.view.packAndRepaint();
 			this.view.enableRestartGameMenuItem();
 			this.view.enableSaveGameMenuItems();
@@ -234,9 +388,9 @@ public class GameController implements ControllerInterface {
 
 	public static void validateNewGameHightWidthIslands(int height, int width, int islands) {
 		validateNewGameHightWidth(height, width);
-		if (!(islands >= 2 && islands <= (int) (0.2 * width * height))) {
+		if (!(islands >= 2 && islands <= (int) (MAX_ISLAND_DENSITY * width * height))) {
 			throw new IllegalArgumentException(String.format("Inselanzahl ist nicht im erlaubten Bereich: 2=> x => %d",
-					(int) (0.2 * width * height)));
+					(int) (MAX_ISLAND_DENSITY * width * height)));
 		}
 	}
 
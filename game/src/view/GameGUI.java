@@ -12,6 +12,7 @@ import java.io.File;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.OptionalLong;
 
 import javax.swing.Box;
 import javax.swing.BoxLayout;
@@ -39,6 +40,7 @@ public class GameGUI implements GameObserver {
 	private BridgesBoard gameBord;
 	private final static String GAME_SOLVED_MESSAGE = "Game is solved";
 	private final static String GAME_UNSOLVED_MESSAGE = "Game is not solved yet";
+	private final static String TITLE = "Bridges Game";
 
 	private boolean displayMissingBridges = true;
 	private boolean displayGameStatus;
@@ -232,7 +234,7 @@ public class GameGUI implements GameObserver {
 
 	private final void createAndShowGUI() {
 		// Create and set up the window.
-		this.frame = new JFrame("Bridges Game");
+		this.frame = new JFrame(TITLE);
 		JFrame.setDefaultLookAndFeelDecorated(true);
 		frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
 
@@ -309,6 +311,16 @@ public class GameGUI implements GameObserver {
 		return this.fileChooser;
 	}
 
+	/**
+	 * Shows the seed of the current game in the title, so the player can create
+	 * the game again
+	 *
+	 * @param seed the seed the game was created from, empty if it has none
+	 */
+	protected void setGameSeed(OptionalLong seed) {
+		this.frame.setTitle(seed.isPresent() ? TITLE + " - Seed " + seed.getAsLong() : TITLE);
+	}
+
 	protected void setDisplayGameStatus(boolean isDisplay) {
 		this.displayGameStatus = isDisplay;
 
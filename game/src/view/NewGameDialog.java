@@ -25,15 +25,17 @@ import javax.swing.JTextField;
 public class NewGameDialog extends JDialog implements ActionListener {
 	ControllerInterface controller;
 	
-	private final JRadioButton[] radioButtons = new JRadioButton[2];
+	private final JRadioButton[] radioButtons = new JRadioButton[3];
 	// text labels
 	private final JLabel widthLabel = new JLabel("Width: ");
 	private final JLabel heightLabel = new JLabel("Hight: ");
 	private final JLabel islandLabel = new JLabel("Islands: ");
+	private final JLabel seedLabel = new JLabel("Seed: ");
 	// text fields
 	private final JTextField widthField = new JTextField(2);
 	private final JTextField heigthField = new JTextField(2);
 	private final JTextField islandField = new JTextField(2);
+	private final JTextField seedField = new JTextField(12);
 	// check box
 	private final JCheckBox islandchecker = new JCheckBox("Number of islands");
 	// buttons
@@ -59,6 +61,9 @@ public class NewGameDialog extends JDialog implements ActionListener {
 		radioButtons[1] = new JRadioButton("Define size and nr of islands");
 		radioButtons[1].addActionListener(this);
 
+		radioButtons[2] = new JRadioButton("Game from seed");
+		radioButtons[2].addActionListener(this);
+
 		for (JRadioButton button : this.radioButtons) {
 			group.add(button);
 		}
@@ -66,9 +71,11 @@ public class NewGameDialog extends JDialog implements ActionListener {
 		widthField.setName("Width");
 		heigthField.setName("Hight");
 		islandField.setName("Islands");
+		seedField.setName("Seed");
 		widthLabel.setLabelFor(widthField);
 		heightLabel.setLabelFor(heigthField);
 		islandLabel.setLabelFor(islandField);
+		seedLabel.setLabelFor(seedField);
 
 		JPanel textControlsPane = new JPanel();
 		GridBagLayout gridbag = new GridBagLayout();
@@ -84,6 +91,7 @@ public class NewGameDialog extends JDialog implements ActionListener {
 		islandchecker.addActionListener(this);
 		textControlsPane.add(islandchecker, c);
 		addLabelTextRows(islandLabel, islandField, c, textControlsPane);
+		addLabelTextRows(seedLabel, seedField, c, textControlsPane);
 
 		this.enabledSectionLogic(false);
 
@@ -141,6 +149,9 @@ public class NewGameDialog extends JDialog implements ActionListener {
 			this.islandField.setEnabled(false);
 			this.islandLabel.setEnabled(false);
 		}
+		// the seed determines the size as well
+		this.seedField.setEnabled(this.radioButtons[2].isSelected());
+		this.seedLabel.setEnabled(this.radioButtons[2].isSelected());
 
 	}
 
@@ -151,6 +162,8 @@ public class NewGameDialog extends JDialog implements ActionListener {
 
 		} else if (e.getSource() == this.radioButtons[1]) {
 			this.enabledSectionLogic(true);
+		} else if (e.getSource() == this.radioButtons[2]) {
+			this.enabledSectionLogic(false);
 		} else if (e.getSource() == this.islandchecker) {
 			this.enabledSectionLogic(this.radioButtons[1].isSelected());
 		} else if (e.getSource() == this.cancelButton) {
@@ -164,6 +177,18 @@ public class NewGameDialog extends JDialog implements ActionListener {
 					this.dispatchEvent(new WindowEvent(this, WindowEvent.WINDOW_CLOSING));
 				}
 
+			} else if (this.radioButtons[2].isSelected()) {
+				// the game shown in the title of an earlier game
+				try {
+					boolean success = this.controller.createNewGameFromSeed(Long.parseLong(this.seedField.getText().trim()));
+					if (success) {
+						this.dispatchEvent(new WindowEvent(this, WindowEvent.WINDOW_CLOSING));
+					}
+				} catch (NumberFormatException e2) {
+					JOptionPane.showMessageDialog(this,
+							String.format("Only whole numbers are allowed in TextField: %s", this.seedField.getName()));
+				}
+
 			} else {
 				// custom game specification
 				// width and height need to be specified by user
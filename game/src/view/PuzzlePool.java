@@ -0,0 +1,245 @@
+package view;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Function;
+
+import model.GameModel;
+
+/**
+ * Keeps a few ready-made puzzles for the recently requested sizes, so a new
+ * game can be shown without waiting for the generator.
+ * <p>
+ * A daemon thread with the lowest priority, started by {@link #start()},
+ * refills the pool whenever a puzzle was taken. A size is added to the pool
+ * when it is requested the first time, the least recently requested size is
+ * dropped once more than {@link #MAX_SIZES} sizes are kept. Only
+ * {@link #take(Size)} counts as a request, refilling a size does not make it
+ * more recent. The puzzles are kept in bgs format, as
+ * accepted by {@link model.GameModelnterface#loadGame(List)}. Random puzzles
+ * are created from a seed like
+ * {@link GameController#createNewGameFromSeed(long)} does and keep it, so the
+ * player can create them again.
+ *
+ * @author grimm
+ *
+ */
+final class PuzzlePool {
+	static final int PUZZLES_PER_SIZE = 3;
+	static final int MAX_SIZES = 8;
+	// puzzles per size, ordered from the least to the most recently requested.
+	// The map is ordered by insertion, take moves a size to the end.
+	private final Map<Size, Deque<Puzzle>> puzzles = new LinkedHashMap<Size, Deque<Puzzle>>() {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Size, Deque<Puzzle>> eldest) {
+			return this.size() > MAX_SIZES;
+		}
+	};
+
+	/**
+	 * The size of a puzzle, a value of {@code 0} is chosen randomly for each
+	 * puzzle like {@link GameController#createNewGameRandomly()} does
+	 */
+	static final class Size {
+		/** random number of rows, columns and islands */
+		static final Size RANDOM = new Size(0, 0, 0);
+		private final int nrOfRows;
+		private final int nrOfColumns;
+		private final int nrOfIslands;
+
+		Size(int nrOfRows, int nrOfColumns, int nrOfIslands) {
+			this.nrOfRows = nrOfRows;
+			this.nrOfColumns = nrOfColumns;
+			this.nrOfIslands = nrOfIslands;
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(nrOfColumns, nrOfIslands, nrOfRows);
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) {
+				return true;
+			}
+			if (!(obj instanceof Size)) {
+				return false;
+			}
+			Size other = (Size) obj;
+			return nrOfColumns == other.nrOfColumns && nrOfIslands == other.nrOfIslands
+					&& nrOfRows == other.nrOfRows;
+		}
+	}
+
+	/**
+	 * A ready-made puzzle
+	 */
+	static final class Puzzle {
+		private final List<String> lines;
+		private final OptionalLong seed;
+
+		/**
+		 * @param lines the puzzle in bgs format
+		 * @param seed  the seed of {@link GameController#createNewGameFromSeed(long)}
+		 *              creating the puzzle, empty if the puzzle has a given size
+		 */
+		Puzzle(List<String> lines, OptionalLong seed) {
+			this.lines = lines;
+			this.seed = seed;
+		}
+
+		List<String> getLines() {
+			return this.lines;
+		}
+
+		OptionalLong getSeed() {
+			return this.seed;
+		}
+	}
+
+	// generates a puzzle of a size, empty if the size can not be generated
+	private final Function<Size, Optional<Puzzle>> generator;
+
+	/**
+	 * Creates an empty pool of random puzzles, see {@link #start()}. The
+	 * attempts of each puzzle run one after the other on a thread of the pool.
+	 */
+	PuzzlePool() {
+		this(generatorOn(Executors.newSingleThreadExecutor(r -> {
+			Thread t = new Thread(r, "Puzzle pool generator");
+			t.setDaemon(true);
+			t.setPriority(Thread.MIN_PRIORITY);
+			return t;
+		})));
+	}
+
+	/**
+	 * Creates an empty pool of puzzles made by {@code generator}
+	 *
+	 * @param generator generates a puzzle of a size, empty if the size can not
+	 *                  be generated
+	 */
+	PuzzlePool(Function<Size, Optional<Puzzle>> generator) {
+		this.generator = generator;
+		this.puzzles.put(Size.RANDOM, new ArrayDeque<Puzzle>());
+	}
+
+	/**
+	 * Starts the thread filling the pool
+	 */
+	void start() {
+		Thread refiller = new Thread(this::refill, "Puzzle pool");
+		refiller.setDaemon(true);
+		refiller.setPriority(Thread.MIN_PRIORITY);
+		refiller.start();
+	}
+
+	/**
+	 * Takes a puzzle of {@code size} from the pool and schedules its
+	 * replacement.
+	 *
+	 * @return the puzzle, empty if no puzzle of the size is ready
+	 */
+	synchronized Optional<Puzzle> take(Size size) {
+		// reinserting the size makes it the most recently requested one
+		Deque<Puzzle> pool = this.puzzles.remove(size);
+		if (pool == null) {
+			pool = new ArrayDeque<Puzzle>();
+		}
+		this.puzzles.put(size, pool);
+		Puzzle puzzle = pool.poll();
+		this.notifyAll();
+		return Optional.ofNullable(puzzle);
+	}
+
+	/**
+	 * @return the sizes in the pool from the least to the most recently
+	 *         requested
+	 */
+	synchronized List<Size> getSizes() {
+		return List.copyOf(this.puzzles.keySet());
+	}
+
+	private void refill() {
+		try {
+			while (true) {
+				this.fillNext();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Waits for a size with less than {@link #PUZZLES_PER_SIZE} puzzles and adds
+	 * a puzzle of it
+	 */
+	void fillNext() throws InterruptedException {
+		Size size = this.nextSizeToFill();
+		Optional<Puzzle> puzzle = this.generator.apply(size);
+		synchronized (this) {
+			Deque<Puzzle> pool = this.puzzles.get(size);
+			if (puzzle.isEmpty()) {
+				// do not retry a size the generator fails on until it is requested again
+				this.puzzles.remove(size);
+			} else if (pool != null) {
+				pool.add(puzzle.get());
+			}
+		}
+	}
+
+	/**
+	 * Waits until a size has less than {@link #PUZZLES_PER_SIZE} puzzles
+	 */
+	private synchronized Size nextSizeToFill() throws InterruptedException {
+		while (true) {
+			for (Map.Entry<Size, Deque<Puzzle>> entry : this.puzzles.entrySet()) {
+				if (entry.getValue().size() < PUZZLES_PER_SIZE) {
+					return entry.getKey();
+				}
+			}
+			this.wait();
+		}
+	}
+
+	/**
+	 * Returns a generator creating the puzzles like {@link GameController} does,
+	 * the attempts of a puzzle run on {@code executor}
+	 */
+	private static Function<Size, Optional<Puzzle>> generatorOn(ExecutorService executor) {
+		return size -> {
+			long seed = ThreadLocalRandom.current().nextLong();
+			GameModel model = new GameModel();
+			boolean created;
+			if (size.equals(Size.RANDOM)) {
+				created = GameController.createNewGameFromSeed(model, seed, executor);
+			} else {
+				SplittableRandom random = new SplittableRandom(seed);
+				int nrOfIslands = size.nrOfIslands != 0 ? size.nrOfIslands
+						: GameController.randomNrOfIslands(random, size.nrOfRows, size.nrOfColumns);
+				created = model.createNewGame(size.nrOfRows, size.nrOfColumns, nrOfIslands, random.nextLong(),
+						executor);
+			}
+			if (!created) {
+				return Optional.empty();
+			}
+			return Optional.of(new Puzzle(Arrays.asList(model.toFileFormat().split("\n")),
+					size.equals(Size.RANDOM) ? OptionalLong.of(seed) : OptionalLong.empty()));
+		};
+	}
+
+}
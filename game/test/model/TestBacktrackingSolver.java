@@ -0,0 +1,110 @@
+package model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import common.SolverLimits;
+import common.SolverProgress;
+import model.BacktrackingSolver.EdgeOrder;
+
+public class TestBacktrackingSolver {
+
+	static List<Island> islands5x5() {
+		// puzzles/bsp_5x5.bgs
+		int[][] definition = { { 0, 0, 3 }, { 0, 2, 4 }, { 0, 4, 2 }, { 2, 0, 3 }, { 2, 3, 2 }, { 3, 2, 1 },
+				{ 3, 4, 1 }, { 4, 0, 3 }, { 4, 3, 3 } };
+		List<Island> islands = new ArrayList<Island>();
+		for (int[] island : definition) {
+			islands.add(new Island(island[0], island[1], island[2]));
+		}
+		return islands;
+	}
+
+	static void assertValidSolution(IslandGraph graph, int[] solution) {
+		assertNotNull(solution);
+		for (int i = 0; i < graph.getNrOfIslands(); i++) {
+			int sum = 0;
+			for (int e : graph.getIncidentEdges(i)) {
+				sum += solution[e];
+			}
+			assertEquals(graph.getIsland(i).getBridgeCapacity(), sum);
+		}
+		for (int e = 0; e < graph.getNrOfEdges(); e++) {
+			for (int c : graph.getCrossingEdges(e)) {
+				assertEquals(0, Math.min(solution[e], solution[c]));
+			}
+		}
+		int[] upper = solution.clone();
+		int[] forced = new int[graph.getNrOfEdges()];
+		// all islands are connected by the bridges of the solution
+		assertEquals(0, new ConnectivityDeduction(graph).findForcedEdges(solution, upper, forced));
+	}
+
+	@Test
+	public void testAllOrdersFindSolution() {
+		IslandGraph graph = IslandGraph.of(islands5x5());
+		for (EdgeOrder order : EdgeOrder.values()) {
+			for (boolean probing : new boolean[] { false, true }) {
+				BacktrackingSolver solver = new BacktrackingSolver(new SolverState(graph, new int[graph.getNrOfEdges()]),
+						order, true, probing, 42);
+				assertValidSolution(graph, solver.solve());
+			}
+		}
+	}
+
+	@Test
+	public void testSolveAll() {
+		// the bridges of a square can alternate in two ways
+		List<Island> islands = new ArrayList<Island>();
+		for (int[] island : new int[][] { { 0, 0 }, { 0, 2 }, { 2, 0 }, { 2, 2 } }) {
+			islands.add(new Island(island[0], island[1], 3));
+		}
+		IslandGraph square = IslandGraph.of(islands);
+		List<int[]> solutions = new BacktrackingSolver(new SolverState(square, new int[square.getNrOfEdges()]),
+				EdgeOrder.INPUT, false, false, 0).solveAll(3);
+		assertEquals(2, solutions.size());
+		for (int[] solution : solutions) {
+			assertValidSolution(square, solution);
+		}
+		assertEquals(1, new BacktrackingSolver(new SolverState(square, new int[square.getNrOfEdges()]),
+				EdgeOrder.INPUT, false, false, 0).solveAll(1).size());
+
+		IslandGraph graph = IslandGraph.of(islands5x5());
+		assertEquals(1, new BacktrackingSolver(new SolverState(graph, new int[graph.getNrOfEdges()]),
+				EdgeOrder.MOST_CONSTRAINED, true, true, 0).solveAll(2).size());
+	}
+
+	@Test
+	public void testNoSolution() {
+		// a single island can never get its bridges
+		List<Island> islands = islands5x5();
+		islands.add(new Island(1, 4, 2));
+		islands.get(2).setBridgeCapacity(8);
+		IslandGraph graph = IslandGraph.of(islands);
+		BacktrackingSolver solver = new BacktrackingSolver(new SolverState(graph, new int[graph.getNrOfEdges()]),
+				EdgeOrder.INPUT, false, false, 0);
+		assertNull(solver.solve());
+	}
+
+	@Test
+	public void testProbingReportsProgress() {
+		// probing visits no search nodes, the progress is reported by time
+		IslandGraph graph = IslandGraph.of(islands5x5());
+		List<SolverProgress> reports = new ArrayList<SolverProgress>();
+		SearchMonitor monitor = new SearchMonitor(new SolverLimits(null, Long.MAX_VALUE, Duration.ZERO), null,
+				reports::add);
+		assertTrue(new Propagator(new SolverState(graph, new int[graph.getNrOfEdges()])).probe(monitor));
+		assertEquals(0, monitor.getNodes());
+		assertTrue(reports.size() > 0);
+		assertEquals(graph.getNrOfEdges(), reports.get(0).getNrOfEdges());
+	}
+
+}
@@ -0,0 +1,80 @@
+package model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+public class TestConnectivityDeduction {
+
+	@Test
+	public void testChainEdgesAreForced() {
+		// three islands in a row, both edges are needed to connect all islands
+		List<Island> islands = new ArrayList<Island>();
+		islands.add(new Island(0, 0, 1));
+		islands.add(new Island(0, 2, 2));
+		islands.add(new Island(0, 4, 1));
+		IslandGraph graph = IslandGraph.of(islands);
+		assertEquals(2, graph.getNrOfEdges());
+
+		int[] lower = new int[2];
+		int[] upper = { 2, 2 };
+		int[] forced = new int[2];
+		assertEquals(2, new ConnectivityDeduction(graph).findForcedEdges(lower, upper, forced));
+	}
+
+	@Test
+	public void testCycleEdgesAreNotForced() {
+		// a square of islands with a tail, only the tail edge is forced
+		List<Island> islands = new ArrayList<Island>();
+		islands.add(new Island(0, 0, 2));
+		islands.add(new Island(0, 2, 2));
+		islands.add(new Island(2, 0, 2));
+		islands.add(new Island(2, 2, 3));
+		islands.add(new Island(2, 4, 1));
+		IslandGraph graph = IslandGraph.of(islands);
+		assertEquals(5, graph.getNrOfEdges());
+
+		int[] lower = new int[5];
+		int[] upper = new int[5];
+		Arrays.fill(upper, 2);
+		int[] forced = new int[5];
+		assertEquals(1, new ConnectivityDeduction(graph).findForcedEdges(lower, upper, forced));
+		assertEquals(graph.getEdge(islands.get(3), islands.get(4)), forced[0]);
+
+		// an edge which already carries a bridge is not reported again
+		lower[forced[0]] = 1;
+		assertEquals(0, new ConnectivityDeduction(graph).findForcedEdges(lower, upper, forced));
+	}
+
+	@Test
+	public void testDisconnectedGraph() {
+		List<Island> islands = new ArrayList<Island>();
+		islands.add(new Island(0, 0, 1));
+		islands.add(new Island(0, 2, 1));
+		islands.add(new Island(3, 3, 1));
+		IslandGraph graph = IslandGraph.of(islands);
+		int[] forced = new int[graph.getNrOfEdges()];
+		assertEquals(-1, new ConnectivityDeduction(graph).findForcedEdges(new int[1], new int[] { 2 }, forced));
+	}
+
+	@Test
+	public void testCrossingEdges() {
+		// a horizontal and a vertical edge crossing at (1,1)
+		List<Island> islands = new ArrayList<Island>();
+		islands.add(new Island(1, 0, 1));
+		islands.add(new Island(1, 2, 1));
+		islands.add(new Island(0, 1, 1));
+		islands.add(new Island(2, 1, 1));
+		IslandGraph graph = IslandGraph.of(islands);
+		int horizontal = graph.getEdge(islands.get(0), islands.get(1));
+		int vertical = graph.getEdge(islands.get(2), islands.get(3));
+		assertTrue(Arrays.equals(new int[] { vertical }, graph.getCrossingEdges(horizontal)));
+		assertTrue(Arrays.equals(new int[] { horizontal }, graph.getCrossingEdges(vertical)));
+	}
+
+}
@@ -0,0 +1,78 @@
+package model;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.Test;
+
+public class TestDecomposingSolver {
+
+	/**
+	 * Two columns of islands which are connected by double bridges after
+	 * propagation and two squares between them. The bridges of a square either
+	 * connect the columns or stay on their side, so each square is a region of
+	 * its own and at least one square has to connect the columns.
+	 */
+	static List<Island> islandsOfSquares(boolean transposed) {
+		int[][] definition = { { 0, 0, 4 }, { 2, 0, 6 }, { 4, 0, 6 }, { 6, 0, 4 }, { 0, 7, 4 }, { 2, 7, 6 },
+				{ 4, 7, 6 }, { 6, 7, 4 }, { 0, 2, 4 }, { 0, 4, 4 }, { 2, 4, 4 }, { 2, 2, 4 }, { 4, 3, 4 }, { 4, 5, 4 },
+				{ 6, 5, 4 }, { 6, 3, 4 } };
+		List<Island> islands = new ArrayList<Island>();
+		for (int[] island : definition) {
+			if (transposed) {
+				islands.add(new Island(island[1], island[0], island[2]));
+			} else {
+				islands.add(new Island(island[0], island[1], island[2]));
+			}
+		}
+		return islands;
+	}
+
+	private static DecomposingSolver solverOf(IslandGraph graph) {
+		return new DecomposingSolver(new SolverState(graph, new int[graph.getNrOfEdges()]));
+	}
+
+	@Test
+	public void testFindRegions() {
+		IslandGraph graph = IslandGraph.of(islandsOfSquares(false));
+		SolverState state = new SolverState(graph, new int[graph.getNrOfEdges()]);
+		new Propagator(state).propagate();
+		List<int[]> regions = new DecomposingSolver(state).findRegions();
+		assertEquals(2, regions.size());
+		assertEquals(4, regions.get(0).length);
+		assertEquals(4, regions.get(1).length);
+	}
+
+	@Test
+	public void testSolveRegionsWhichFitTogether() throws InterruptedException {
+		IslandGraph graph = IslandGraph.of(islandsOfSquares(false));
+		ExecutorService executor = Executors.newCachedThreadPool();
+		try {
+			DecomposingSolver solver = solverOf(graph);
+			TestBacktrackingSolver.assertValidSolution(graph, solver.solve(executor));
+			assertEquals(1, solver.getNrOfRounds());
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	public void testSolveRegionsWhichLeaveIslandsDisconnected() throws InterruptedException {
+		// both squares keep their bridges on their side, the regions are merged
+		// and searched again
+		IslandGraph graph = IslandGraph.of(islandsOfSquares(true));
+		ExecutorService executor = Executors.newCachedThreadPool();
+		try {
+			DecomposingSolver solver = solverOf(graph);
+			TestBacktrackingSolver.assertValidSolution(graph, solver.solve(executor));
+			assertEquals(2, solver.getNrOfRounds());
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+}
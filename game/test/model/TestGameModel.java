@@ -1,8 +1,481 @@
 package model;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
 import org.junit.Test;
 
+import common.BuildOrRemoveBridgeRequest;
+import common.CancellationToken;
+import common.CardinalPoints;
+import common.DifficultyBand;
+import common.DifficultyRating;
+import common.GameFileFormatException;
+import common.PuzzleSeeds;
+import common.RuleTier;
+import common.SolveStatus;
+import common.SolverLimits;
+import model.BacktrackingSolver.EdgeOrder;
+
 public class TestGameModel {
+	// puzzles/bsp_5x5.bgs
+	private static final List<String> GAME_5X5 = Arrays.asList("FIELD", "5 x 5 | 9", "ISLANDS", "( 0, 0 | 3 )",
+			"( 0, 2 | 4 )", "( 0, 4 | 2 )", "( 2, 0 | 3 )", "( 2, 3 | 2 )", "( 3, 2 | 1 )", "( 3, 4 | 1 )",
+			"( 4, 0 | 3 )", "( 4, 3 | 3 )");
+
+	// two solutions, solving needs a decision
+	private static final List<String> GAME_SQUARE = Arrays.asList("FIELD", "3 x 3 | 4", "ISLANDS", "( 0, 0 | 3 )",
+			"( 0, 2 | 3 )", "( 2, 0 | 3 )", "( 2, 2 | 3 )");
+
+	private static GameModel loadGame(List<String> lines) throws GameFileFormatException {
+		GameModel model = new GameModel();
+		model.loadGame(lines);
+		return model;
+	}
+
+	@Test
+	public void testSolve() throws GameFileFormatException {
+		GameModel model = loadGame(GAME_5X5);
+		assertEquals(SolveStatus.SOLVED, model.solve(SolverLimits.UNLIMITED, null, null));
+		assertTrue(model.isGameSolved());
+	}
+
+	@Test
+	public void testSolveNextBridgeInBackground() throws Exception {
+		ExecutorService executor = Executors.newCachedThreadPool();
+		try {
+			// no bridge of the ring can be deduced, the portfolio has to search
+			GameModel model = loadGame(Arrays.asList("FIELD", "3 x 3 | 4", "ISLANDS", "( 0, 0 | 2 )", "( 0, 2 | 2 )",
+					"( 2, 0 | 2 )", "( 2, 2 | 2 )"));
+			BlockingQueue<Runnable> applier = new LinkedBlockingQueue<Runnable>();
+			CompletableFuture<Boolean> built = model.solveNextBridge(executor, SolverLimits.UNLIMITED, applier::add);
+			Runnable apply = applier.poll(10, TimeUnit.SECONDS);
+			assertNotNull(apply);
+			// nothing is build until the applier runs
+			assertTrue(model.getBridges().isEmpty());
+			apply.run();
+			assertTrue(built.get(10, TimeUnit.SECONDS));
+			assertEquals(1, model.getBridges().size());
+			// the solution is cached for the next bridge
+			assertTrue(model.solveNextBridge(executor, SolverLimits.UNLIMITED, Runnable::run).isDone());
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	public void testModificationCount() throws GameFileFormatException {
+		GameModel model = loadGame(GAME_5X5);
+		long loaded = model.getModificationCount();
+		assertTrue(model.buildOrRemoveBridge(new BuildOrRemoveBridgeRequest(0, 0, CardinalPoints.EAST, false)));
+		assertEquals(loaded + 1, model.getModificationCount());
+		model.restartGame();
+		assertEquals(loaded + 2, model.getModificationCount());
+		model.loadGame(GAME_SQUARE);
+		assertEquals(loaded + 3, model.getModificationCount());
+	}
+
+	@Test
+	public void testSolveStopsOnLimits() throws GameFileFormatException {
+		GameModel model = loadGame(GAME_5X5);
+		assertEquals(SolveStatus.NODE_BUDGET_EXHAUSTED, model.solve(SolverLimits.nodeBudget(0), null, null));
+		CancellationToken token = new CancellationToken();
+		token.cancel();
+		assertEquals(SolveStatus.CANCELLED, model.solve(SolverLimits.UNLIMITED, token, null));
+		assertFalse(model.isGameSolved());
+	}
+
+	@Test
+	public void testCreateNewGame() {
+		GameModel model = new GameModel();
+		assertTrue(model.createNewGame(25, 25, 125, PuzzleSeeds.of(1, 0)));
+		assertEquals(125, model.getIslands().size());
+		for (Island island : model.getIslands()) {
+			assertEquals(1, model.getIslands().stream()
+					.filter(i -> i.getRow() == island.getRow() && i.getColumn() == island.getColumn()).count());
+		}
+		assertTrue(model.getIslands().stream().allMatch(i -> i.getBridgeCapacity() >= 1 && i.getBridgeCapacity() <= 8));
+		// half of the cells are islands
+		assertTrue(model.createNewGame(25, 25, 312, PuzzleSeeds.of(1, 2)));
+		assertEquals(312, model.getIslands().stream().map(i -> i.getRow() * 25 + i.getColumn()).distinct().count());
+		// only a small board is solved, so the test stays fast
+		assertTrue(model.createNewGame(7, 7, 10, PuzzleSeeds.of(1, 1)));
+		assertEquals(SolveStatus.SOLVED, model.solve(SolverLimits.timeLimit(Duration.ofSeconds(10)), null, null));
+		assertFalse(model.createNewGame(3, 3, 10, PuzzleSeeds.of(1, 3)));
+	}
+
+	@Test
+	public void testCreateNewGameIslandsDoNotTouch() {
+		GameModel model = new GameModel();
+		// up to a fifth of the cells, islands never lie next to each other
+		for (int game = 0; game < 20; game++) {
+			assertTrue(model.createNewGame(25, 25, 125, PuzzleSeeds.of(11, game)));
+			Set<Integer> cells = model.getIslands().stream().map(i -> i.getRow() * 25 + i.getColumn())
+					.collect(Collectors.toSet());
+			for (Island island : model.getIslands()) {
+				assertFalse(island.getColumn() < 24 && cells.contains(island.getRow() * 25 + island.getColumn() + 1));
+				assertFalse(cells.contains((island.getRow() + 1) * 25 + island.getColumn()));
+			}
+		}
+	}
+
+	@Test
+	public void testCreateNewGameFromSeed() {
+		GameModel first = new GameModel();
+		GameModel second = new GameModel();
+		assertTrue(first.createNewGame(25, 25, 125, PuzzleSeeds.of(42, 7)));
+		assertTrue(second.createNewGame(25, 25, 125, PuzzleSeeds.of(42, 7)));
+		assertEquals(first.toFileFormat(), second.toFileFormat());
+		assertTrue(second.createNewGame(25, 25, 125, PuzzleSeeds.of(42, 8)));
+		assertFalse(first.toFileFormat().equals(second.toFileFormat()));
+	}
+
+	@Test
+	public void testCreateNewGameRacingAttempts() throws InterruptedException {
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			GameModel raced = new GameModel();
+			GameModel single = new GameModel();
+			assertTrue(raced.createNewGame(25, 25, 200, PuzzleSeeds.of(4, 0), executor));
+			assertTrue(single.createNewGame(25, 25, 200, PuzzleSeeds.of(4, 0)));
+			assertEquals(single.toFileFormat(), raced.toFileFormat());
+			assertFalse(raced.createNewGame(3, 3, 10, PuzzleSeeds.of(4, 1), executor));
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	public void testCreateLargeGame() throws InterruptedException {
+		ExecutorService single = Executors.newSingleThreadExecutor();
+		ExecutorService pool = Executors.newFixedThreadPool(3);
+		try {
+			// four tiles, stitching may add a few islands
+			GameModel first = new GameModel();
+			GameModel second = new GameModel();
+			assertTrue(first.createLargeGame(300, 300, 3000, PuzzleSeeds.of(6, 0), single));
+			assertTrue(second.createLargeGame(300, 300, 3000, PuzzleSeeds.of(6, 0), pool));
+			assertEquals(first.toFileFormat(), second.toFileFormat());
+			assertTrue(first.getIslands().size() >= 3000 && first.getIslands().size() <= 3012);
+			assertEquals(first.getIslands().size(), first.getNrOfIslands());
+			assertEquals(first.getIslands().size(),
+					first.getIslands().stream().map(i -> i.getRow() * 300 + i.getColumn()).distinct().count());
+			assertTrue(first.getIslands().stream().allMatch(i -> i.getBridgeCapacity() >= 1 && i.getBridgeCapacity() <= 8));
+			// the bridges of the tiles and the stitches do not cross, connect all
+			// islands and match their capacities
+			TiledPuzzleGenerator generator = new TiledPuzzleGenerator(300, 300, PuzzleSeeds.of(6, 0));
+			List<Island> islands = generator.generate(3000, pool).get();
+			IslandGraph graph = IslandGraph.of(islands);
+			TestBacktrackingSolver.assertValidSolution(graph, generator.getSolution(graph));
+		} finally {
+			single.shutdownNow();
+			pool.shutdownNow();
+		}
+	}
+
+	@Test
+	public void testCreateUniqueGame() {
+		GameModel model = new GameModel();
+		for (int game = 0; game < 5; game++) {
+			assertTrue(model.createUniqueGame(15, 15, 50, PuzzleSeeds.of(7, game)));
+			assertEquals(50, model.getIslands().size());
+			assertTrue(model.getIslands().stream().allMatch(i -> i.getBridgeCapacity() >= 1 && i.getBridgeCapacity() <= 8));
+			IslandGraph graph = IslandGraph.of(model.getIslands());
+			assertEquals(1, new BacktrackingSolver(SolverState.of(graph, model.getBridges()), EdgeOrder.MOST_CONSTRAINED,
+					true, true, 0).solveAll(2).size());
+		}
+	}
+
+	@Test
+	public void testCreateNewGameInBand() {
+		GameModel model = new GameModel();
+		assertTrue(model.createNewGame(7, 7, 10, PuzzleSeeds.of(3, 0), DifficultyBand.EASY));
+		assertTrue(DifficultyBand.EASY.contains(model.rateDifficulty().get()));
+		assertTrue(model.createNewGame(10, 10, 20, PuzzleSeeds.of(3, 1), DifficultyBand.HARD));
+		assertTrue(DifficultyBand.HARD.contains(model.rateDifficulty().get()));
+	}
+
+	@Test
+	public void testWriteLargeGame() throws GameFileFormatException, IOException {
+		Path file = Files.createTempFile("bridges", ".bgs");
+		try {
+			// three bands of columns, the last one narrower
+			assertEquals(30, GameModel.writeLargeGame(file, 6, 140, 30, PuzzleSeeds.of(5, 0)));
+			GameModel model = new GameModel();
+			model.loadGame(Files.readAllLines(file));
+			assertEquals(30, model.getNrOfIslands());
+			assertEquals(30, model.getIslands().size());
+			assertTrue(model.getIslands().stream().anyMatch(i -> i.getColumn() >= 128));
+			assertEquals(SolveStatus.SOLVED, model.solve(SolverLimits.UNLIMITED, null, null));
+		} finally {
+			Files.delete(file);
+		}
+	}
+
+	@Test
+	public void testLoadGameInOnePass() throws GameFileFormatException, IOException {
+		GameModel model = new GameModel();
+		// several bridges on a line, as written by earlier versions
+		model.loadGame(new StringReader("# comment\nFIELD\n3 x 3 | 4\nISLANDS\n( 0, 0 | 3 )\n( 2, 0 | 3 )\n"
+				+ "( 0, 2 | 3 )  # east\n( 2, 2 | 3 )\nBRIDGES( 0 , 1 | true)( 0 , 2 | false)"));
+		assertEquals(4, model.getIslands().size());
+		assertEquals(2, model.getBridges().size());
+		assertTrue(model.getBridges().get(0).isDoubleBridge());
+		model.loadGame(ByteBuffer.wrap(String.join("\n", GAME_5X5).getBytes(StandardCharsets.US_ASCII)));
+		assertEquals(9, model.getIslands().size());
+		assertEquals(SolveStatus.SOLVED, model.solve(SolverLimits.UNLIMITED, null, null));
+	}
+
+	@Test
+	public void testLoadGameRejectsInvalidGames() {
+		List<String> invalid = Arrays.asList("FIELD\n3 x 3 | 3\nISLANDS\n( 0, 0 | 1 )\n( 0, 2 | 1 )",
+				"FIELD\n3 x 3 | 2\nISLANDS\n( 0, 0 | 1 )\n( 0, 0 | 1 )",
+				"FIELD\n3 x 3 | 2\nISLANDS\n( 0, 0 | 1 )\n( 0, 3 | 1 )",
+				"FIELD\n3 x 3 | 2\nISLANDS\n( 0, 0 | 1 )\n( 1, 2 | 1 )\nBRIDGES\n( 0, 1 | false )",
+				"FIELD\n3 x 3 | 2\nISLANDS\n( 0, 0 | 1 )\n( 0, 2 | 1 )\nBRIDGES\n( 0, 2 | false )");
+		for (String game : invalid) {
+			try {
+				new GameModel().loadGame(new StringReader(game));
+				fail(game);
+			} catch (GameFileFormatException e) {
+				assertTrue(e.getMessage().contains("line"));
+			} catch (IOException e) {
+				throw new AssertionError(e);
+			}
+		}
+	}
+
+	@Test
+	public void testWriteGameReadsBack() throws GameFileFormatException, IOException {
+		GameModel model = loadGame(GAME_5X5);
+		assertEquals(SolveStatus.SOLVED, model.solve(SolverLimits.UNLIMITED, null, null));
+		StringWriter out = new StringWriter();
+		model.writeGame(out);
+		List<String> lines = Arrays.asList(out.toString().split("\n"));
+		// every bridge on a line of its own
+		assertEquals(model.getBridges().size(), lines.size() - 1 - lines.indexOf("BRIDGES"));
+		assertEquals(out.toString(), model.toFileFormat());
+		GameModel loaded = loadGame(lines);
+		assertTrue(loaded.isGameSolved());
+		StringWriter again = new StringWriter();
+		loaded.writeGame(again);
+		assertEquals(out.toString(), again.toString());
+	}
+
+	@Test
+	public void testBinaryGameRoundTrip() throws GameFileFormatException, IOException {
+		GameModel model = new GameModel();
+		assertTrue(model.createNewGame(25, 25, 125, PuzzleSeeds.of(8, 0)));
+		GameModel solved = loadGame(GAME_5X5);
+		assertEquals(SolveStatus.SOLVED, solved.solve(SolverLimits.UNLIMITED, null, null));
+		for (GameModel game : Arrays.asList(model, solved)) {
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			game.writeBinaryGame(out);
+			// two games in a row, each read leaves the position behind its game
+			game.writeBinaryGame(out);
+			ByteBuffer bytes = ByteBuffer.wrap(out.toByteArray());
+			GameModel loaded = new GameModel();
+			loaded.loadBinaryGame(bytes);
+			assertEquals(game.toFileFormat(), loaded.toFileFormat());
+			loaded.loadBinaryGame(bytes);
+			assertEquals(game.toFileFormat(), loaded.toFileFormat());
+			assertFalse(bytes.hasRemaining());
+			assertTrue(toBinary(game).length * 4 < game.toFileFormat().length());
+		}
+		try {
+			model.loadBinaryGame(ByteBuffer.wrap(Arrays.copyOf(toBinary(solved), 20)));
+			fail();
+		} catch (GameFileFormatException e) {
+			// truncated
+		}
+	}
+
+	@Test
+	public void testPuzzleArchive() throws GameFileFormatException, IOException {
+		Path file = Files.createTempFile("bridges", ".bga");
+		try {
+			List<String> games = new ArrayList<String>();
+			try (PuzzleArchive.Appender archive = PuzzleArchive.create(file)) {
+				GameModel model = new GameModel();
+				for (int game = 0; game < 50; game++) {
+					assertTrue(model.createNewGame(10, 10, 20, PuzzleSeeds.of(9, game)));
+					assertEquals(game, archive.add(model));
+					games.add(model.toFileFormat());
+				}
+			}
+			try (PuzzleArchive archive = PuzzleArchive.open(file)) {
+				assertEquals(50, archive.size());
+				for (int game = 49; game >= 0; game--) {
+					assertEquals(games.get(game), archive.get(game).toFileFormat());
+				}
+			}
+			Files.write(file, Arrays.copyOf(Files.readAllBytes(file), 100));
+			try {
+				PuzzleArchive.open(file).close();
+				fail();
+			} catch (GameFileFormatException e) {
+				// truncated
+			}
+		} finally {
+			Files.delete(file);
+		}
+	}
+
+	@Test
+	public void testLoadCorpusInParallel() throws IOException {
+		Path root = Files.createTempDirectory("bridges");
+		try {
+			Files.createDirectory(root.resolve("more"));
+			GameModel model = new GameModel();
+			for (int game = 0; game < 20; game++) {
+				assertTrue(model.createNewGame(10, 10, 20, PuzzleSeeds.of(10, game)));
+				Files.writeString(root.resolve((game % 2 == 0 ? "" : "more/") + "game-" + game + ".bgs"),
+						model.toFileFormat());
+			}
+			Files.writeString(root.resolve("more/invalid.bgs"), "FIELD\n3 x 3 | 1\nISLANDS\n");
+			Files.writeString(root.resolve("notes.txt"), "no game");
+			List<GameCorpus.Entry> sequential;
+			try (Stream<GameCorpus.Entry> corpus = GameCorpus.load(root, false)) {
+				sequential = corpus.collect(Collectors.toList());
+			}
+			List<GameCorpus.Entry> parallel;
+			try (Stream<GameCorpus.Entry> corpus = GameCorpus.load(root, true)) {
+				parallel = corpus.collect(Collectors.toList());
+			}
+			assertEquals(21, sequential.size());
+			assertEquals(1, sequential.stream().filter(entry -> entry.getError().isPresent()).count());
+			assertEquals(sequential.size(), parallel.size());
+			for (int i = 0; i < sequential.size(); i++) {
+				assertEquals(sequential.get(i).getPath(), parallel.get(i).getPath());
+				assertEquals(sequential.get(i).getGame().map(GameModel::toFileFormat),
+						parallel.get(i).getGame().map(GameModel::toFileFormat));
+			}
+		} finally {
+			try (Stream<Path> paths = Files.walk(root)) {
+				for (Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+					Files.delete(path);
+				}
+			}
+		}
+	}
+
+	private static byte[] toBinary(GameModel model) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		model.writeBinaryGame(out);
+		return out.toByteArray();
+	}
+
+	@Test
+	public void testRateDifficulty() throws GameFileFormatException {
+		DifficultyRating easy = loadGame(GAME_5X5).rateDifficulty().get();
+		assertEquals(RuleTier.CAPACITY, easy.getHardestTier());
+		assertEquals(0, easy.getSearchNodes());
+		assertEquals(easy.getScore(), loadGame(GAME_5X5).rateDifficulty().get().getScore());
+
+		DifficultyRating hard = loadGame(GAME_SQUARE).rateDifficulty().get();
+		assertEquals(RuleTier.SEARCH, hard.getHardestTier());
+		assertTrue(hard.getSearchNodes() > 0);
+		assertTrue(hard.getScore() > easy.getScore());
+	}
+
+	@Test
+	public void testResumeSolveFromCheckpoint() throws GameFileFormatException, IOException {
+		Path checkpoint = Files.createTempFile("bridges", ".checkpoint");
+		try {
+			GameModel model = loadGame(GAME_SQUARE);
+			assertEquals(SolveStatus.NODE_BUDGET_EXHAUSTED,
+					model.solve(SolverLimits.nodeBudget(1), null, null, checkpoint, Duration.ZERO));
+			assertTrue(Files.size(checkpoint) > 0);
+
+			GameModel resumed = new GameModel();
+			assertEquals(SolveStatus.SOLVED,
+					resumed.resumeSolve(checkpoint, SolverLimits.UNLIMITED, null, null, Duration.ofMinutes(1)));
+			assertEquals(4, resumed.getIslands().size());
+			assertTrue(resumed.isGameSolved());
+			assertFalse(Files.exists(checkpoint));
+		} finally {
+			Files.deleteIfExists(checkpoint);
+		}
+	}
+
+	@Test
+	public void testPublishSolverSteps() throws GameFileFormatException {
+		GameModel model = loadGame(GAME_5X5);
+		List<BuildOrRemoveBridgeRequest> steps = new ArrayList<BuildOrRemoveBridgeRequest>();
+		boolean[] completed = new boolean[1];
+		// a direct executor delivers all steps before subscribe returns
+		model.publishSolverSteps(Runnable::run).subscribe(new Flow.Subscriber<BuildOrRemoveBridgeRequest>() {
+			@Override
+			public void onSubscribe(Flow.Subscription subscription) {
+				subscription.request(Long.MAX_VALUE);
+			}
+
+			@Override
+			public void onNext(BuildOrRemoveBridgeRequest step) {
+				steps.add(step);
+			}
+
+			@Override
+			public void onError(Throwable throwable) {
+				throw new AssertionError(throwable);
+			}
+
+			@Override
+			public void onComplete() {
+				completed[0] = true;
+			}
+		});
+		assertTrue(completed[0]);
+		// publishing does not change the game
+		assertTrue(model.getBridges().isEmpty());
+		for (BuildOrRemoveBridgeRequest step : steps) {
+			assertTrue(model.buildOrRemoveBridge(step));
+		}
+		assertTrue(model.isGameSolved());
+	}
+
+	@Test
+	public void testHintsMatchFreshDeduction() throws GameFileFormatException {
+		GameModel model = loadGame(GAME_5X5);
+		do {
+			// a copy has no cached hints and deduces everything again
+			GameModel fresh = model.copy();
+			for (Island island : model.getIslands()) {
+				assertEquals(fresh.getHint(island.getRow(), island.getColumn()).map(r -> r.getDirection()),
+						model.getHint(island.getRow(), island.getColumn()).map(r -> r.getDirection()));
+			}
+		} while (model.solveNextBridge());
+		assertTrue(model.isGameSolved());
+		assertTrue(model.getHint(5, 5).isEmpty());
+	}
+
 	@Test
 	public void testIsInBridgeIntervall() {
 		Island island1 = new Island(1,1,8);
@@ -0,0 +1,93 @@
+package model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import common.CancellationToken;
+import common.SolveStatus;
+import common.SolverLimits;
+
+public class TestSatBridgesSolver {
+
+	@Test
+	public void testFindsSolution() {
+		IslandGraph graph = IslandGraph.of(TestBacktrackingSolver.islands5x5());
+		SatBridgesSolver solver = new SatBridgesSolver(new SolverState(graph, new int[graph.getNrOfEdges()]));
+		TestBacktrackingSolver.assertValidSolution(graph, solver.solve());
+	}
+
+	@Test
+	public void testConnectivityCut() {
+		// double bridges on two opposite sides satisfy the capacities but leave two
+		// groups, only the ring of single bridges connects all islands
+		List<Island> islands = new ArrayList<Island>();
+		islands.add(new Island(0, 0, 2));
+		islands.add(new Island(0, 2, 2));
+		islands.add(new Island(2, 0, 2));
+		islands.add(new Island(2, 2, 2));
+		IslandGraph graph = IslandGraph.of(islands);
+		int[] solution = new SatBridgesSolver(new SolverState(graph, new int[graph.getNrOfEdges()])).solve();
+		TestBacktrackingSolver.assertValidSolution(graph, solution);
+		for (int e = 0; e < graph.getNrOfEdges(); e++) {
+			assertEquals(1, solution[e]);
+		}
+	}
+
+	@Test
+	public void testNoSolution() {
+		List<Island> islands = TestBacktrackingSolver.islands5x5();
+		islands.add(new Island(1, 4, 2));
+		islands.get(2).setBridgeCapacity(8);
+		IslandGraph graph = IslandGraph.of(islands);
+		assertNull(new SatBridgesSolver(new SolverState(graph, new int[graph.getNrOfEdges()])).solve());
+	}
+
+	@Test
+	public void testPigeonholeIsUnsatisfiable() {
+		// four pigeons do not fit into three holes
+		ClauseLearningSolver solver = new ClauseLearningSolver();
+		int[][] inHole = new int[4][3];
+		for (int p = 0; p < 4; p++) {
+			int[] clause = new int[3];
+			for (int h = 0; h < 3; h++) {
+				inHole[p][h] = solver.newVariable();
+				clause[h] = ClauseLearningSolver.literal(inHole[p][h], true);
+			}
+			solver.addClause(clause);
+		}
+		for (int h = 0; h < 3; h++) {
+			for (int p = 0; p < 4; p++) {
+				for (int q = p + 1; q < 4; q++) {
+					solver.addClause(ClauseLearningSolver.literal(inHole[p][h], false),
+							ClauseLearningSolver.literal(inHole[q][h], false));
+				}
+			}
+		}
+		assertFalse(solver.solve());
+		assertTrue(solver.getConflicts() > 0);
+	}
+
+	@Test
+	public void testStopsOnMonitor() {
+		IslandGraph graph = IslandGraph.of(TestBacktrackingSolver.islands5x5());
+		SatBridgesSolver solver = new SatBridgesSolver(new SolverState(graph, new int[graph.getNrOfEdges()]));
+		CancellationToken token = new CancellationToken();
+		token.cancel();
+		solver.setMonitor(new SearchMonitor(SolverLimits.UNLIMITED, token, null));
+		try {
+			solver.solve();
+			fail("Cancelled search returned");
+		} catch (SearchAbortedException e) {
+			assertEquals(SolveStatus.CANCELLED, e.getStatus());
+		}
+	}
+
+}
@@ -0,0 +1,106 @@
+package view;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+public class TestBatchApp {
+	private static final int COUNT = 20;
+	private static final int MAX_IN_FLIGHT = 3;
+
+	/**
+	 * Runs the tasks on {@code delegate} and counts them
+	 */
+	private static final class CountingExecutor extends AbstractExecutorService {
+		private final ExecutorService delegate;
+		private final AtomicInteger submitted = new AtomicInteger();
+
+		CountingExecutor(ExecutorService delegate) {
+			this.delegate = delegate;
+		}
+
+		@Override
+		public void execute(Runnable command) {
+			this.submitted.incrementAndGet();
+			this.delegate.execute(command);
+		}
+
+		@Override
+		public void shutdown() {
+			this.delegate.shutdown();
+		}
+
+		@Override
+		public List<Runnable> shutdownNow() {
+			return this.delegate.shutdownNow();
+		}
+
+		@Override
+		public boolean isShutdown() {
+			return this.delegate.isShutdown();
+		}
+
+		@Override
+		public boolean isTerminated() {
+			return this.delegate.isTerminated();
+		}
+
+		@Override
+		public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+			return this.delegate.awaitTermination(timeout, unit);
+		}
+	}
+
+	/**
+	 * Generates the batch on {@code nrOfThreads} threads, checks that no more
+	 * than {@link #MAX_IN_FLIGHT} puzzles are submitted ahead of the writer
+	 *
+	 * @return the output
+	 */
+	private static String generate(int nrOfThreads) throws IOException, InterruptedException {
+		CountingExecutor executor = new CountingExecutor(Executors.newFixedThreadPool(nrOfThreads));
+		List<Integer> inFlight = new ArrayList<Integer>();
+		StringWriter out = new StringWriter() {
+			@Override
+			public void write(String text) {
+				// the puzzle being written is still in flight
+				inFlight.add(executor.submitted.get() - inFlight.size());
+				super.write(text);
+			}
+		};
+		try {
+			new BatchApp(COUNT, 7, 7, 3, 8, 5, false).generate(executor, MAX_IN_FLIGHT, out);
+		} finally {
+			executor.shutdownNow();
+		}
+		assertEquals(COUNT, inFlight.size());
+		assertTrue(inFlight.stream().allMatch(n -> n >= 1 && n <= MAX_IN_FLIGHT));
+		return out.toString();
+	}
+
+	@Test
+	public void testOutputDoesNotDependOnThreads() throws IOException, InterruptedException {
+		String single = generate(1);
+		assertEquals(single, generate(4));
+		// the puzzles are written in order of their index
+		int index = 0;
+		for (String line : single.split("\n")) {
+			if (line.startsWith("# puzzle ")) {
+				assertEquals("# puzzle " + index++, line);
+			}
+		}
+		assertEquals(COUNT, index);
+	}
+
+}
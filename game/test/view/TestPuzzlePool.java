@@ -0,0 +1,106 @@
+package view;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.Test;
+
+import model.GameModel;
+import view.PuzzlePool.Puzzle;
+import view.PuzzlePool.Size;
+
+public class TestPuzzlePool {
+
+	private int nrOfPuzzles;
+
+	/**
+	 * Numbers the puzzles, a size without islands can not be generated
+	 */
+	private Optional<Puzzle> generate(Size size) {
+		if (size.equals(new Size(1, 1, 0))) {
+			return Optional.empty();
+		}
+		return Optional.of(new Puzzle(List.of("puzzle " + this.nrOfPuzzles), OptionalLong.of(this.nrOfPuzzles++)));
+	}
+
+	@Test
+	public void testTakeAndRefill() throws InterruptedException {
+		PuzzlePool pool = new PuzzlePool(this::generate);
+		// the pool is not filled before it is started
+		assertFalse(pool.take(Size.RANDOM).isPresent());
+		for (int i = 0; i < PuzzlePool.PUZZLES_PER_SIZE; i++) {
+			pool.fillNext();
+		}
+		Puzzle first = pool.take(Size.RANDOM).get();
+		assertEquals(List.of("puzzle 0"), first.getLines());
+		// the seed is kept with the puzzle
+		assertEquals(0, first.getSeed().getAsLong());
+		pool.fillNext();
+		assertEquals(List.of("puzzle 1"), pool.take(Size.RANDOM).get().getLines());
+		assertEquals(List.of("puzzle 2"), pool.take(Size.RANDOM).get().getLines());
+		assertEquals(List.of("puzzle 3"), pool.take(Size.RANDOM).get().getLines());
+		assertFalse(pool.take(Size.RANDOM).isPresent());
+
+		// a size which can not be generated is dropped
+		Size failing = new Size(1, 1, 0);
+		assertFalse(pool.take(failing).isPresent());
+		while (pool.getSizes().contains(failing)) {
+			pool.fillNext();
+		}
+		assertEquals(List.of(Size.RANDOM), pool.getSizes());
+	}
+
+	@Test
+	public void testRefillKeepsRecency() throws InterruptedException {
+		PuzzlePool pool = new PuzzlePool(this::generate);
+		Size small = new Size(5, 5, 5);
+		pool.take(small);
+		// the random size is filled first, but stays the least recently requested
+		pool.fillNext();
+		assertEquals(List.of(Size.RANDOM, small), pool.getSizes());
+		pool.take(Size.RANDOM);
+		assertEquals(List.of(small, Size.RANDOM), pool.getSizes());
+	}
+
+	@Test
+	public void testEvictLeastRecentlyRequestedSize() {
+		PuzzlePool pool = new PuzzlePool(this::generate);
+		List<Size> sizes = new ArrayList<Size>();
+		for (int i = 1; i < PuzzlePool.MAX_SIZES; i++) {
+			sizes.add(new Size(10, 10, i));
+			pool.take(sizes.get(i - 1));
+		}
+		assertEquals(PuzzlePool.MAX_SIZES, pool.getSizes().size());
+		assertEquals(Size.RANDOM, pool.getSizes().get(0));
+		// requesting the random size again keeps it, the first size is dropped
+		pool.take(Size.RANDOM);
+		pool.take(new Size(20, 20, 20));
+		assertEquals(PuzzlePool.MAX_SIZES, pool.getSizes().size());
+		assertFalse(pool.getSizes().contains(sizes.get(0)));
+		assertTrue(pool.getSizes().contains(Size.RANDOM));
+	}
+
+	@Test
+	public void testRandomPuzzleIsCreatedAgainFromItsSeed() throws InterruptedException {
+		PuzzlePool pool = new PuzzlePool();
+		pool.fillNext();
+		Puzzle puzzle = pool.take(Size.RANDOM).get();
+		GameModel model = new GameModel();
+		ExecutorService executor = Executors.newCachedThreadPool();
+		try {
+			assertTrue(GameController.createNewGameFromSeed(model, puzzle.getSeed().getAsLong(), executor));
+		} finally {
+			executor.shutdownNow();
+		}
+		assertEquals(String.join("\n", puzzle.getLines()), model.toFileFormat().trim());
+	}
+
+}